@@ -0,0 +1,173 @@
+package com.github.cb372.util.bench;
+
+import com.github.cb372.util.process.Command;
+import com.github.cb372.util.process.ExternalProcess;
+import com.github.cb372.util.stream.StreamProcessingThreadBuilder.CharStreamProcessingThreadBuilder;
+import com.github.cb372.util.stream.listener.text.StreamLineListener;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.cb372.util.process.StreamProcessing.consume;
+
+/**
+ * Compares platform-thread and virtual-thread stream processing
+ * with many child processes alive at the same time.
+ *
+ * Each child prints a line, waits for its stdin to be closed, then prints another line.
+ * All children are started before any stdin is closed, so every child's stdout and stderr
+ * are being processed at the same time.
+ *
+ * Usage: GobblerThreadBenchmark [number of children...] (default: 1000 10000)
+ *
+ * Must be run on Java 21+ to measure virtual threads. The run fails if the streams were not
+ * processed in the kind of thread being measured, so results are never mislabelled.
+ * 10000 children need about 60000 file descriptors and 10000 processes,
+ * so you may need to raise "ulimit -n" and "ulimit -u".
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class GobblerThreadBenchmark {
+
+    private static final String[] CHILD = {"sh", "-c", "echo started; read x; echo done"};
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> childCounts = new ArrayList<Integer>();
+        for (String arg : args) {
+            childCounts.add(Integer.parseInt(arg));
+        }
+        if (childCounts.isEmpty()) {
+            childCounts.add(1000);
+            childCounts.add(10000);
+        }
+        boolean virtualThreadsSupported = javaVersion() >= 21;
+        if (!virtualThreadsSupported) {
+            System.out.println("Java " + javaVersion() + " does not support virtual threads. Only platform threads will be measured.");
+        }
+
+        // warm up
+        run(100, false);
+
+        System.out.println(String.format("%-10s %8s %10s %10s %13s %12s",
+                "threads", "children", "start ms", "drain ms", "peak threads", "heap MB"));
+        for (int children : childCounts) {
+            print("platform", children, run(children, false));
+            if (virtualThreadsSupported) {
+                print("virtual", children, run(children, true));
+            }
+        }
+    }
+
+    private static Result run(int children, boolean virtual) throws IOException, InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        System.gc();
+        long heapBefore = usedHeap();
+        threads.resetPeakThreadCount();
+
+        CountDownLatch finished = new CountDownLatch(children * 2);
+        AtomicLong lines = new AtomicLong();
+        AtomicLong virtualThreads = new AtomicLong();
+        List<ExternalProcess> processes = new ArrayList<ExternalProcess>(children);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < children; i++) {
+            processes.add(Command.command(CHILD)
+                    .processStdOut(gobbler(virtual, finished, lines, virtualThreads))
+                    .processStdErr(gobbler(virtual, finished, lines, virtualThreads))
+                    .start());
+        }
+        long started = System.nanoTime();
+        long heapWhileRunning = usedHeap();
+
+        for (ExternalProcess process : processes) {
+            process.getStdIn().close();
+        }
+        if (!finished.await(5, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Timed out waiting for output");
+        }
+        long drained = System.nanoTime();
+        for (ExternalProcess process : processes) {
+            process.waitFor();
+        }
+        if (lines.get() != children * 2L) {
+            throw new IllegalStateException("Expected " + (children * 2) + " lines but got " + lines.get());
+        }
+        if (virtualThreads.get() != (virtual ? children * 2L : 0)) {
+            throw new IllegalStateException((children * 2) + " streams were processed, "
+                    + virtualThreads.get() + " of them in virtual threads");
+        }
+
+        return new Result(
+                TimeUnit.NANOSECONDS.toMillis(started - start),
+                TimeUnit.NANOSECONDS.toMillis(drained - started),
+                threads.getPeakThreadCount(),
+                (heapWhileRunning - heapBefore) / (1024 * 1024));
+    }
+
+    private static CharStreamProcessingThreadBuilder gobbler(boolean virtual,
+                                                             final CountDownLatch finished,
+                                                             final AtomicLong lines,
+                                                             final AtomicLong virtualThreads) {
+        CharStreamProcessingThreadBuilder builder = consume().asText()
+                .inDaemonThread()
+                .withListener(new StreamLineListener() {
+                    @Override
+                    public void onLine(String line) {
+                        lines.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onEndOfStream() {
+                        if (isVirtual(Thread.currentThread())) {
+                            virtualThreads.incrementAndGet();
+                        }
+                        finished.countDown();
+                    }
+                });
+        return virtual ? builder.inVirtualThread() : builder;
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (Exception e) {
+            return false; // Thread.isVirtual() is only available on Java 19 and newer
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        return version.startsWith("1.") ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+    }
+
+    private static void print(String mode, int children, Result result) {
+        System.out.println(String.format("%-10s %8d %10d %10d %13d %12d",
+                mode, children, result.startMillis, result.drainMillis, result.peakThreads, result.heapMegabytes));
+    }
+
+    private static final class Result {
+        final long startMillis;
+        final long drainMillis;
+        final int peakThreads;
+        final long heapMegabytes;
+
+        Result(long startMillis, long drainMillis, int peakThreads, long heapMegabytes) {
+            this.startMillis = startMillis;
+            this.drainMillis = drainMillis;
+            this.peakThreads = peakThreads;
+            this.heapMegabytes = heapMegabytes;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.github.cb372.util.bench;
+
+import com.github.cb372.util.process.ExternalProcess;
+import com.github.cb372.util.process.ExternalProcessBuilder.UnspecifiedStdOut;
+import com.github.cb372.util.stream.listener.binary.ByteStreamListener;
+import com.github.cb372.util.stream.listener.text.CharChunkListener;
+import com.github.cb372.util.stream.listener.text.SelectiveCharStreamListener;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.cb372.util.process.Command.command;
+import static com.github.cb372.util.process.Java.java;
+import static com.github.cb372.util.process.StreamProcessing.consume;
+
+/**
+ * Measures what it costs to launch a process and drain its stdout, end to end.
+ *
+ * For every launch it records:
+ * <ul>
+ *     <li>spawn: the time taken by start()</li>
+ *     <li>first byte: the time from calling start() until the first output reaches a listener</li>
+ *     <li>total: the time from calling start() until the process has exited and all its output has been processed</li>
+ * </ul>
+ * and prints percentiles of each, plus the overall launch rate and stdout throughput of each configuration.
+ *
+ * The processes are local stand-ins for real work:
+ * <ul>
+ *     <li>hello: a JVM running PrintHello, which prints one line</li>
+ *     <li>cat: cat of a temporary file of ASCII text</li>
+ *     <li>yes: "yes | head -c N", which writes N bytes through a shell pipeline</li>
+ *     <li>roundtrip: a JVM running RoundtripBinaryData, which copies the temporary file from its stdin to its stdout</li>
+ * </ul>
+ * hello and roundtrip are test classes, so the test classes must be on the classpath (the bench task does this).
+ *
+ * Usage: LaunchBenchmark [name=value,value...]...
+ * <pre>
+ *     scenarios=hello,cat,yes,roundtrip   stand-ins to launch
+ *     modes=text,binary                   process stdout as text (decoded) or as binary
+ *     bufferSizes=8192,65536              stream processor buffer sizes
+ *     concurrency=1,8                     number of processes launched at the same time
+ *     launches=40                         number of launches per configuration
+ *     megabytes=16                        output size for cat, yes and roundtrip
+ * </pre>
+ * e.g.
+ * <pre>
+ *     gradle bench -PbenchMain=com.github.cb372.util.bench.LaunchBenchmark -PbenchArgs="scenarios=cat,yes concurrency=1,4,16"
+ * </pre>
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class LaunchBenchmark {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, List<String>> options = new LinkedHashMap<String, List<String>>();
+        options.put("scenarios", Arrays.asList("hello", "cat", "yes", "roundtrip"));
+        options.put("modes", Arrays.asList("text", "binary"));
+        options.put("bufferSizes", Arrays.asList("8192", "65536"));
+        options.put("concurrency", Arrays.asList("1", "8"));
+        options.put("launches", Arrays.asList("40"));
+        options.put("megabytes", Arrays.asList("16"));
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0 || !options.containsKey(arg.substring(0, equals))) {
+                throw new IllegalArgumentException("Unknown option: " + arg + ". Options are " + options.keySet());
+            }
+            options.put(arg.substring(0, equals), Arrays.asList(arg.substring(equals + 1).split(",")));
+        }
+        int launches = Integer.parseInt(options.get("launches").get(0));
+        long outputBytes = Long.parseLong(options.get("megabytes").get(0)) * 1024 * 1024;
+
+        File input = createInput(outputBytes);
+        try {
+            // warm up
+            for (String scenario : options.get("scenarios")) {
+                run(new Configuration(Scenario.valueOf(scenario), true, 8192, 1), 3, input, outputBytes);
+            }
+
+            System.out.println(String.format("%-10s %-6s %7s %4s | %26s | %26s | %26s | %10s %8s",
+                    "scenario", "mode", "buffer", "conc",
+                    "spawn ms p50/p90/p99", "first byte ms p50/p90/p99", "total ms p50/p90/p99", "launches/s", "MB/s"));
+            for (String scenario : options.get("scenarios")) {
+                for (String mode : options.get("modes")) {
+                    for (String bufferSize : options.get("bufferSizes")) {
+                        for (String concurrency : options.get("concurrency")) {
+                            Configuration configuration = new Configuration(Scenario.valueOf(scenario),
+                                    mode.equals("text"), Integer.parseInt(bufferSize), Integer.parseInt(concurrency));
+                            print(configuration, run(configuration, launches, input, outputBytes));
+                        }
+                    }
+                }
+            }
+        } finally {
+            input.delete();
+        }
+    }
+
+    private enum Scenario {
+        hello {
+            @Override
+            UnspecifiedStdOut builder(File input, long outputBytes) {
+                return command(java().mainClass("com.github.cb372.util.process.PrintHello"));
+            }
+        },
+        cat {
+            @Override
+            UnspecifiedStdOut builder(File input, long outputBytes) {
+                return command("cat", input.getPath());
+            }
+        },
+        yes {
+            @Override
+            UnspecifiedStdOut builder(File input, long outputBytes) {
+                return command("sh", "-c", "yes | head -c " + outputBytes);
+            }
+        },
+        roundtrip {
+            @Override
+            UnspecifiedStdOut builder(File input, long outputBytes) {
+                return command(java().mainClass("com.github.cb372.util.process.RoundtripBinaryData")).feedStdIn(input);
+            }
+        };
+
+        abstract UnspecifiedStdOut builder(File input, long outputBytes);
+
+        /**
+         * @return the amount of output expected, or -1 if it is too small to matter
+         */
+        long expectedBytes(long outputBytes) {
+            return this == hello ? -1 : outputBytes;
+        }
+    }
+
+    private static Results run(final Configuration configuration, int launches,
+                               final File input, final long outputBytes) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(configuration.concurrency);
+        try {
+            List<Future<Sample>> futures = new ArrayList<Future<Sample>>(launches);
+            long start = System.nanoTime();
+            for (int i = 0; i < launches; i++) {
+                futures.add(executor.submit(new Callable<Sample>() {
+                    @Override
+                    public Sample call() throws Exception {
+                        return launch(configuration, input, outputBytes);
+                    }
+                }));
+            }
+            List<Sample> samples = new ArrayList<Sample>(launches);
+            for (Future<Sample> future : futures) {
+                samples.add(future.get());
+            }
+            return new Results(samples, System.nanoTime() - start);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Sample launch(Configuration configuration, File input, long outputBytes) throws Exception {
+        UnspecifiedStdOut builder = configuration.scenario.builder(input, outputBytes).discardStdErr();
+        CountingListener listener = new CountingListener();
+
+        long start = System.nanoTime();
+        ExternalProcess process = configuration.text
+                ? builder.processStdOut(consume().asText().withCharset(ASCII)
+                        .withBufferSize(configuration.bufferSize).withListener(listener)).start()
+                : builder.processStdOut(consume().asBinary()
+                        .withBufferSize(configuration.bufferSize).withListener(listener)).start();
+        long started = System.nanoTime();
+        process.completion().get(5, TimeUnit.MINUTES);
+        long finished = System.nanoTime();
+
+        long expectedBytes = configuration.scenario.expectedBytes(outputBytes);
+        if (process.exitValue() != 0 || listener.bytes == 0 || (expectedBytes >= 0 && listener.bytes != expectedBytes)) {
+            throw new IllegalStateException(configuration.scenario + " exited with " + process.exitValue()
+                    + " after writing " + listener.bytes + " bytes");
+        }
+        return new Sample(started - start, listener.firstByte - start, finished - start, listener.bytes);
+    }
+
+    private static File createInput(long size) throws IOException {
+        File file = File.createTempFile("launch-benchmark", ".txt");
+        file.deleteOnExit();
+        byte[] line = "The quick brown fox jumps over the lazy dog 0123456789\n".getBytes(ASCII);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+        try {
+            for (long written = 0; written < size; written += line.length) {
+                out.write(line, 0, (int) Math.min(line.length, size - written));
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static void print(Configuration configuration, Results results) {
+        System.out.println(String.format("%-10s %-6s %7d %4d | %26s | %26s | %26s | %10.1f %8.1f",
+                configuration.scenario, configuration.text ? "text" : "binary",
+                configuration.bufferSize, configuration.concurrency,
+                results.percentiles(Results.SPAWN), results.percentiles(Results.FIRST_BYTE),
+                results.percentiles(Results.TOTAL), results.launchesPerSecond(), results.megabytesPerSecond()));
+    }
+
+    /**
+     * Counts the output, and notes when it started to arrive.
+     * Each listener is used by a single stream processing thread,
+     * and only read once the process has completed.
+     */
+    private static final class CountingListener implements ByteStreamListener, CharChunkListener, SelectiveCharStreamListener {
+        long firstByte = 0;
+        long bytes = 0;
+
+        private void received(int len) {
+            if (bytes == 0) {
+                firstByte = System.nanoTime();
+            }
+            bytes += len;
+        }
+
+        @Override
+        public void onBytes(byte[] b, int offset, int len) {
+            received(len);
+        }
+
+        @Override
+        public void onChars(char[] c, int offset, int len) {
+            received(len); // the output is ASCII, so one char per byte
+        }
+
+        @Override
+        public void onChar(char c) {
+            received(1);
+        }
+
+        @Override
+        public void onLine(String line) {
+        }
+
+        @Override
+        public boolean wantsChars() {
+            return true;
+        }
+
+        @Override
+        public boolean wantsLines() {
+            return false;
+        }
+
+        @Override
+        public void onEndOfStream() {
+        }
+    }
+
+    private static final class Configuration {
+        final Scenario scenario;
+        final boolean text;
+        final int bufferSize;
+        final int concurrency;
+
+        Configuration(Scenario scenario, boolean text, int bufferSize, int concurrency) {
+            this.scenario = scenario;
+            this.text = text;
+            this.bufferSize = bufferSize;
+            this.concurrency = concurrency;
+        }
+    }
+
+    private static final class Sample {
+        final long spawnNanos;
+        final long firstByteNanos;
+        final long totalNanos;
+        final long bytes;
+
+        Sample(long spawnNanos, long firstByteNanos, long totalNanos, long bytes) {
+            this.spawnNanos = spawnNanos;
+            this.firstByteNanos = firstByteNanos;
+            this.totalNanos = totalNanos;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Results {
+        static final int SPAWN = 0;
+        static final int FIRST_BYTE = 1;
+        static final int TOTAL = 2;
+
+        private final long[][] nanos;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        Results(List<Sample> samples, long elapsedNanos) {
+            this.nanos = new long[3][samples.size()];
+            long bytes = 0;
+            for (int i = 0; i < samples.size(); i++) {
+                Sample sample = samples.get(i);
+                nanos[SPAWN][i] = sample.spawnNanos;
+                nanos[FIRST_BYTE][i] = sample.firstByteNanos;
+                nanos[TOTAL][i] = sample.totalNanos;
+                bytes += sample.bytes;
+            }
+            for (long[] values : nanos) {
+                Arrays.sort(values);
+            }
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        String percentiles(int metric) {
+            return String.format("%.1f / %.1f / %.1f",
+                    percentile(metric, 50), percentile(metric, 90), percentile(metric, 99));
+        }
+
+        /**
+         * @return the nearest-rank percentile, in milliseconds
+         */
+        double percentile(int metric, int percent) {
+            long[] values = nanos[metric];
+            int rank = (int) Math.ceil(percent / 100.0 * values.length);
+            return values[Math.max(rank, 1) - 1] / 1e6;
+        }
+
+        /**
+         * @return the number of launches completed per second, from the first start() to the last completion
+         */
+        double launchesPerSecond() {
+            return nanos[TOTAL].length / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * @return the stdout throughput of all the launches together, from the first start() to the last completion
+         */
+        double megabytesPerSecond() {
+            return bytes / (1024.0 * 1024.0) / (elapsedNanos / 1e9);
+        }
+    }
+}
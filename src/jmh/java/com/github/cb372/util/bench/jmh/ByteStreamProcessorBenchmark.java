@@ -0,0 +1,113 @@
+package com.github.cb372.util.bench.jmh;
+
+import com.github.cb372.util.stream.listener.binary.ByteStreamListener;
+import com.github.cb372.util.stream.listener.binary.Record;
+import com.github.cb372.util.stream.listener.binary.RecordListener;
+import com.github.cb372.util.stream.processor.ByteStreamProcessor;
+import com.github.cb372.util.stream.processor.RecordStreamProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast binary output is passed to listeners, either as raw chunks by a {@link ByteStreamProcessor},
+ * or split into lines without decoding by a {@link RecordStreamProcessor}.
+ * Each operation processes about 1 MiB of output.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteStreamProcessorBenchmark {
+
+    @Param({"16", "128", "4096"})
+    public int lineLength;
+
+    @Param({"1", "4"})
+    public int listenerCount;
+
+    @Param({"1024", "8192", "65536"})
+    public int bufferSize;
+
+    private byte[] output;
+
+    @Setup
+    public void setUp() {
+        output = SyntheticOutput.text(Charset.forName("UTF-8"), lineLength, false);
+    }
+
+    @Benchmark
+    public void raw(Blackhole blackhole) throws IOException {
+        List<ByteStreamListener> listeners = new ArrayList<ByteStreamListener>(listenerCount);
+        for (int i = 0; i < listenerCount; i++) {
+            listeners.add(new ConsumingByteListener(blackhole));
+        }
+        new ByteStreamProcessor(new ByteArrayInputStream(output), bufferSize, listeners).run();
+    }
+
+    @Benchmark
+    public void records(Blackhole blackhole) throws IOException {
+        List<RecordListener> listeners = new ArrayList<RecordListener>(listenerCount);
+        for (int i = 0; i < listenerCount; i++) {
+            listeners.add(new ConsumingRecordListener(blackhole));
+        }
+        new RecordStreamProcessor(new ByteArrayInputStream(output), bufferSize, (byte) '\n', true,
+                Collections.<ByteStreamListener>emptyList(), listeners).run();
+    }
+
+    static final class ConsumingByteListener implements ByteStreamListener {
+        private final Blackhole blackhole;
+
+        ConsumingByteListener(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onBytes(byte[] b, int offset, int len) {
+            blackhole.consume(b[offset + len - 1]);
+        }
+
+        @Override
+        public void onEndOfStream() {
+        }
+    }
+
+    static final class ConsumingRecordListener implements RecordListener {
+        private final Blackhole blackhole;
+
+        ConsumingRecordListener(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onRecord(Record record) {
+            blackhole.consume(record.length());
+        }
+
+        @Override
+        public void onEndOfStream() {
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.cb372.util.bench.jmh;
+
+import com.github.cb372.util.stream.listener.text.CharChunkListener;
+import com.github.cb372.util.stream.listener.text.CharStreamListener;
+import com.github.cb372.util.stream.listener.text.SelectiveCharStreamListener;
+import com.github.cb372.util.stream.listener.text.StreamLineListener;
+import com.github.cb372.util.stream.processor.CharStreamProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast a {@link CharStreamProcessor} decodes in-memory output and splits it into lines.
+ *
+ * Half of the listeners (rounding up) want lines and the rest want characters,
+ * so a single listener measures line splitting and more listeners add the cost of dispatching chunks.
+ * Each operation processes about 1 MiB of output.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CharStreamProcessorBenchmark {
+
+    @Param({"16", "128", "4096"})
+    public int lineLength;
+
+    @Param({"UTF-8", "ISO-8859-1", "UTF-16LE"})
+    public String charset;
+
+    @Param({"false", "true"})
+    public boolean nonAscii;
+
+    @Param({"1", "4"})
+    public int listenerCount;
+
+    @Param({"1024", "8192", "65536"})
+    public int bufferSize;
+
+    private byte[] output;
+    private Charset cs;
+
+    @Setup
+    public void setUp() {
+        cs = Charset.forName(charset);
+        output = SyntheticOutput.text(cs, lineLength, nonAscii);
+    }
+
+    @Benchmark
+    public void process(Blackhole blackhole) throws IOException {
+        List<CharStreamListener> listeners = new ArrayList<CharStreamListener>(listenerCount);
+        for (int i = 0; i < listenerCount; i++) {
+            listeners.add(i % 2 == 0 ? new ConsumingLineListener(blackhole) : new ConsumingCharListener(blackhole));
+        }
+        new CharStreamProcessor(new ByteArrayInputStream(output), cs, "", listeners,
+                bufferSize, CodingErrorAction.REPLACE).run();
+    }
+
+    static final class ConsumingLineListener extends StreamLineListener {
+        private final Blackhole blackhole;
+
+        ConsumingLineListener(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onLine(String line) {
+            blackhole.consume(line);
+        }
+    }
+
+    static final class ConsumingCharListener implements CharChunkListener, SelectiveCharStreamListener {
+        private final Blackhole blackhole;
+
+        ConsumingCharListener(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onChars(char[] c, int offset, int len) {
+            blackhole.consume(c[offset + len - 1]);
+        }
+
+        @Override
+        public void onChar(char c) {
+            blackhole.consume(c);
+        }
+
+        @Override
+        public void onLine(String line) {
+        }
+
+        @Override
+        public boolean wantsChars() {
+            return true;
+        }
+
+        @Override
+        public boolean wantsLines() {
+            return false;
+        }
+
+        @Override
+        public void onEndOfStream() {
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.cb372.util.bench.jmh;
+
+import com.github.cb372.util.stream.listener.OverflowPolicy;
+import com.github.cb372.util.stream.listener.binary.BinaryOutputCollectingListener;
+import com.github.cb372.util.stream.listener.binary.ByteStreamListener;
+import com.github.cb372.util.stream.listener.binary.ChunkedBinaryOutputCollectingListener;
+import com.github.cb372.util.stream.listener.binary.SpillingBinaryOutputCollectingListener;
+import com.github.cb372.util.stream.listener.binary.TailBinaryOutputCollectingListener;
+import com.github.cb372.util.stream.listener.text.AsyncCharStreamListener;
+import com.github.cb372.util.stream.listener.text.CharStreamListener;
+import com.github.cb372.util.stream.listener.text.LoggingListener;
+import com.github.cb372.util.stream.listener.text.PatternMatchingListener;
+import com.github.cb372.util.stream.listener.text.PipingListener;
+import com.github.cb372.util.stream.listener.text.SpillingTextOutputCollectingListener;
+import com.github.cb372.util.stream.listener.text.StreamLineListener;
+import com.github.cb372.util.stream.listener.text.TailTextOutputCollectingListener;
+import com.github.cb372.util.stream.listener.text.TextOutputCollectingListener;
+import com.github.cb372.util.stream.processor.ByteStreamProcessor;
+import com.github.cb372.util.stream.processor.CharStreamProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of each of the shipped listeners, by running about 1 MiB of UTF-8 text
+ * through a stream processor with that listener alone.
+ * Compare the results with {@link #noListener()} to get the cost of the listener itself.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerBenchmark {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Collectors that spill to a temp file are given this in-memory threshold.
+     * It is smaller than the output, so every operation writes a file.
+     */
+    private static final long SPILL_THRESHOLD = 64 * 1024;
+
+    @Param({"80"})
+    public int lineLength;
+
+    private byte[] output;
+    private PrintStream devNull;
+
+    @Setup
+    public void setUp() {
+        output = SyntheticOutput.text(UTF8, lineLength, false);
+        devNull = new PrintStream(new NullOutputStream());
+    }
+
+    @Benchmark
+    public void noListener() throws IOException {
+        processText(new StreamLineListener() {
+            @Override
+            public void onLine(String line) {
+            }
+        });
+    }
+
+    @Benchmark
+    public void piping() throws IOException {
+        processText(new PipingListener(devNull));
+    }
+
+    @Benchmark
+    public void logging() throws IOException {
+        processText(new LoggingListener.Builder(NOPLogger.NOP_LOGGER).atInfoLevel().build());
+    }
+
+    @Benchmark
+    public void patternMatching(Blackhole blackhole) throws IOException {
+        PatternMatchingListener listener = new PatternMatchingListener.Builder()
+                .literal("ERROR", "WARN")
+                .regex("took \\d+ms")
+                .build();
+        processText(listener);
+        blackhole.consume(listener.getFirstMatch("ERROR"));
+    }
+
+    @Benchmark
+    public void async(Blackhole blackhole) throws IOException {
+        final Blackhole sink = blackhole;
+        processText(AsyncCharStreamListener.dispatchingTo(new StreamLineListener() {
+            @Override
+            public void onLine(String line) {
+                sink.consume(line);
+            }
+        }).withOverflowPolicy(OverflowPolicy.Block).build());
+    }
+
+    @Benchmark
+    public void textCollecting(Blackhole blackhole) throws IOException, InterruptedException {
+        TextOutputCollectingListener listener = new TextOutputCollectingListener();
+        processText(listener);
+        blackhole.consume(listener.getTextOutput());
+    }
+
+    @Benchmark
+    public void tailTextCollecting(Blackhole blackhole) throws IOException, InterruptedException {
+        TailTextOutputCollectingListener listener = new TailTextOutputCollectingListener(1000);
+        processText(listener);
+        blackhole.consume(listener.getTextOutput());
+    }
+
+    @Benchmark
+    public void spillingTextCollecting(Blackhole blackhole) throws IOException, InterruptedException {
+        SpillingTextOutputCollectingListener listener = new SpillingTextOutputCollectingListener(SPILL_THRESHOLD);
+        try {
+            processText(listener);
+            blackhole.consume(listener.getLineCount());
+        } finally {
+            listener.close();
+        }
+    }
+
+    @Benchmark
+    public void binaryCollecting(Blackhole blackhole) throws IOException, InterruptedException {
+        BinaryOutputCollectingListener listener = new BinaryOutputCollectingListener();
+        processBinary(listener);
+        blackhole.consume(listener.getBinaryOutput());
+    }
+
+    @Benchmark
+    public void chunkedBinaryCollecting(Blackhole blackhole) throws IOException, InterruptedException {
+        ChunkedBinaryOutputCollectingListener listener = new ChunkedBinaryOutputCollectingListener();
+        processBinary(listener);
+        blackhole.consume(listener.getOutputBuffers());
+    }
+
+    @Benchmark
+    public void tailBinaryCollecting(Blackhole blackhole) throws IOException, InterruptedException {
+        TailBinaryOutputCollectingListener listener = new TailBinaryOutputCollectingListener(64 * 1024);
+        processBinary(listener);
+        blackhole.consume(listener.getOutputBuffers());
+    }
+
+    @Benchmark
+    public void spillingBinaryCollecting(Blackhole blackhole) throws IOException, InterruptedException {
+        SpillingBinaryOutputCollectingListener listener = new SpillingBinaryOutputCollectingListener(SPILL_THRESHOLD);
+        try {
+            processBinary(listener);
+            blackhole.consume(listener.getSize());
+        } finally {
+            listener.close();
+        }
+    }
+
+    private void processText(CharStreamListener listener) throws IOException {
+        new CharStreamProcessor(new ByteArrayInputStream(output), UTF8, listener).run();
+    }
+
+    private void processBinary(ByteStreamListener listener) throws IOException {
+        new ByteStreamProcessor(new ByteArrayInputStream(output), 8192, listener).run();
+    }
+
+    private static final class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
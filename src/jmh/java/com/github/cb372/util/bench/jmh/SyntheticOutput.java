@@ -0,0 +1,47 @@
+package com.github.cb372.util.bench.jmh;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Generates the fake process output that the benchmarks feed to the stream processors.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+final class SyntheticOutput {
+
+    /**
+     * Each benchmark operation processes about this many bytes,
+     * so a throughput of N ops/s is roughly N MiB/s.
+     */
+    static final int SIZE = 1024 * 1024;
+
+    private static final String ASCII = "The quick brown fox jumps over the lazy dog 0123456789 ";
+    private static final String MIXED = "Le coeur d\u00e9\u00e7u mais l'\u00e2me plut\u00f4t na\u00efve, Lou\u00ffs r\u00eava de crapa\u00fcter ";
+
+    private SyntheticOutput() {
+    }
+
+    /**
+     * @param charset encoding of the output
+     * @param lineLength number of characters in each line, not including the newline
+     * @param nonAscii whether the lines should contain accented characters as well as ASCII
+     * @return about {@link #SIZE} bytes of newline-separated text, ending with a newline
+     */
+    static byte[] text(Charset charset, int lineLength, boolean nonAscii) {
+        String source = nonAscii ? MIXED : ASCII;
+        StringBuilder line = new StringBuilder(lineLength + 1);
+        for (int i = 0; i < lineLength; i++) {
+            line.append(source.charAt(i % source.length()));
+        }
+        byte[] encodedLine = line.append('\n').toString().getBytes(charset);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(SIZE + encodedLine.length);
+        while (out.size() < SIZE) {
+            out.write(encodedLine, 0, encodedLine.length);
+        }
+        return out.toByteArray();
+    }
+
+}
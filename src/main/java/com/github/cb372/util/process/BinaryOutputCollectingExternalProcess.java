@@ -1,21 +1,33 @@
 package com.github.cb372.util.process;
 
-import com.github.cb372.util.stream.collector.BinaryOutputCollector;
+import com.github.cb372.util.stream.collector.ChunkedBinaryOutputCollector;
+import com.github.cb372.util.stream.collector.TextOutputCollector;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Author: chris
  * Created: 9/29/13
  */
-public interface BinaryOutputCollectingExternalProcess extends ExternalProcess, BinaryOutputCollector {}
+public interface BinaryOutputCollectingExternalProcess extends ExternalProcess, ChunkedBinaryOutputCollector {
 
-class BinaryOutputCollectingJavaLangProcessWrapper extends JavaLangProcessWrapper
+    @Override
+    public ProcessFuture<BinaryOutputCollectingExternalProcess> completion();
+
+}
+
+class BinaryOutputCollectingJavaLangProcessWrapper extends JavaLangProcessWrapper<BinaryOutputCollectingExternalProcess>
                                                    implements BinaryOutputCollectingExternalProcess {
-    private BinaryOutputCollector outputCollector;
+    private ChunkedBinaryOutputCollector outputCollector;
 
-    protected BinaryOutputCollectingJavaLangProcessWrapper(Process process, BinaryOutputCollector outputCollector) {
-        super(process);
+    protected BinaryOutputCollectingJavaLangProcessWrapper(Process process,
+                                                           TextOutputCollector errorCollector,
+                                                           ProcessCompletion<BinaryOutputCollectingExternalProcess> completion,
+                                                           ChunkedBinaryOutputCollector outputCollector) {
+        super(process, errorCollector, completion);
         this.outputCollector = outputCollector;
     }
 
@@ -28,4 +40,24 @@ class BinaryOutputCollectingJavaLangProcessWrapper extends JavaLangProcessWrappe
     public byte[] getBinaryOutput(long time, TimeUnit timeUnit) throws InterruptedException {
         return outputCollector.getBinaryOutput(time, timeUnit);
     }
+
+    @Override
+    public ByteBuffer[] getOutputBuffers() throws InterruptedException {
+        return outputCollector.getOutputBuffers();
+    }
+
+    @Override
+    public InputStream getOutputAsStream() throws InterruptedException {
+        return outputCollector.getOutputAsStream();
+    }
+
+    @Override
+    public ReadableByteChannel getOutputAsChannel() throws InterruptedException {
+        return outputCollector.getOutputAsChannel();
+    }
+
+    @Override
+    public long getOutputSize() throws InterruptedException {
+        return outputCollector.getOutputSize();
+    }
 }
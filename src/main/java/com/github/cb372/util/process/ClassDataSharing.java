@@ -0,0 +1,366 @@
+package com.github.cb372.util.process;
+
+import com.github.cb372.util.stream.StreamProcessingExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Manages application class-data sharing (AppCDS) archives for child JVMs,
+ * so that their startup does not have to load and verify the same classes every time.
+ *
+ * For each combination of JDK, JVM arguments, main class and classpath (including the size and
+ * modification time of every jar), the first launch records the classes that it loads.
+ * A later launch then builds an archive from that list, in a separate background JVM,
+ * and launches after that use the archive.
+ *
+ * The archive is only moved into place once it has been completely written,
+ * because a JVM that maps a truncated archive can crash.
+ * Children are run with -Xshare:auto, so if an archive turns out to be unusable
+ * the JVM silently falls back to loading classes normally.
+ *
+ * AppCDS needs JDK 10 or newer (where it has to be enabled with -XX:+UseAppCDS), and only works with jars,
+ * so nothing is done if the classpath contains a non-empty directory.
+ *
+ * Entries are pruned from the cache when a new one is created: those that have not been used for a month,
+ * and those for the same main class that have not been used for a day, as they have most likely
+ * been replaced by the new entry after a change to the classpath or JDK.
+ *
+ * As the child JVMs load classes from the archives, the cache directory must belong to the current user
+ * and must not be writable by anybody else. It is created with owner-only permissions if it does not exist.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+final class ClassDataSharing {
+    private static final Logger logger = LoggerFactory.getLogger(ClassDataSharing.class);
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long DEFAULT_SETTLE_MILLIS = 10000;
+    private static final long STALE_MILLIS = 10 * 60 * 1000;
+    private static final long TOUCH_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long MAX_UNUSED_MILLIS = TimeUnit.DAYS.toMillis(30);
+    private static final long MAX_UNUSED_SAME_MAIN_CLASS_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final Pattern CACHE_FILE =
+            Pattern.compile("(?:([0-9a-f]{8})-)?[0-9a-f]{40}\\.(?:jsa|jsa\\.tmp|classlist|failed|lock)");
+
+    private final File cacheDir;
+    private final long settleMillis;
+
+    ClassDataSharing(File cacheDir) {
+        this(cacheDir, DEFAULT_SETTLE_MILLIS);
+    }
+
+    /**
+     * @param settleMillis how long a class list must go unmodified
+     *                     before it is assumed that the JVM recording it has finished loading classes
+     */
+    ClassDataSharing(File cacheDir, long settleMillis) {
+        this.cacheDir = cacheDir;
+        this.settleMillis = settleMillis;
+    }
+
+    /**
+     * @return extra JVM arguments for the next launch. Empty if class-data sharing cannot be used (yet).
+     */
+    List<String> jvmArgs(File javaHome, List<String> jvmArgs, String classpath, String mainClass) {
+        try {
+            String javaVersion = javaVersion(javaHome);
+            if (javaVersion == null || majorVersion(javaVersion) < 10) {
+                return Collections.emptyList();
+            }
+            if (hasNonEmptyDirectory(classpath)) {
+                logger.debug("Not using class-data sharing, as the classpath contains directories: {}", classpath);
+                return Collections.emptyList();
+            }
+            if (!prepareCacheDir()) {
+                return Collections.emptyList();
+            }
+
+            String key = cacheKey(javaHome, javaVersion, jvmArgs, classpath, mainClass);
+            File archive = new File(cacheDir, key + ".jsa");
+            File classList = new File(cacheDir, key + ".classlist");
+            boolean java10 = majorVersion(javaVersion) == 10;
+            if (archive.isFile()) {
+                touch(archive);
+                return withAppCdsEnabled(java10,
+                        "-Xshare:auto", "-XX:SharedArchiveFile=" + archive.getAbsolutePath(), "-Xlog:cds*=off");
+            }
+            if (new File(cacheDir, key + ".failed").exists()) {
+                return Collections.emptyList();
+            }
+            if (classList.createNewFile()) {
+                prune(key);
+                return withAppCdsEnabled(java10, "-XX:DumpLoadedClassList=" + classList.getAbsolutePath());
+            }
+            long age = System.currentTimeMillis() - classList.lastModified();
+            if (classList.length() == 0) {
+                if (age > STALE_MILLIS) {
+                    // the launch that was supposed to record the classes never did
+                    classList.delete();
+                }
+            } else if (age >= settleMillis) {
+                startDump(key, javaHome, java10, jvmArgs, classpath, classList, archive);
+            }
+            return Collections.emptyList();
+        } catch (IOException e) {
+            logger.warn("Not using class-data sharing", e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Record that an archive is still in use, at most once per interval to avoid a write per launch.
+     */
+    private static void touch(File archive) {
+        long now = System.currentTimeMillis();
+        if (now - archive.lastModified() > TOUCH_INTERVAL_MILLIS) {
+            archive.setLastModified(now);
+        }
+    }
+
+    /**
+     * Delete cache files that have not been used for a long time,
+     * or that belong to an older entry for the same main class.
+     * Files of entries that are in use are always recent: archives are touched when used,
+     * and class lists, locks and temporary archives only live for minutes.
+     */
+    private void prune(String newKey) {
+        String mainClassPrefix = newKey.substring(0, newKey.indexOf('-'));
+        File[] files = cacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            Matcher matcher = CACHE_FILE.matcher(file.getName());
+            if (!matcher.matches() || file.getName().startsWith(newKey + ".")) {
+                continue;
+            }
+            long unused = now - file.lastModified();
+            if (unused > MAX_UNUSED_MILLIS
+                    || (mainClassPrefix.equals(matcher.group(1)) && unused > MAX_UNUSED_SAME_MAIN_CLASS_MILLIS)) {
+                logger.debug("Deleting unused class-data sharing file {}", file);
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * On JDK 10, application classes are only archived and loaded from archives with -XX:+UseAppCDS.
+     */
+    private static List<String> withAppCdsEnabled(boolean java10, String... args) {
+        List<String> result = new ArrayList<String>(Arrays.asList(args));
+        if (java10) {
+            result.add("-XX:+UseAppCDS");
+        }
+        return result;
+    }
+
+    /**
+     * Create the cache directory with owner-only permissions if it does not exist,
+     * and check that nobody else can have put an archive in it.
+     *
+     * @return whether the directory can be used
+     */
+    private boolean prepareCacheDir() throws IOException {
+        Path dir = cacheDir.toPath();
+        if (!dir.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+                logger.warn("Could not create class-data sharing cache directory {}", cacheDir);
+                return false;
+            }
+            return true;
+        }
+        if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+            Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        }
+        UserPrincipal currentUser =
+                dir.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+        if (!Files.getOwner(dir, LinkOption.NOFOLLOW_LINKS).equals(currentUser)) {
+            logger.warn("Not using class-data sharing, as the cache directory {} belongs to another user", cacheDir);
+            return false;
+        }
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(dir, LinkOption.NOFOLLOW_LINKS);
+        if (permissions.contains(PosixFilePermission.GROUP_WRITE) || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+            logger.warn("Not using class-data sharing, as other users can write to the cache directory {}", cacheDir);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Build the archive in a background JVM, unless another launch is already doing so.
+     */
+    private void startDump(String key,
+                           File javaHome,
+                           boolean java10,
+                           List<String> jvmArgs,
+                           String classpath,
+                           final File classList,
+                           final File archive) throws IOException {
+        final File lock = new File(cacheDir, key + ".lock");
+        if (!lock.createNewFile()) {
+            if (System.currentTimeMillis() - lock.lastModified() > STALE_MILLIS) {
+                lock.delete();
+            }
+            return;
+        }
+        final File failed = new File(cacheDir, key + ".failed");
+        final File tmp = new File(cacheDir, key + ".jsa.tmp");
+        final List<String> cmd = new ArrayList<String>();
+        cmd.add(new File(javaHome, "bin/java").getAbsolutePath());
+        cmd.addAll(jvmArgs);
+        cmd.add("-Xshare:dump");
+        if (java10) {
+            cmd.add("-XX:+UseAppCDS");
+        }
+        cmd.add("-XX:SharedClassListFile=" + classList.getAbsolutePath());
+        cmd.add("-XX:SharedArchiveFile=" + tmp.getAbsolutePath());
+        cmd.add("-cp");
+        cmd.add(classpath);
+
+        StreamProcessingExecutors.sharedPool().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    tmp.delete();
+                    int exitCode = Command.command(cmd).start().waitFor();
+                    if (exitCode == 0 && tmp.isFile()) {
+                        Files.move(tmp.toPath(), archive.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                        // only needed until the archive exists
+                        classList.delete();
+                    } else {
+                        logger.warn("Failed to create class-data sharing archive {}, exit code {}", archive, exitCode);
+                        failed.createNewFile();
+                    }
+                } catch (IOException e) {
+                    logger.warn("Failed to create class-data sharing archive " + archive, e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    tmp.delete();
+                    lock.delete();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the JAVA_VERSION from the JDK's release file, or null if there isn't one
+     */
+    static String javaVersion(File javaHome) throws IOException {
+        File release = new File(javaHome, "release");
+        if (!release.isFile()) {
+            return null;
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(release), UTF8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("JAVA_VERSION=")) {
+                    return line.substring("JAVA_VERSION=".length()).replace("\"", "");
+                }
+            }
+            return null;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @param javaVersion e.g. "1.8.0_292", "17.0.1" or "21"
+     * @return major version, e.g. 8, 17 or 21
+     */
+    static int majorVersion(String javaVersion) {
+        String[] parts = javaVersion.split("[._+-]");
+        try {
+            int major = Integer.parseInt(parts[0]);
+            if (major == 1 && parts.length > 1) {
+                major = Integer.parseInt(parts[1]);
+            }
+            return major;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean hasNonEmptyDirectory(String classpath) {
+        for (String element : classpath.split(File.pathSeparator)) {
+            String[] contents = new File(element).list();
+            if (contents != null && contents.length > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return a hash of the main class, followed by a hash of everything that the archive depends on,
+     * so that older entries for the same main class can be found
+     */
+    private static String cacheKey(File javaHome,
+                                   String javaVersion,
+                                   List<String> jvmArgs,
+                                   String classpath,
+                                   String mainClass) {
+        MessageDigest mainClassDigest = sha1();
+        update(mainClassDigest, mainClass);
+        MessageDigest digest = sha1();
+        update(digest, javaHome.getAbsolutePath());
+        update(digest, javaVersion);
+        for (String arg : jvmArgs) {
+            update(digest, arg);
+        }
+        update(digest, mainClass);
+        for (String element : classpath.split(File.pathSeparator)) {
+            File file = new File(element);
+            update(digest, file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified());
+        }
+
+        return hex(mainClassDigest.digest()).substring(0, 8) + "-" + hex(digest.digest());
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static void update(MessageDigest digest, String s) {
+        digest.update(s.getBytes(UTF8));
+        digest.update((byte) 0);
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.cb372.util.process;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -49,7 +50,23 @@ public final class Command {
      * @return a process builder
      */
     public static ExternalProcessBuilder.UnspecifiedStdOut command(ProcessBuilderProvider processBuilderProvider) {
-        return new ExternalProcessBuilder.UnspecifiedStdOut(processBuilderProvider.getProcessBuilder());
+        ProcessBuilder processBuilder = processBuilderProvider.getProcessBuilder();
+        if (processBuilderProvider instanceof JavaCommandBuilder.WithMainClass) {
+            ProcessStarter processStarter = ((JavaCommandBuilder.WithMainClass) processBuilderProvider).processStarter();
+            return new ExternalProcessBuilder.UnspecifiedStdOut(processBuilder, processStarter);
+        }
+        return new ExternalProcessBuilder.UnspecifiedStdOut(processBuilder);
+    }
+
+    /**
+     * Start building a pipeline, in which each process's stdout is connected to the next one's stdin.
+     * Finish it with {@link Pipeline#to(ExternalProcessBuilder.TextStdOut) to(...)}, passing the last stage.
+     *
+     * @param stages the first stages of the pipeline, e.g. command("cat", "foo.txt"), command("sort")
+     * @return a pipeline builder
+     */
+    public static Pipeline pipeline(ExternalProcessBuilder.UnspecifiedStdOut... stages) {
+        return new Pipeline(Arrays.asList(stages));
     }
 
 }
@@ -22,13 +22,56 @@ public interface ExternalProcess {
 
     public void destroy();
 
+    /**
+     * Get the last lines that the process sent to stderr.
+     *
+     * Note that this method will block until the process completes and its stderr has been exhausted.
+     *
+     * Will return an empty list unless you explicitly called
+     * {@link com.github.cb372.util.process.ExternalProcessBuilder#collectStdErrTail(int)}
+     * when building the process.
+     *
+     * @return the last lines of stderr output
+     * @throws InterruptedException
+     */
+    public List<String> getStdErrTail() throws InterruptedException;
+
+    /**
+     * Get the last lines that the process sent to stderr,
+     * waiting at most the given time for stderr to be exhausted.
+     * In the case of a timeout, an empty list will be returned.
+     *
+     * @param time timeout
+     * @param timeUnit units of timeout
+     * @return the last lines of stderr output
+     * @throws InterruptedException
+     */
+    public List<String> getStdErrTail(long time, TimeUnit timeUnit) throws InterruptedException;
+
+    /**
+     * Get a future that completes once the process has exited
+     * and all of its output has been processed by the listeners.
+     *
+     * Unlike {@link #waitFor()}, which can return while output is still being processed,
+     * this guarantees that collected output is complete. Waiting does not need a thread per process.
+     *
+     * @return the future completion of this process
+     */
+    public ProcessFuture<? extends ExternalProcess> completion();
+
 }
 
-class JavaLangProcessWrapper implements ExternalProcess {
+class JavaLangProcessWrapper<P extends ExternalProcess> implements ExternalProcess {
     private final Process process;
+    private final TextOutputCollector errorCollector;
+    private final ProcessCompletion<P> completion;
 
-    protected JavaLangProcessWrapper(Process process) {
+    protected JavaLangProcessWrapper(Process process,
+                                     TextOutputCollector errorCollector,
+                                     ProcessCompletion<P> completion) {
         this.process = process;
+        this.errorCollector = errorCollector;
+        this.completion = completion;
     }
 
     @Override
@@ -51,4 +94,19 @@ class JavaLangProcessWrapper implements ExternalProcess {
         process.destroy();
     }
 
+    @Override
+    public List<String> getStdErrTail() throws InterruptedException {
+        return errorCollector.getTextOutput();
+    }
+
+    @Override
+    public List<String> getStdErrTail(long time, TimeUnit timeUnit) throws InterruptedException {
+        return errorCollector.getTextOutput(time, timeUnit);
+    }
+
+    @Override
+    public ProcessFuture<P> completion() {
+        return completion.future();
+    }
+
 }
\ No newline at end of file
@@ -1,15 +1,26 @@
 package com.github.cb372.util.process;
 
-import com.github.cb372.util.stream.collector.BinaryOutputCollector;
+import com.github.cb372.util.stream.collector.ChunkedBinaryOutputCollector;
 import com.github.cb372.util.stream.collector.DummyBinaryOutputCollector;
 import com.github.cb372.util.stream.collector.DummyTextOutputCollector;
 import com.github.cb372.util.stream.collector.TextOutputCollector;
+import com.github.cb372.util.stream.IOExceptionHandler;
 import com.github.cb372.util.stream.StreamProcessingThreadBuilder;
-import com.github.cb372.util.stream.listener.binary.BinaryOutputCollectingListener;
+import com.github.cb372.util.stream.listener.binary.ChunkedBinaryOutputCollectingListener;
+import com.github.cb372.util.stream.listener.binary.TailBinaryOutputCollectingListener;
+import com.github.cb372.util.stream.listener.text.LineIterator;
+import com.github.cb372.util.stream.listener.text.TailTextOutputCollectingListener;
 import com.github.cb372.util.stream.listener.text.TextOutputCollectingListener;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
 
 import static com.github.cb372.util.process.StreamProcessing.consume;
 import static com.github.cb372.util.stream.StreamProcessingThreadBuilder.ByteStreamProcessingThreadBuilder;
@@ -20,24 +31,40 @@ import static com.github.cb372.util.stream.StreamProcessingThreadBuilder.CharStr
  * Created: 4/5/13
  */
 public class ExternalProcessBuilder<T extends ExternalProcessBuilder<T>> {
+    private static final ProcessBuilder.Redirect DISCARD = findDiscardRedirect();
+
     private final Class<T> subclass;
 
     protected final ProcessBuilder processBuilder;
     protected StreamProcessingThreadBuilder stderrProcessingThreadBuilder = new CharStreamProcessingThreadBuilder();
     protected boolean collectStdOut = false;
+    protected int stdoutTailSize = 0;
+    protected int stderrTailLines = 0;
+    protected boolean discardStdOut = false;
+    protected boolean discardStdErr = false;
+    ProcessStarter processStarter = null;
+    StdInSource stdinSource = null;
+    IOExceptionHandler stdinIOExceptionHandler = StdInSource.LOGGING_HANDLER;
 
     protected ExternalProcessBuilder(Class<T> subclass, ProcessBuilder processBuilder) {
         this.subclass = subclass;
         this.processBuilder = processBuilder;
     }
 
-    protected ExternalProcessBuilder(Class<T> subclass,
-                                     ProcessBuilder processBuilder,
-                                     StreamProcessingThreadBuilder stderrProcessingThreadBuilder,
-                                     boolean collectStdOut) {
-        this(subclass, processBuilder);
-        this.stderrProcessingThreadBuilder = stderrProcessingThreadBuilder;
-        this.collectStdOut = collectStdOut;
+    /**
+     * Copy all the settings of another builder.
+     */
+    protected ExternalProcessBuilder(Class<T> subclass, ExternalProcessBuilder<?> settings) {
+        this(subclass, settings.processBuilder);
+        this.stderrProcessingThreadBuilder = settings.stderrProcessingThreadBuilder;
+        this.collectStdOut = settings.collectStdOut;
+        this.stdoutTailSize = settings.stdoutTailSize;
+        this.stderrTailLines = settings.stderrTailLines;
+        this.discardStdOut = settings.discardStdOut;
+        this.discardStdErr = settings.discardStdErr;
+        this.processStarter = settings.processStarter;
+        this.stdinSource = settings.stdinSource;
+        this.stdinIOExceptionHandler = settings.stdinIOExceptionHandler;
     }
 
     /**
@@ -83,9 +110,53 @@ public class ExternalProcessBuilder<T extends ExternalProcessBuilder<T>> {
         return subclass.cast(this);
     }
 
+    /**
+     * Write the process's stderr directly to a file, replacing its contents.
+     * The data does not pass through the JVM, and no thread is needed to process it.
+     * Any calls to {@link #processStdErr(com.github.cb372.util.stream.StreamProcessingThreadBuilder) processStdErr}
+     * will be ignored.
+     *
+     * @param file file to write to
+     * @return builder
+     */
+    public T redirectStdErrTo(File file) {
+        processBuilder.redirectError(ProcessBuilder.Redirect.to(file));
+        return subclass.cast(this);
+    }
+
+    /**
+     * Write the process's stderr directly to the end of a file.
+     *
+     * @param file file to append to
+     * @return builder
+     * @see #redirectStdErrTo(File)
+     */
+    public T appendStdErrTo(File file) {
+        processBuilder.redirectError(ProcessBuilder.Redirect.appendTo(file));
+        return subclass.cast(this);
+    }
+
+    /**
+     * <p>
+     * Throw away everything the process writes to stderr, by connecting it to the null device.
+     * The process can never block writing to stderr, and no thread is needed to consume it.
+     * Any calls to {@link #processStdErr(com.github.cb372.util.stream.StreamProcessingThreadBuilder) processStdErr}
+     * will be ignored.
+     * </p>
+     * <p>
+     * This happens anyway if nobody listens to stderr.
+     * </p>
+     *
+     * @return builder
+     */
+    public T discardStdErr() {
+        this.discardStdErr = true;
+        return subclass.cast(this);
+    }
+
     /**
      * Set options for how to handle the process's stderr.
-     * By default the stream will be silently consumed and discarded.
+     * By default the stream will be discarded (see {@link #discardStdErr()}).
      * @param streamProcessingThreadBuilder
      * @return builder
      */
@@ -116,34 +187,382 @@ public class ExternalProcessBuilder<T extends ExternalProcessBuilder<T>> {
      */
     public T collectStdOut() {
         this.collectStdOut = true;
+        this.stdoutTailSize = 0;
         return subclass.cast(this);
     }
 
+    /**
+     * <p>
+     * Collect only the end of the data that the process sends to stdout,
+     * using a fixed amount of memory however much output there is.
+     * </p>
+     * <p>
+     * If stdout is processed as text, the last {@code size} lines are kept.
+     * If it is processed as binary, the last {@code size} bytes are kept.
+     * The data is accessed in the same way as with {@link #collectStdOut()}.
+     * </p>
+     *
+     * @param size number of lines or bytes to keep
+     * @return builder
+     */
+    public T collectStdOutTail(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Tail size must be at least 1");
+        }
+        this.collectStdOut = true;
+        this.stdoutTailSize = size;
+        return subclass.cast(this);
+    }
+
+    /**
+     * <p>
+     * Keep the last lines that the process sends to stderr, for diagnostics.
+     * You can access them by calling {@link ExternalProcess#getStdErrTail()}.
+     * </p>
+     * <p>
+     * stderr must be processed as text (the default).
+     * If stderr is redirected to stdout, nothing is collected.
+     * </p>
+     *
+     * @param lines number of lines to keep
+     * @return builder
+     */
+    public T collectStdErrTail(int lines) {
+        if (lines <= 0) {
+            throw new IllegalArgumentException("Tail size must be at least 1");
+        }
+        this.stderrTailLines = lines;
+        return subclass.cast(this);
+    }
+
+    /**
+     * <p>
+     * Send the contents of a file to the process's stdin.
+     * </p>
+     * <p>
+     * The file is connected directly to the process's stdin, so its contents
+     * do not pass through the JVM at all, and {@link ExternalProcess#getStdIn()} cannot be written to.
+     * </p>
+     *
+     * @param file file to read
+     * @return builder
+     */
+    public T feedStdIn(File file) {
+        this.stdinSource = StdInSource.of(file);
+        return subclass.cast(this);
+    }
+
+    /**
+     * Send the contents of a file to the process's stdin.
+     * Files on the default filesystem are connected directly to the process's stdin,
+     * as with {@link #feedStdIn(File)}.
+     *
+     * @param path file to read
+     * @return builder
+     */
+    public T feedStdIn(Path path) {
+        this.stdinSource = StdInSource.of(path);
+        return subclass.cast(this);
+    }
+
+    /**
+     * Send everything read from a channel to the process's stdin.
+     * The data is written in large blocks by a background task,
+     * and the channel and the process's stdin are closed when the channel has been read to the end.
+     *
+     * @param channel channel to read
+     * @return builder
+     */
+    public T feedStdIn(ReadableByteChannel channel) {
+        this.stdinSource = StdInSource.of(channel);
+        return subclass.cast(this);
+    }
+
+    /**
+     * Send the remaining contents of a buffer to the process's stdin, then close stdin.
+     * The data is written by a background task. Heap buffers are written without being copied.
+     * The buffer's position is not changed, but its contents must not be modified until the process has read them.
+     *
+     * @param data data to send
+     * @return builder
+     */
+    public T feedStdIn(ByteBuffer data) {
+        this.stdinSource = StdInSource.of(data);
+        return subclass.cast(this);
+    }
+
+    /**
+     * Set a handler for exceptions thrown while feeding stdin,
+     * e.g. if the process exits without reading all of its input.
+     * By default they are logged.
+     *
+     * @param handler handler
+     * @return builder
+     */
+    public T withStdInIOExceptionHandler(IOExceptionHandler handler) {
+        this.stdinIOExceptionHandler = handler;
+        return subclass.cast(this);
+    }
+
+    /**
+     * Start the process and start feeding its stdin.
+     */
+    Process startProcess() throws IOException {
+        ProcessBuilder launchSettings = copyProcessBuilder(true);
+        boolean redirected = redirectStdIn(launchSettings);
+        Process process = launch(launchSettings);
+        feedStdIn(process, redirected);
+        return process;
+    }
+
+    /**
+     * Copy the process builder for a single launch, connecting any output that nobody wants to the null device.
+     * The shared process builder is never changed, so launches from the same settings cannot interfere with each other.
+     * @param stdout whether stdout may be discarded
+     */
+    ProcessBuilder copyProcessBuilder(boolean stdout) {
+        ProcessBuilder copy = new ProcessBuilder(new ArrayList<String>(processBuilder.command()));
+        copy.directory(processBuilder.directory());
+        Map<String, String> environment = copy.environment();
+        environment.clear();
+        environment.putAll(processBuilder.environment());
+        copy.redirectErrorStream(processBuilder.redirectErrorStream());
+        copy.redirectInput(processBuilder.redirectInput());
+        copy.redirectOutput(stdout && discardsStdOut() ? DISCARD : stdoutRedirect());
+        copy.redirectError(discardsStdErr() ? DISCARD : processBuilder.redirectError());
+        return copy;
+    }
+
+    /**
+     * Connect the stdin source directly to the process, if it can be.
+     * @param launchSettings the copy of the process builder that the process will be started from
+     * @return whether stdin was redirected
+     */
+    boolean redirectStdIn(ProcessBuilder launchSettings) {
+        return stdinSource != null && processStarter == null && stdinSource.redirect(launchSettings);
+    }
+
+    /**
+     * Start feeding stdin, unless there is nothing to feed or it was redirected.
+     */
+    void feedStdIn(Process process, boolean redirected) {
+        if (stdinSource != null && !redirected) {
+            stdinSource.feed(process, stdinIOExceptionHandler);
+        }
+    }
+
+    /**
+     * Start the process, using the process starter if there is one.
+     * @param launchSettings the copy of the process builder to start the process from
+     */
+    Process launch(ProcessBuilder launchSettings) throws IOException {
+        if (processStarter != null) {
+            return processStarter.start(launchSettings);
+        }
+        return launchSettings.start();
+    }
+
+    /**
+     * Process the stderr of a process whose stdout is piped to another process.
+     * @param process a process started from this builder's settings
+     * @return the process
+     */
+    ExternalProcess startStage(Process process) {
+        ProcessCompletion<ExternalProcess> completion =
+                new ProcessCompletion<ExternalProcess>(process, processesStdErr() ? 1 : 0);
+        TextOutputCollector errorCollector = startStdErrProcessing(process, completion);
+        JavaLangProcessWrapper<ExternalProcess> wrapper =
+                new JavaLangProcessWrapper<ExternalProcess>(process, errorCollector, completion);
+        completion.bind(wrapper);
+        return wrapper;
+    }
+
+    /**
+     * @return the number of output streams that will be processed
+     */
+    protected int outputStreamCount() {
+        int count = processesStdErr() ? 1 : 0;
+        if (isStdOutPiped() && !discardsStdOut()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return where the process's stdout goes
+     */
+    ProcessBuilder.Redirect stdoutRedirect() {
+        return processBuilder.redirectOutput();
+    }
+
+    /**
+     * @return false if stdout is redirected to a file
+     */
+    boolean isStdOutPiped() {
+        return stdoutRedirect().type() == ProcessBuilder.Redirect.Type.PIPE;
+    }
+
+    /**
+     * @return false if stderr is redirected to stdout or to a file
+     */
+    private boolean isStdErrPiped() {
+        return !processBuilder.redirectErrorStream()
+                && processBuilder.redirectError().type() == ProcessBuilder.Redirect.Type.PIPE;
+    }
+
+    /**
+     * @return whether stdout is piped, but should be discarded because it was asked for or nobody listens to it
+     */
+    boolean discardsStdOut() {
+        return isStdOutPiped() && discardStdOut;
+    }
+
+    /**
+     * @return whether stderr is piped, but should be discarded because it was asked for or nobody listens to it
+     */
+    private boolean discardsStdErr() {
+        return isStdErrPiped()
+                && (discardStdErr || (stderrTailLines == 0 && !hasListeners(stderrProcessingThreadBuilder)));
+    }
+
+    private boolean processesStdErr() {
+        return isStdErrPiped() && !discardsStdErr();
+    }
+
+    static boolean hasListeners(StreamProcessingThreadBuilder builder) {
+        if (builder instanceof CharStreamProcessingThreadBuilder) {
+            return ((CharStreamProcessingThreadBuilder) builder).hasListeners();
+        }
+        if (builder instanceof ByteStreamProcessingThreadBuilder) {
+            return ((ByteStreamProcessingThreadBuilder) builder).hasListeners();
+        }
+        // some other kind of builder, which may have listeners
+        return true;
+    }
+
+    /**
+     * Start processing one of a process's output streams, and run a callback once processing has finished.
+     * Builders other than the ones in this library only know how to build a thread,
+     * so their thread is run inside another one that runs the callback afterwards.
+     */
+    static void startProcessing(StreamProcessingThreadBuilder builder,
+                                InputStream stream,
+                                Process process,
+                                final Runnable onFinished) {
+        if (builder instanceof CharStreamProcessingThreadBuilder) {
+            ((CharStreamProcessingThreadBuilder) builder).start(stream, process, onFinished);
+        } else if (builder instanceof ByteStreamProcessingThreadBuilder) {
+            ((ByteStreamProcessingThreadBuilder) builder).start(stream, process, onFinished);
+        } else {
+            final Thread thread = builder.build(stream);
+            Thread wrapper = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        thread.run();
+                    } finally {
+                        onFinished.run();
+                    }
+                }
+            }, thread.getName());
+            wrapper.setDaemon(thread.isDaemon());
+            wrapper.setPriority(thread.getPriority());
+            wrapper.setUncaughtExceptionHandler(thread.getUncaughtExceptionHandler());
+            wrapper.start();
+        }
+    }
+
+    /**
+     * Start processing the process's stderr, unless it is redirected to stdout or to a file, or discarded.
+     * @return collector for the tail of stderr
+     */
+    protected TextOutputCollector startStdErrProcessing(Process process, ProcessCompletion<?> completion) {
+        if (!processesStdErr()) {
+            return new DummyTextOutputCollector();
+        }
+        StreamProcessingThreadBuilder stderr = stderrProcessingThreadBuilder;
+        TextOutputCollector errorCollector = new DummyTextOutputCollector();
+        if (stderrTailLines > 0) {
+            if (!(stderr instanceof CharStreamProcessingThreadBuilder)) {
+                throw new IllegalStateException("The tail of stderr can only be collected if stderr is processed as text");
+            }
+            // add the listener to a copy, so that it only sees this process's stderr
+            TailTextOutputCollectingListener tailListener = new TailTextOutputCollectingListener(stderrTailLines);
+            stderr = ((CharStreamProcessingThreadBuilder) stderr).copy().withListener(tailListener);
+            errorCollector = tailListener;
+        }
+        startProcessing(stderr, process.getErrorStream(), process, completion.streamFinished());
+        return errorCollector;
+    }
+
     public static final class UnspecifiedStdOut extends ExternalProcessBuilder<UnspecifiedStdOut> {
         public UnspecifiedStdOut(ProcessBuilder processBuilder) {
             super(UnspecifiedStdOut.class, processBuilder);
         }
 
+        UnspecifiedStdOut(ProcessBuilder processBuilder, ProcessStarter processStarter) {
+            this(processBuilder);
+            this.processStarter = processStarter;
+        }
+
         /**
          * Set options for how to handle the process's stdout.
-         * By default the stream will be silently consumed and discarded.
+         * By default the stream will be discarded (see {@link #discardStdOut()}).
          * @param charStreamProcessingThreadBuilder
          * @return builder
          */
         public TextStdOut processStdOut(CharStreamProcessingThreadBuilder charStreamProcessingThreadBuilder) {
-            return new TextStdOut(
-                    processBuilder, stderrProcessingThreadBuilder, collectStdOut, charStreamProcessingThreadBuilder);
+            return new TextStdOut(this, charStreamProcessingThreadBuilder);
         }
 
         /**
          * Set options for how to handle the process's stdout.
-         * By default the stream will be silently consumed and discarded.
+         * By default the stream will be discarded (see {@link #discardStdOut()}).
          * @param byteStreamProcessingThreadBuilder
          * @return builder
          */
         public BinaryStdOut processStdOut(ByteStreamProcessingThreadBuilder byteStreamProcessingThreadBuilder) {
-            return new BinaryStdOut(
-                    processBuilder, stderrProcessingThreadBuilder, collectStdOut, byteStreamProcessingThreadBuilder);
+            return new BinaryStdOut(this, byteStreamProcessingThreadBuilder);
+        }
+
+        /**
+         * Write the process's stdout directly to a file, replacing its contents.
+         * The data does not pass through the JVM, and no thread is needed to process it.
+         * Once the process has exited, the file can be memory-mapped using
+         * {@link FileOutputExternalProcess#mapOutput(java.nio.charset.Charset)}.
+         *
+         * @param file file to write to
+         * @return builder
+         */
+        public FileStdOut redirectStdOutTo(File file) {
+            return new FileStdOut(this, ProcessBuilder.Redirect.to(file));
+        }
+
+        /**
+         * Write the process's stdout directly to the end of a file.
+         *
+         * @param file file to append to
+         * @return builder
+         * @see #redirectStdOutTo(File)
+         */
+        public FileStdOut appendStdOutTo(File file) {
+            return new FileStdOut(this, ProcessBuilder.Redirect.appendTo(file));
+        }
+
+        /**
+         * <p>
+         * Throw away everything the process writes to stdout, by connecting it to the null device.
+         * The process can never block writing to stdout, and no thread is needed to consume it.
+         * </p>
+         * <p>
+         * This happens anyway if nobody listens to stdout and it is not collected.
+         * </p>
+         *
+         * @return builder
+         */
+        public UnspecifiedStdOut discardStdOut() {
+            this.discardStdOut = true;
+            return this;
         }
 
         /**
@@ -154,6 +573,17 @@ public class ExternalProcessBuilder<T extends ExternalProcessBuilder<T>> {
             return processStdOut(consume().asBinary());
         }
 
+        /**
+         * Make stdout available line by line as it arrives,
+         * via {@link TextCollectingExternalProcess#getStdOutLines()}.
+         * @param capacity maximum number of lines waiting to be consumed
+         * @return builder
+         * @see TextStdOut#streamingStdOutLines(int)
+         */
+        public TextStdOut streamingStdOutLines(int capacity) {
+            return processStdOut(consume().asText()).streamingStdOutLines(capacity);
+        }
+
         /**
          * Start the process.
          * @return the started process
@@ -166,90 +596,259 @@ public class ExternalProcessBuilder<T extends ExternalProcessBuilder<T>> {
 
     public static final class TextStdOut extends ExternalProcessBuilder<TextStdOut> {
         private CharStreamProcessingThreadBuilder stdoutProcessingThreadBuilder;
+        private int stdoutLineCapacity = 0;
 
-        protected TextStdOut(ProcessBuilder processBuilder,
-                               StreamProcessingThreadBuilder stderrProcessingThreadBuilder,
-                               boolean collectStdOut,
-                               CharStreamProcessingThreadBuilder stdoutProcessingThreadBuilder) {
-            super(TextStdOut.class, processBuilder, stderrProcessingThreadBuilder, collectStdOut);
+        protected TextStdOut(ExternalProcessBuilder<?> settings,
+                             CharStreamProcessingThreadBuilder stdoutProcessingThreadBuilder) {
+            super(TextStdOut.class, settings);
             this.stdoutProcessingThreadBuilder = stdoutProcessingThreadBuilder;
         }
 
+        /**
+         * <p>
+         * Make stdout available line by line as it arrives,
+         * via {@link TextCollectingExternalProcess#getStdOutLines()}.
+         * </p>
+         * <p>
+         * If the consumer falls behind by more than {@code capacity} lines,
+         * stdout is not read until it catches up, so the process will block
+         * when its output buffer fills up.
+         * Errors reading stdout are reported by the iterator, not by the stream's IOExceptionHandler.
+         * </p>
+         * <p>
+         * Cannot be combined with a stdout processor that uses a
+         * {@link com.github.cb372.util.stream.StreamMultiplexer}, as waiting for the consumer
+         * would block the multiplexer's other streams.
+         * </p>
+         *
+         * @param capacity maximum number of lines waiting to be consumed
+         * @return builder
+         * @throws IllegalStateException if stdout is processed by a multiplexer
+         */
+        public TextStdOut streamingStdOutLines(int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("Capacity must be at least 1");
+            }
+            this.stdoutLineCapacity = capacity;
+            checkStdOutLines();
+            return this;
+        }
+
         /**
          * Start the process.
          * @return the started process
          * @throws IOException if the process failed to start
+         * @throws IllegalStateException if stdout is streamed line by line using a multiplexer
          */
         public TextCollectingExternalProcess start() throws IOException {
-            // Start the process
-            Process process = processBuilder.start();
+            checkStdOutLines();
+            return start(startProcess());
+        }
+
+        /**
+         * Check, before the process is launched, that streaming stdout lines will not block a multiplexer.
+         */
+        void checkStdOutLines() {
+            if (stdoutLineCapacity > 0 && stdoutProcessingThreadBuilder.usesMultiplexer()) {
+                throw new IllegalStateException("Stdout lines cannot be streamed from a multiplexer");
+            }
+        }
+
+        @Override
+        boolean discardsStdOut() {
+            return super.discardsStdOut()
+                    || (isStdOutPiped() && !collectStdOut && stdoutLineCapacity == 0
+                        && !hasListeners(stdoutProcessingThreadBuilder));
+        }
 
+        /**
+         * Start processing the output of a process started from this builder's settings.
+         */
+        TextCollectingExternalProcess start(Process process) {
+            boolean processStdOut = !discardsStdOut();
+            // add this process's listeners to a copy, so that they do not see the output of later processes
+            CharStreamProcessingThreadBuilder stdout = stdoutProcessingThreadBuilder.copy();
             TextOutputCollector outputCollector;
-            if (collectStdOut) {
+            if (collectStdOut && stdoutTailSize > 0) {
+                TailTextOutputCollectingListener outputCollectingListener = new TailTextOutputCollectingListener(stdoutTailSize);
+                stdout.withListener(outputCollectingListener);
+                outputCollector = outputCollectingListener;
+            } else if (collectStdOut) {
                 TextOutputCollectingListener outputCollectingListener = new TextOutputCollectingListener();
-                stdoutProcessingThreadBuilder.withListener(outputCollectingListener);
+                stdout.withListener(outputCollectingListener);
                 outputCollector = outputCollectingListener;
             } else {
                 outputCollector = new DummyTextOutputCollector();
             }
 
+            final LineIterator lines = new LineIterator(Math.max(stdoutLineCapacity, 1));
+            if (processStdOut && stdoutLineCapacity > 0) {
+                stdout.withListener(lines).withIOExceptionHandler(lines);
+            } else {
+                lines.onEndOfStream();
+            }
+
             // Start the output stream processing threads
-            Thread stdoutGobblerThread = stdoutProcessingThreadBuilder.build(process.getInputStream());
-            stdoutGobblerThread.start();
-            if (!processBuilder.redirectErrorStream()) {
-                Thread stderrGobblerThread = stderrProcessingThreadBuilder.build(process.getErrorStream());
-                stderrGobblerThread.start();
+            ProcessCompletion<TextCollectingExternalProcess> completion =
+                    new ProcessCompletion<TextCollectingExternalProcess>(process, outputStreamCount());
+            if (processStdOut) {
+                final Runnable streamFinished = completion.streamFinished();
+                stdout.start(process.getInputStream(), process, new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            // end the iteration even if a listener threw before the end of the stream
+                            lines.onStreamProcessingFinished();
+                        } finally {
+                            streamFinished.run();
+                        }
+                    }
+                });
             }
+            TextOutputCollector errorCollector = startStdErrProcessing(process, completion);
 
             // return the process
-            return new TextCollectingJavaLangProcessWrapper(process, outputCollector);
+            TextCollectingJavaLangProcessWrapper wrapper =
+                    new TextCollectingJavaLangProcessWrapper(process, errorCollector, completion, outputCollector, lines);
+            completion.bind(wrapper);
+            return wrapper;
         }
 
     }
 
     public static final class BinaryStdOut extends ExternalProcessBuilder<BinaryStdOut> {
         private ByteStreamProcessingThreadBuilder stdoutProcessingThreadBuilder;
+        private int outputChunkSize = ChunkedBinaryOutputCollectingListener.DEFAULT_CHUNK_SIZE;
+        private boolean collectInDirectMemory = false;
 
-        protected BinaryStdOut(ProcessBuilder processBuilder,
-                               StreamProcessingThreadBuilder stderrProcessingThreadBuilder,
-                               boolean collectStdOut,
+        protected BinaryStdOut(ExternalProcessBuilder<?> settings,
                                ByteStreamProcessingThreadBuilder stdoutProcessingThreadBuilder) {
-            super(BinaryStdOut.class, processBuilder, stderrProcessingThreadBuilder, collectStdOut);
+            super(BinaryStdOut.class, settings);
             this.stdoutProcessingThreadBuilder = stdoutProcessingThreadBuilder;
         }
 
+        /**
+         * Set the maximum size of the chunks used to collect stdout. Default is 64KB.
+         * Only relevant if {@link #collectStdOut()} is set.
+         * @param bytes chunk size in bytes
+         * @return builder
+         */
+        public BinaryStdOut withOutputChunkSize(int bytes) {
+            this.outputChunkSize = bytes;
+            return this;
+        }
+
+        /**
+         * Collect stdout into direct memory, outside the Java heap.
+         * Only relevant if {@link #collectStdOut()} is set.
+         * @return builder
+         */
+        public BinaryStdOut collectingInDirectMemory() {
+            this.collectInDirectMemory = true;
+            return this;
+        }
+
         /**
          * Start the process.
          * @return the started process
          * @throws IOException if the process failed to start
          */
         public BinaryOutputCollectingExternalProcess start() throws IOException {
-            // Start the process
-            Process process = processBuilder.start();
+            return start(startProcess());
+        }
+
+        @Override
+        boolean discardsStdOut() {
+            return super.discardsStdOut()
+                    || (isStdOutPiped() && !collectStdOut && !hasListeners(stdoutProcessingThreadBuilder));
+        }
 
-            BinaryOutputCollector outputCollector;
-            if (collectStdOut) {
-                BinaryOutputCollectingListener outputCollectingListener = new BinaryOutputCollectingListener();
-                stdoutProcessingThreadBuilder.withListener(outputCollectingListener);
+        /**
+         * Start processing the output of a process started from this builder's settings.
+         */
+        BinaryOutputCollectingExternalProcess start(Process process) {
+            boolean processStdOut = !discardsStdOut();
+            // add this process's listeners to a copy, so that they do not see the output of later processes
+            ByteStreamProcessingThreadBuilder stdout = stdoutProcessingThreadBuilder.copy();
+            ChunkedBinaryOutputCollector outputCollector;
+            if (collectStdOut && stdoutTailSize > 0) {
+                TailBinaryOutputCollectingListener outputCollectingListener = new TailBinaryOutputCollectingListener(stdoutTailSize);
+                stdout.withListener(outputCollectingListener);
+                outputCollector = outputCollectingListener;
+            } else if (collectStdOut) {
+                ChunkedBinaryOutputCollectingListener outputCollectingListener =
+                        new ChunkedBinaryOutputCollectingListener(outputChunkSize, collectInDirectMemory);
+                stdout.withListener(outputCollectingListener);
                 outputCollector = outputCollectingListener;
             } else {
                 outputCollector = new DummyBinaryOutputCollector();
             }
 
             // Start the output stream processing threads
-            Thread stdoutGobblerThread = stdoutProcessingThreadBuilder.build(process.getInputStream());
-            stdoutGobblerThread.start();
-            if (!processBuilder.redirectErrorStream()) {
-                Thread stderrGobblerThread = stderrProcessingThreadBuilder.build(process.getErrorStream());
-                stderrGobblerThread.start();
+            ProcessCompletion<BinaryOutputCollectingExternalProcess> completion =
+                    new ProcessCompletion<BinaryOutputCollectingExternalProcess>(process, outputStreamCount());
+            if (processStdOut) {
+                stdout.start(process.getInputStream(), process, completion.streamFinished());
             }
+            TextOutputCollector errorCollector = startStdErrProcessing(process, completion);
 
             // return the process
-            return new BinaryOutputCollectingJavaLangProcessWrapper(process, outputCollector);
+            BinaryOutputCollectingJavaLangProcessWrapper wrapper =
+                    new BinaryOutputCollectingJavaLangProcessWrapper(process, errorCollector, completion, outputCollector);
+            completion.bind(wrapper);
+            return wrapper;
         }
 
     }
 
-}
+    public static final class FileStdOut extends ExternalProcessBuilder<FileStdOut> {
+        private final ProcessBuilder.Redirect redirect;
+
+        protected FileStdOut(ExternalProcessBuilder<?> settings, ProcessBuilder.Redirect redirect) {
+            super(FileStdOut.class, settings);
+            this.redirect = redirect;
+        }
+
+        /**
+         * The redirect is only applied when the process is launched,
+         * as the ProcessBuilder is shared with the builder that this one was created from.
+         */
+        @Override
+        ProcessBuilder.Redirect stdoutRedirect() {
+            return redirect;
+        }
+
+        /**
+         * Start the process.
+         * @return the started process
+         * @throws IOException if the process failed to start
+         */
+        public FileOutputExternalProcess start() throws IOException {
+            Process process = startProcess();
+
+            ProcessCompletion<FileOutputExternalProcess> completion =
+                    new ProcessCompletion<FileOutputExternalProcess>(process, outputStreamCount());
+            TextOutputCollector errorCollector = startStdErrProcessing(process, completion);
 
+            FileOutputJavaLangProcessWrapper wrapper =
+                    new FileOutputJavaLangProcessWrapper(process, errorCollector, completion, redirect.file());
+            completion.bind(wrapper);
+            return wrapper;
+        }
 
+    }
+
+    /**
+     * ProcessBuilder.Redirect.DISCARD is only available on Java 9 and newer.
+     */
+    private static ProcessBuilder.Redirect findDiscardRedirect() {
+        try {
+            Field discard = ProcessBuilder.Redirect.class.getField("DISCARD");
+            return (ProcessBuilder.Redirect) discard.get(null);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            boolean windows = System.getProperty("os.name").startsWith("Windows");
+            return ProcessBuilder.Redirect.to(new File(windows ? "NUL" : "/dev/null"));
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.github.cb372.util.process;
+
+import com.github.cb372.util.stream.collector.MappedLineFile;
+import com.github.cb372.util.stream.collector.TextOutputCollector;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * A process whose stdout was redirected to a file.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public interface FileOutputExternalProcess extends ExternalProcess {
+
+    /**
+     * @return the file that stdout was written to
+     */
+    public File getOutputFile();
+
+    /**
+     * Wait for the process to exit, then memory-map its output file
+     * for random access to its lines. Remember to close it.
+     *
+     * @param charset the encoding of the output
+     * @return the mapped output
+     * @throws IOException if the file cannot be mapped
+     * @throws InterruptedException
+     */
+    public MappedLineFile mapOutput(Charset charset) throws IOException, InterruptedException;
+
+    @Override
+    public ProcessFuture<FileOutputExternalProcess> completion();
+
+}
+
+class FileOutputJavaLangProcessWrapper extends JavaLangProcessWrapper<FileOutputExternalProcess>
+                                       implements FileOutputExternalProcess {
+    private final File outputFile;
+
+    protected FileOutputJavaLangProcessWrapper(Process process,
+                                               TextOutputCollector errorCollector,
+                                               ProcessCompletion<FileOutputExternalProcess> completion,
+                                               File outputFile) {
+        super(process, errorCollector, completion);
+        this.outputFile = outputFile;
+    }
+
+    @Override
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    @Override
+    public MappedLineFile mapOutput(Charset charset) throws IOException, InterruptedException {
+        waitFor();
+        return MappedLineFile.open(outputFile, charset);
+    }
+
+}
@@ -0,0 +1,421 @@
+package com.github.cb372.util.process;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * A Java main class running inside the current JVM, dressed up as a process.
+ * </p>
+ * <p>
+ * The class is loaded by its own class loader, built from the given classpath,
+ * so it does not share any application classes (or their static state) with the caller.
+ * Its main method runs in a new thread group, and the threads in that group
+ * see their own System.out, System.err, System.in and system properties
+ * (see {@link InJvmRouting}).
+ * </p>
+ * <p>
+ * Like the java launcher, the process exits once the main method has returned
+ * and all non-daemon threads that it started have finished.
+ * The exit code is 0 if main returned normally, or 1 if it threw an exception,
+ * in which case the stack trace is written to stderr.
+ * </p>
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+final class InJvmProcess extends Process {
+    private static final int PIPE_SIZE = 65536;
+    private static final int DESTROYED_EXIT_CODE = 143;
+
+    private final String classpath;
+    private final String mainClass;
+    private final String[] args;
+    private final boolean stdoutPiped;
+    private final boolean stderrPiped;
+
+    private final Pipe stdin = new Pipe(PIPE_SIZE);
+    private final Pipe stdout = new Pipe(PIPE_SIZE);
+    private final Pipe stderr = new Pipe(PIPE_SIZE);
+
+    final Map<String, String> sysProps = new ConcurrentHashMap<String, String>();
+    final PrintStream out;
+    final PrintStream err;
+    final InputStream in = stdin.input;
+
+    private final ThreadGroup threadGroup;
+    private Integer exitCode = null;
+    private boolean destroyed = false;
+
+    /**
+     * @param classpath classpath from which to load the main class
+     * @param mainClass fully qualified name of the main class
+     * @param args arguments to pass to the main method
+     * @param sysProps system properties that the process will see in addition to the JVM's own
+     * @param processBuilder the process's redirects. Redirects of stdout and stderr to files are supported.
+     * @throws IOException if an output file cannot be opened
+     */
+    InJvmProcess(String classpath, String mainClass, List<String> args, Map<String, String> sysProps,
+                 ProcessBuilder processBuilder) throws IOException {
+        this.classpath = classpath;
+        this.mainClass = mainClass;
+        this.args = args.toArray(new String[args.size()]);
+        this.sysProps.putAll(sysProps);
+        this.stdoutPiped = !isFile(processBuilder.redirectOutput());
+        this.stderrPiped = !processBuilder.redirectErrorStream() && !isFile(processBuilder.redirectError());
+        this.out = printStream(processBuilder.redirectOutput(), stdout);
+        if (processBuilder.redirectErrorStream()) {
+            this.err = out;
+        } else {
+            this.err = printStream(processBuilder.redirectError(), stderr);
+        }
+        this.threadGroup = new ThreadGroup("InJvmProcess-" + mainClass);
+    }
+
+    private static boolean isFile(ProcessBuilder.Redirect redirect) {
+        return redirect.type() == ProcessBuilder.Redirect.Type.WRITE
+                || redirect.type() == ProcessBuilder.Redirect.Type.APPEND;
+    }
+
+    /**
+     * @return a stream that writes to the redirect's file, or else to the pipe
+     */
+    private static PrintStream printStream(ProcessBuilder.Redirect redirect, Pipe pipe) throws IOException {
+        if (isFile(redirect)) {
+            boolean append = redirect.type() == ProcessBuilder.Redirect.Type.APPEND;
+            return new PrintStream(new FileOutputStream(redirect.file(), append), true);
+        }
+        return new PrintStream(pipe.output, true);
+    }
+
+    /**
+     * Start running the main class.
+     * @return this process
+     */
+    InJvmProcess start() {
+        InJvmRouting.register(this, threadGroup, !sysProps.isEmpty());
+        // non-daemon, like the java launcher's main thread, so that threads it starts are non-daemon by default
+        Thread main = new Thread(threadGroup, new Runnable() {
+            @Override
+            public void run() {
+                runMain();
+            }
+        }, "main");
+        main.start();
+        return this;
+    }
+
+    private void runMain() {
+        int code = 1;
+        URLClassLoader classLoader = null;
+        try {
+            classLoader = new URLClassLoader(urls(classpath), ClassLoader.getSystemClassLoader().getParent());
+            Thread.currentThread().setContextClassLoader(classLoader);
+            Method main = Class.forName(mainClass, true, classLoader).getMethod("main", String[].class);
+            if (!Modifier.isStatic(main.getModifiers())) {
+                throw new NoSuchMethodException("main");
+            }
+            main.invoke(null, (Object) args);
+            code = 0;
+            awaitNonDaemonThreads();
+        } catch (ClassNotFoundException | MalformedURLException e) {
+            err.println("Error: Could not find or load main class " + mainClass);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            err.println("Error: Main method not found in class " + mainClass);
+        } catch (InvocationTargetException e) {
+            err.print("Exception in thread \"main\" ");
+            e.getCause().printStackTrace(err);
+            awaitNonDaemonThreadsQuietly();
+        } catch (InterruptedException e) {
+            // destroyed while waiting for other threads
+        } catch (RuntimeException | Error e) {
+            e.printStackTrace(err);
+        } finally {
+            closeQuietly(classLoader);
+            exited(code);
+        }
+    }
+
+    private void awaitNonDaemonThreadsQuietly() {
+        try {
+            awaitNonDaemonThreads();
+        } catch (InterruptedException e) {
+            // destroyed while waiting for other threads
+        }
+    }
+
+    /**
+     * Wait for all the non-daemon threads started by the process to finish.
+     */
+    private void awaitNonDaemonThreads() throws InterruptedException {
+        while (true) {
+            Thread[] threads = new Thread[threadGroup.activeCount() + 1];
+            int count = threadGroup.enumerate(threads);
+            boolean waited = false;
+            for (int i = 0; i < count; i++) {
+                Thread thread = threads[i];
+                if (thread != Thread.currentThread() && !thread.isDaemon() && thread.isAlive()) {
+                    thread.join();
+                    waited = true;
+                }
+            }
+            if (!waited) {
+                return;
+            }
+        }
+    }
+
+    private void exited(int code) {
+        InJvmRouting.unregister(threadGroup);
+        stdout.closeWriter();
+        stderr.closeWriter();
+        if (!stdoutPiped) {
+            out.close();
+        }
+        if (!stderrPiped) {
+            err.close();
+        }
+        stdin.closeReader();
+        synchronized (this) {
+            exitCode = destroyed ? DESTROYED_EXIT_CODE : code;
+            notifyAll();
+        }
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return stdin.output;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return stdoutPiped ? stdout.input : new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return stderrPiped ? stderr.input : new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public synchronized int waitFor() throws InterruptedException {
+        while (exitCode == null) {
+            wait();
+        }
+        return exitCode;
+    }
+
+    /*
+     * Overrides Process.waitFor(long, TimeUnit) on Java 8 and newer.
+     */
+    public synchronized boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (exitCode == null) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized int exitValue() {
+        if (exitCode == null) {
+            throw new IllegalThreadStateException("process hasn't exited");
+        }
+        return exitCode;
+    }
+
+    /*
+     * Overrides Process.isAlive() on Java 8 and newer.
+     */
+    public synchronized boolean isAlive() {
+        return exitCode == null;
+    }
+
+    /**
+     * Interrupt all of the process's threads and close its stdin.
+     * A thread that ignores interrupts cannot be stopped,
+     * so the process may carry on running.
+     * If it does exit, its exit code will be 143.
+     */
+    @Override
+    public void destroy() {
+        synchronized (this) {
+            if (exitCode != null) {
+                return;
+            }
+            destroyed = true;
+        }
+        threadGroup.interrupt();
+        stdin.closeWriter();
+    }
+
+    private static URL[] urls(String classpath) throws MalformedURLException {
+        List<URL> urls = new ArrayList<URL>();
+        for (String element : classpath.split(File.pathSeparator)) {
+            if (!element.isEmpty()) {
+                urls.add(new File(element).toURI().toURL());
+            }
+        }
+        return urls.toArray(new URL[urls.size()]);
+    }
+
+    private static void closeQuietly(URLClassLoader classLoader) {
+        if (classLoader == null) {
+            return;
+        }
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * A bounded in-memory pipe. Unlike java.io.PipedInputStream,
+     * it can be written by any number of threads.
+     * Writers block while the pipe is full.
+     */
+    static final class Pipe {
+        private final byte[] buffer;
+        private int readPos = 0;
+        private int count = 0;
+        private boolean writerClosed = false;
+        private boolean readerClosed = false;
+
+        final InputStream input = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return Pipe.this.read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return Pipe.this.read(b, off, len);
+            }
+
+            @Override
+            public int available() {
+                return Pipe.this.available();
+            }
+
+            @Override
+            public void close() {
+                closeReader();
+            }
+        };
+
+        final OutputStream output = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                Pipe.this.write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                Pipe.this.write(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                closeWriter();
+            }
+        };
+
+        Pipe(int size) {
+            this.buffer = new byte[size];
+        }
+
+        synchronized void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                while (count == buffer.length && !readerClosed && !writerClosed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                }
+                if (writerClosed) {
+                    throw new IOException("Stream closed");
+                }
+                if (readerClosed) {
+                    throw new IOException("Pipe closed");
+                }
+                int writePos = (readPos + count) % buffer.length;
+                int n = Math.min(len, Math.min(buffer.length - count, buffer.length - writePos));
+                System.arraycopy(b, off, buffer, writePos, n);
+                count += n;
+                off += n;
+                len -= n;
+                notifyAll();
+            }
+        }
+
+        synchronized int read(byte[] b, int off, int len) throws IOException {
+            if (readerClosed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (count == 0) {
+                if (writerClosed) {
+                    return -1;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+                if (readerClosed) {
+                    throw new IOException("Stream closed");
+                }
+            }
+            int n = Math.min(len, Math.min(count, buffer.length - readPos));
+            System.arraycopy(buffer, readPos, b, off, n);
+            readPos = (readPos + n) % buffer.length;
+            count -= n;
+            notifyAll();
+            return n;
+        }
+
+        synchronized int available() {
+            return count;
+        }
+
+        synchronized void closeWriter() {
+            writerClosed = true;
+            notifyAll();
+        }
+
+        synchronized void closeReader() {
+            readerClosed = true;
+            count = 0;
+            notifyAll();
+        }
+    }
+
+}
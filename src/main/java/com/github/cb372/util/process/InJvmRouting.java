@@ -0,0 +1,444 @@
+package com.github.cb372.util.process;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Gives each {@link InJvmProcess} its own System.out, System.err, System.in and system properties.
+ * </p>
+ * <p>
+ * While any in-JVM process is running, the JVM's standard streams are replaced
+ * with streams that forward to the streams of the process that the calling thread belongs to,
+ * or to the original streams if it does not belong to one.
+ * A thread belongs to a process if it is in the process's thread group, which is where the process's main thread runs
+ * and, by default, where any threads that it starts run.
+ * Threads that the library starts on behalf of the caller, such as those of the shared pool, never belong to a process.
+ * Every method is forwarded as a whole, so a process blocked writing its output
+ * never holds a lock that other threads need in order to write theirs.
+ * Once the last process has exited, the original streams are put back.
+ * </p>
+ * <p>
+ * If a process has system properties, the JVM's Properties are replaced in the same way.
+ * A process sees its own properties on top of the JVM's, through getProperty, get, containsKey,
+ * stringPropertyNames, propertyNames, keySet and entrySet. Properties that it sets with setProperty
+ * are only visible to that process. Other ways of changing the properties, such as remove, change the JVM's.
+ * </p>
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+final class InJvmRouting {
+    private static final Map<ThreadGroup, InJvmProcess> PROCESSES = new ConcurrentHashMap<ThreadGroup, InJvmProcess>();
+
+    private InJvmRouting() {
+    }
+
+    /**
+     * Make the threads in the process's thread group belong to it, and start routing the standard streams,
+     * and optionally the system properties, by process.
+     * If something else has replaced them since they were routed, they are routed again.
+     */
+    static synchronized void register(InJvmProcess process, ThreadGroup threadGroup, boolean properties) {
+        PROCESSES.put(threadGroup, process);
+        if (!(System.out instanceof RoutingPrintStream)) {
+            System.setOut(new RoutingPrintStream(System.out, false));
+        }
+        if (!(System.err instanceof RoutingPrintStream)) {
+            System.setErr(new RoutingPrintStream(System.err, true));
+        }
+        if (!(System.in instanceof RoutingInputStream)) {
+            System.setIn(new RoutingInputStream(System.in));
+        }
+        if (properties && !(System.getProperties() instanceof RoutingProperties)) {
+            System.setProperties(new RoutingProperties(System.getProperties()));
+        }
+    }
+
+    /**
+     * Stop routing to a process that has exited. Once no processes are left,
+     * put back the JVM's original streams and properties, unless something else has replaced them since.
+     */
+    static synchronized void unregister(ThreadGroup threadGroup) {
+        PROCESSES.remove(threadGroup);
+        if (!PROCESSES.isEmpty()) {
+            return;
+        }
+        if (System.out instanceof RoutingPrintStream) {
+            System.setOut(((RoutingPrintStream) System.out).original);
+        }
+        if (System.err instanceof RoutingPrintStream) {
+            System.setErr(((RoutingPrintStream) System.err).original);
+        }
+        if (System.in instanceof RoutingInputStream) {
+            System.setIn(((RoutingInputStream) System.in).original);
+        }
+        if (System.getProperties() instanceof RoutingProperties) {
+            System.setProperties(((RoutingProperties) System.getProperties()).restore());
+        }
+    }
+
+    /**
+     * @return the process that the current thread belongs to, or null
+     */
+    private static InJvmProcess current() {
+        if (PROCESSES.isEmpty()) {
+            return null;
+        }
+        for (ThreadGroup group = Thread.currentThread().getThreadGroup(); group != null; group = group.getParent()) {
+            InJvmProcess process = PROCESSES.get(group);
+            if (process != null) {
+                return process;
+            }
+        }
+        return null;
+    }
+
+    private static final class RoutingPrintStream extends PrintStream {
+        private final PrintStream original;
+        private final boolean err;
+
+        RoutingPrintStream(PrintStream original, boolean err) {
+            super(original);
+            this.original = original;
+            this.err = err;
+        }
+
+        private PrintStream target() {
+            InJvmProcess process = current();
+            if (process == null) {
+                return original;
+            }
+            return err ? process.err : process.out;
+        }
+
+        @Override
+        public void flush() {
+            target().flush();
+        }
+
+        @Override
+        public void close() {
+            target().close();
+        }
+
+        @Override
+        public boolean checkError() {
+            return target().checkError();
+        }
+
+        @Override
+        public void write(int b) {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) {
+            target().write(buf, off, len);
+        }
+
+        @Override
+        public void print(boolean b) {
+            target().print(b);
+        }
+
+        @Override
+        public void print(char c) {
+            target().print(c);
+        }
+
+        @Override
+        public void print(int i) {
+            target().print(i);
+        }
+
+        @Override
+        public void print(long l) {
+            target().print(l);
+        }
+
+        @Override
+        public void print(float f) {
+            target().print(f);
+        }
+
+        @Override
+        public void print(double d) {
+            target().print(d);
+        }
+
+        @Override
+        public void print(char[] s) {
+            target().print(s);
+        }
+
+        @Override
+        public void print(String s) {
+            target().print(s);
+        }
+
+        @Override
+        public void print(Object obj) {
+            target().print(obj);
+        }
+
+        @Override
+        public void println() {
+            target().println();
+        }
+
+        @Override
+        public void println(boolean x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(char x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(int x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(long x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(float x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(double x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(char[] x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(String x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(Object x) {
+            target().println(x);
+        }
+
+        @Override
+        public PrintStream printf(String format, Object... args) {
+            target().printf(format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream printf(Locale l, String format, Object... args) {
+            target().printf(l, format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream format(String format, Object... args) {
+            target().format(format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream format(Locale l, String format, Object... args) {
+            target().format(l, format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(CharSequence csq) {
+            target().append(csq);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(CharSequence csq, int start, int end) {
+            target().append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(char c) {
+            target().append(c);
+            return this;
+        }
+    }
+
+    private static final class RoutingInputStream extends InputStream {
+        private final InputStream original;
+
+        RoutingInputStream(InputStream original) {
+            this.original = original;
+        }
+
+        private InputStream target() {
+            InJvmProcess process = current();
+            return process == null ? original : process.in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return target().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return target().read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return target().skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return target().available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            target().close();
+        }
+    }
+
+    private static final class RoutingProperties extends Properties {
+        private static final long serialVersionUID = 1L;
+
+        private final Properties original;
+
+        RoutingProperties(Properties original) {
+            this.original = original;
+            putAll(original);
+        }
+
+        /**
+         * Copy the JVM's properties, including any set since they were routed, back into the original Properties.
+         * @return the original Properties
+         */
+        synchronized Properties restore() {
+            original.clear();
+            for (Map.Entry<Object, Object> entry : super.entrySet()) {
+                original.put(entry.getKey(), entry.getValue());
+            }
+            return original;
+        }
+
+        @Override
+        public String getProperty(String key) {
+            InJvmProcess process = current();
+            if (process != null) {
+                String value = process.sysProps.get(key);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return super.getProperty(key);
+        }
+
+        @Override
+        public String getProperty(String key, String defaultValue) {
+            String value = getProperty(key);
+            return value == null ? defaultValue : value;
+        }
+
+        @Override
+        public Object get(Object key) {
+            InJvmProcess process = current();
+            if (process != null) {
+                String value = process.sysProps.get(key);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return super.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            InJvmProcess process = current();
+            return (process != null && process.sysProps.containsKey(key)) || super.containsKey(key);
+        }
+
+        @Override
+        public Object setProperty(String key, String value) {
+            InJvmProcess process = current();
+            if (process != null) {
+                return process.sysProps.put(key, value);
+            }
+            return super.setProperty(key, value);
+        }
+
+        @Override
+        public Set<String> stringPropertyNames() {
+            InJvmProcess process = current();
+            if (process == null) {
+                return super.stringPropertyNames();
+            }
+            Set<String> names = new HashSet<String>(super.stringPropertyNames());
+            names.addAll(process.sysProps.keySet());
+            return Collections.unmodifiableSet(names);
+        }
+
+        @Override
+        public Enumeration<?> propertyNames() {
+            InJvmProcess process = current();
+            if (process == null) {
+                return super.propertyNames();
+            }
+            return Collections.enumeration(stringPropertyNames());
+        }
+
+        @Override
+        public Set<Object> keySet() {
+            InJvmProcess process = current();
+            if (process == null) {
+                return super.keySet();
+            }
+            return Collections.unmodifiableSet(processView(process).keySet());
+        }
+
+        @Override
+        public Set<Map.Entry<Object, Object>> entrySet() {
+            InJvmProcess process = current();
+            if (process == null) {
+                return super.entrySet();
+            }
+            return Collections.unmodifiableSet(processView(process).entrySet());
+        }
+
+        /**
+         * @return a snapshot of the properties that the process sees
+         */
+        private synchronized Map<Object, Object> processView(InJvmProcess process) {
+            Map<Object, Object> view = new HashMap<Object, Object>();
+            for (Map.Entry<Object, Object> entry : super.entrySet()) {
+                view.put(entry.getKey(), entry.getValue());
+            }
+            view.putAll(process.sysProps);
+            return view;
+        }
+    }
+
+}
@@ -1,9 +1,12 @@
 package com.github.cb372.util.process;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Author: chris
@@ -16,6 +19,7 @@ public abstract class JavaCommandBuilder<T extends JavaCommandBuilder<T>> {
     protected List<String> jvmArgs = new ArrayList<String>();
     protected List<String> args = new ArrayList<String>();
     protected String classpath = System.getProperty("java.class.path");
+    protected File classDataSharingCacheDir = null;
 
     protected JavaCommandBuilder(Class<T> subclass) {
         this.subclass = subclass;
@@ -144,6 +148,46 @@ public abstract class JavaCommandBuilder<T extends JavaCommandBuilder<T>> {
         return subclass.cast(this);
     }
 
+    /**
+     * Speed up the startup of the child JVM using application class-data sharing,
+     * keeping the archives in a directory under java.io.tmpdir that is private to the current user.
+     *
+     * @return builder
+     * @see #withClassDataSharing(File)
+     */
+    public T withClassDataSharing() {
+        return withClassDataSharing(
+                new File(System.getProperty("java.io.tmpdir"), "externalized-cds-" + System.getProperty("user.name")));
+    }
+
+    /**
+     * <p>
+     * Speed up the startup of the child JVM using application class-data sharing (AppCDS).
+     * </p>
+     * <p>
+     * The first launch of a given main class and classpath records the classes that the JVM loads.
+     * A later launch builds an archive of those classes in the background,
+     * and launches after that load classes from the archive instead of the jars.
+     * Archives are keyed on the JDK version, JVM arguments, main class and classpath,
+     * and the JVM falls back to normal class loading if an archive cannot be used.
+     * </p>
+     * <p>
+     * This requires JDK 10 or newer, and a classpath made up only of jars.
+     * Otherwise it has no effect.
+     * </p>
+     * <p>
+     * The cache directory is created with owner-only permissions if it does not exist.
+     * Class-data sharing is not used if the directory belongs to another user or other users can write to it.
+     * </p>
+     *
+     * @param cacheDir directory in which to keep the archives
+     * @return builder
+     */
+    public T withClassDataSharing(File cacheDir) {
+        this.classDataSharingCacheDir = cacheDir;
+        return subclass.cast(this);
+    }
+
     private String appendClasspathElement(String classpath, String element) {
         if (classpath.isEmpty()) {
             return element;
@@ -158,7 +202,9 @@ public abstract class JavaCommandBuilder<T extends JavaCommandBuilder<T>> {
      * @return builder
      */
     public WithMainClass mainClass(String mainClass) {
-        return new WithMainClass(javaHome, jvmArgs, args, classpath, mainClass);
+        WithMainClass builder = new WithMainClass(javaHome, jvmArgs, args, classpath, mainClass);
+        builder.classDataSharingCacheDir = classDataSharingCacheDir;
+        return builder;
     }
 
     /**
@@ -167,7 +213,7 @@ public abstract class JavaCommandBuilder<T extends JavaCommandBuilder<T>> {
      * @return builder
      */
     public WithMainClass mainClass(Class<?> mainClass) {
-        return new WithMainClass(javaHome, jvmArgs, args, classpath, mainClass.getCanonicalName());
+        return mainClass(mainClass.getCanonicalName());
     }
 
     static final class WithoutMainClass extends JavaCommandBuilder<WithoutMainClass> {
@@ -178,6 +224,7 @@ public abstract class JavaCommandBuilder<T extends JavaCommandBuilder<T>> {
 
     public static final class WithMainClass extends JavaCommandBuilder<WithMainClass> implements ProcessBuilderProvider {
         private String mainClass;
+        private boolean inThisJvm = false;
 
         public WithMainClass(File javaHome,
                              List<String> jvmArgs,
@@ -200,6 +247,67 @@ public abstract class JavaCommandBuilder<T extends JavaCommandBuilder<T>> {
             return this;
         }
 
+        /**
+         * <p>
+         * Run the main class inside the current JVM instead of forking a new one.
+         * This avoids the cost of starting a JVM, which is large compared to the run time of a small tool.
+         * </p>
+         * <p>
+         * The class is loaded from the classpath by a new class loader, so it has its own copy
+         * of all application classes. Its main method runs in a new thread group, and the threads
+         * in that group, which by default include any threads it starts, have their own System.out, System.err and System.in,
+         * which are connected to the process's stdout, stderr and stdin as usual.
+         * System properties set with {@link #withSysProp(String, String)} or as "-D" JVM arguments
+         * are visible only to the process. Other JVM arguments, the java home,
+         * and the process's working directory and environment are ignored.
+         * </p>
+         * <p>
+         * The process exits when main has returned and all of its non-daemon threads have finished.
+         * The exit code is 0, or 1 if main threw an exception.
+         * The class must not call System.exit(), as that would stop the current JVM.
+         * </p>
+         *
+         * @return builder
+         */
+        public WithMainClass inThisJvm() {
+            this.inThisJvm = true;
+            return this;
+        }
+
+        /**
+         * @return a starter that runs the main class in this JVM, or null to fork a new JVM
+         */
+        ProcessStarter processStarter() {
+            if (!inThisJvm) {
+                return null;
+            }
+            final String classpath = this.classpath;
+            final String mainClass = this.mainClass;
+            final List<String> args = new ArrayList<String>(this.args);
+            final Map<String, String> sysProps = sysProps();
+            return new ProcessStarter() {
+                @Override
+                public Process start(ProcessBuilder processBuilder) throws IOException {
+                    return new InJvmProcess(classpath, mainClass, args, sysProps, processBuilder).start();
+                }
+            };
+        }
+
+        private Map<String, String> sysProps() {
+            Map<String, String> sysProps = new HashMap<String, String>();
+            for (String arg : jvmArgs) {
+                if (arg.startsWith("-D")) {
+                    int eq = arg.indexOf('=');
+                    if (eq == -1) {
+                        sysProps.put(arg.substring(2), "");
+                    } else {
+                        sysProps.put(arg.substring(2, eq), arg.substring(eq + 1));
+                    }
+                }
+            }
+            return sysProps;
+        }
+
         @Override
         public ProcessBuilder getProcessBuilder() {
             List<String> cmd = new ArrayList<String>();
@@ -209,6 +317,10 @@ public abstract class JavaCommandBuilder<T extends JavaCommandBuilder<T>> {
             for (String arg : jvmArgs) {
                 cmd.add(arg);
             }
+            if (classDataSharingCacheDir != null && !inThisJvm) {
+                ClassDataSharing cds = new ClassDataSharing(classDataSharingCacheDir);
+                cmd.addAll(cds.jvmArgs(javaHome, jvmArgs, classpath, mainClass));
+            }
             cmd.add(mainClass);
             for (String arg : args) {
                 cmd.add(arg);
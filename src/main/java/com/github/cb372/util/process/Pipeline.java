@@ -0,0 +1,251 @@
+package com.github.cb372.util.process;
+
+import com.github.cb372.util.stream.StreamProcessingExecutors;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.github.cb372.util.process.StreamProcessing.consume;
+
+/**
+ * <p>
+ * A pipeline of processes, like {@code cmd1 | cmd2 | cmd3} in a shell.
+ * Each stage's stdout is connected to the next stage's stdin.
+ * </p>
+ * <p>
+ * On Java 9 and newer, stages are connected with OS pipes (using ProcessBuilder.startPipeline),
+ * so the data passed between them never enters the JVM.
+ * On older JVMs, or if any stage runs {@link JavaCommandBuilder.WithMainClass#inThisJvm() in this JVM},
+ * the data is copied between stages by tasks on the
+ * {@link StreamProcessingExecutors#sharedPool() shared pool}.
+ * </p>
+ * <p>
+ * Each stage's stderr is processed as configured on that stage's builder.
+ * Only the last stage's stdout is processed, and only the first stage can have its stdin fed
+ * with {@link ExternalProcessBuilder#feedStdIn(java.io.File) feedStdIn(...)}.
+ * </p>
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class Pipeline {
+    private static final int BUFFER_SIZE = 65536;
+    private static final Method START_PIPELINE = findStartPipelineMethod();
+
+    private final List<ExternalProcessBuilder<?>> stages = new ArrayList<ExternalProcessBuilder<?>>();
+
+    Pipeline(List<ExternalProcessBuilder.UnspecifiedStdOut> stages) {
+        this.stages.addAll(stages);
+    }
+
+    /**
+     * Add another stage.
+     *
+     * @param stage the stage's command
+     * @return pipeline
+     */
+    public Pipeline then(ExternalProcessBuilder.UnspecifiedStdOut stage) {
+        stages.add(stage);
+        return this;
+    }
+
+    /**
+     * Set the last stage, whose stdout is discarded.
+     *
+     * @param lastStage the last stage's command
+     * @return pipeline
+     */
+    public WithLastStage<TextCollectingExternalProcess> to(ExternalProcessBuilder.UnspecifiedStdOut lastStage) {
+        return to(lastStage.processStdOut(consume().asText()));
+    }
+
+    /**
+     * Set the last stage, whose stdout is processed as text.
+     *
+     * @param lastStage the last stage's command
+     * @return pipeline
+     */
+    public WithLastStage<TextCollectingExternalProcess> to(final ExternalProcessBuilder.TextStdOut lastStage) {
+        return new WithLastStage<TextCollectingExternalProcess>(stages, lastStage) {
+            @Override
+            void checkLastStage() {
+                lastStage.checkStdOutLines();
+            }
+
+            @Override
+            TextCollectingExternalProcess startLastStage(Process process) {
+                return lastStage.start(process);
+            }
+        };
+    }
+
+    /**
+     * Set the last stage, whose stdout is processed as binary.
+     *
+     * @param lastStage the last stage's command
+     * @return pipeline
+     */
+    public WithLastStage<BinaryOutputCollectingExternalProcess> to(final ExternalProcessBuilder.BinaryStdOut lastStage) {
+        return new WithLastStage<BinaryOutputCollectingExternalProcess>(stages, lastStage) {
+            @Override
+            BinaryOutputCollectingExternalProcess startLastStage(Process process) {
+                return lastStage.start(process);
+            }
+        };
+    }
+
+    public abstract static class WithLastStage<P extends ExternalProcess> {
+        private final List<ExternalProcessBuilder<?>> stages;
+
+        private WithLastStage(List<ExternalProcessBuilder<?>> stages, ExternalProcessBuilder<?> lastStage) {
+            this.stages = new ArrayList<ExternalProcessBuilder<?>>(stages);
+            this.stages.add(lastStage);
+        }
+
+        /**
+         * Check the last stage's settings before any process is launched.
+         */
+        void checkLastStage() {
+        }
+
+        abstract P startLastStage(Process process);
+
+        /**
+         * Start all the processes in the pipeline.
+         * @return the started pipeline
+         * @throws IOException if any of the processes failed to start, in which case none of them are left running
+         */
+        public PipelineProcess<P> start() throws IOException {
+            for (ExternalProcessBuilder<?> stage : stages.subList(1, stages.size())) {
+                if (stage.stdinSource != null) {
+                    throw new IllegalArgumentException("Only the first stage of a pipeline can have its stdin fed");
+                }
+            }
+            checkLastStage();
+
+            ExternalProcessBuilder<?> first = stages.get(0);
+            List<ProcessBuilder> launchSettings = launchSettings(stages);
+            boolean redirected = first.redirectStdIn(launchSettings.get(0));
+            List<Process> processes = launch(stages, launchSettings);
+            first.feedStdIn(processes.get(0), redirected);
+
+            int last = stages.size() - 1;
+            List<ExternalProcess> started = new ArrayList<ExternalProcess>();
+            for (int i = 0; i < last; i++) {
+                started.add(stages.get(i).startStage(processes.get(i)));
+            }
+            P lastStage = startLastStage(processes.get(last));
+            started.add(lastStage);
+            return new PipelineProcess<P>(Collections.unmodifiableList(started), lastStage);
+        }
+    }
+
+    /**
+     * @return a copy of each stage's process builder, to start the stage from
+     */
+    private static List<ProcessBuilder> launchSettings(List<ExternalProcessBuilder<?>> stages) {
+        List<ProcessBuilder> launchSettings = new ArrayList<ProcessBuilder>();
+        for (int i = 0; i < stages.size(); i++) {
+            launchSettings.add(stages.get(i).copyProcessBuilder(i == stages.size() - 1));
+        }
+        return launchSettings;
+    }
+
+    private static List<Process> launch(List<ExternalProcessBuilder<?>> stages,
+                                        List<ProcessBuilder> launchSettings) throws IOException {
+        boolean osPipes = START_PIPELINE != null;
+        for (ExternalProcessBuilder<?> stage : stages) {
+            osPipes &= stage.processStarter == null;
+        }
+        if (osPipes) {
+            return startPipeline(launchSettings);
+        }
+
+        List<Process> processes = new ArrayList<Process>();
+        try {
+            for (int i = 0; i < stages.size(); i++) {
+                processes.add(stages.get(i).launch(launchSettings.get(i)));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Process process : processes) {
+                process.destroy();
+            }
+            throw e;
+        }
+        for (int i = 0; i < processes.size() - 1; i++) {
+            copy(processes.get(i).getInputStream(), processes.get(i + 1).getOutputStream());
+        }
+        return processes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Process> startPipeline(List<ProcessBuilder> processBuilders) throws IOException {
+        try {
+            return (List<Process>) START_PIPELINE.invoke(null, processBuilders);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Copy one stage's stdout to the next stage's stdin.
+     * If the next stage stops reading, the previous stage's stdout is closed,
+     * so it will get a broken pipe when it next writes, as it would in a shell.
+     */
+    private static void copy(final InputStream from, final OutputStream to) {
+        StreamProcessingExecutors.sharedPool().execute(new Runnable() {
+            @Override
+            public void run() {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                try {
+                    int bytesRead;
+                    while ((bytesRead = from.read(buffer)) != -1) {
+                        to.write(buffer, 0, bytesRead);
+                        to.flush();
+                    }
+                } catch (IOException e) {
+                    // one of the stages has gone away
+                } finally {
+                    closeQuietly(to);
+                    closeQuietly(from);
+                }
+            }
+        });
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * ProcessBuilder.startPipeline() is only available on Java 9 and newer.
+     */
+    private static Method findStartPipelineMethod() {
+        try {
+            return ProcessBuilder.class.getMethod("startPipeline", List.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+}
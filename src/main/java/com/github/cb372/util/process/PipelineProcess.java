@@ -0,0 +1,150 @@
+package com.github.cb372.util.process;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * A running {@link Pipeline}.
+ * </p>
+ * <p>
+ * As a whole, it behaves like a pipeline in a shell: stdin is the first stage's stdin,
+ * and the exit value is the last stage's exit value, available once every stage has exited.
+ * The individual stages and their exit values are also available.
+ * </p>
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class PipelineProcess<P extends ExternalProcess> implements ExternalProcess {
+    private final List<ExternalProcess> stages;
+    private final P lastStage;
+    private final ProcessFuture<PipelineProcess<P>> completion = new ProcessFuture<PipelineProcess<P>>();
+    private final AtomicBoolean watching = new AtomicBoolean(false);
+
+    PipelineProcess(List<ExternalProcess> stages, P lastStage) {
+        this.stages = stages;
+        this.lastStage = lastStage;
+    }
+
+    /**
+     * @return all the stages of the pipeline, in order
+     */
+    public List<ExternalProcess> getStages() {
+        return stages;
+    }
+
+    /**
+     * @return the last stage of the pipeline, whose stdout was processed
+     */
+    public P getLastStage() {
+        return lastStage;
+    }
+
+    /**
+     * Wait for every stage to exit.
+     * @return the exit values of all the stages, in order
+     * @throws InterruptedException
+     */
+    public List<Integer> waitForAll() throws InterruptedException {
+        List<Integer> exitValues = new ArrayList<Integer>();
+        for (ExternalProcess stage : stages) {
+            exitValues.add(stage.waitFor());
+        }
+        return exitValues;
+    }
+
+    /**
+     * @return the exit values of all the stages, in order
+     * @throws IllegalThreadStateException if any stage has not exited
+     */
+    public List<Integer> exitValues() {
+        List<Integer> exitValues = new ArrayList<Integer>();
+        for (ExternalProcess stage : stages) {
+            exitValues.add(stage.exitValue());
+        }
+        return exitValues;
+    }
+
+    @Override
+    public OutputStream getStdIn() {
+        return stages.get(0).getStdIn();
+    }
+
+    /**
+     * Wait for every stage to exit.
+     * @return the exit value of the last stage
+     * @throws InterruptedException
+     */
+    @Override
+    public int waitFor() throws InterruptedException {
+        List<Integer> exitValues = waitForAll();
+        return exitValues.get(exitValues.size() - 1);
+    }
+
+    /**
+     * @return the exit value of the last stage
+     * @throws IllegalThreadStateException if any stage has not exited
+     */
+    @Override
+    public int exitValue() {
+        List<Integer> exitValues = exitValues();
+        return exitValues.get(exitValues.size() - 1);
+    }
+
+    /**
+     * Kill every stage.
+     */
+    @Override
+    public void destroy() {
+        for (ExternalProcess stage : stages) {
+            stage.destroy();
+        }
+    }
+
+    /**
+     * Get the last lines that the last stage sent to stderr.
+     * Use {@link #getStages()} to get the stderr of other stages.
+     */
+    @Override
+    public List<String> getStdErrTail() throws InterruptedException {
+        return lastStage.getStdErrTail();
+    }
+
+    /**
+     * Get the last lines that the last stage sent to stderr.
+     * Use {@link #getStages()} to get the stderr of other stages.
+     */
+    @Override
+    public List<String> getStdErrTail(long time, TimeUnit timeUnit) throws InterruptedException {
+        return lastStage.getStdErrTail(time, timeUnit);
+    }
+
+    /**
+     * Get a future that completes once every stage has completed.
+     *
+     * @return the future completion of the whole pipeline
+     */
+    @Override
+    public ProcessFuture<PipelineProcess<P>> completion() {
+        if (watching.compareAndSet(false, true)) {
+            final AtomicInteger remaining = new AtomicInteger(stages.size());
+            for (ExternalProcess stage : stages) {
+                stage.completion().addCallback(new ProcessFuture.Callback<ExternalProcess>() {
+                    @Override
+                    public void onComplete(ExternalProcess process) {
+                        if (remaining.decrementAndGet() == 0) {
+                            completion.complete(PipelineProcess.this);
+                        }
+                    }
+                });
+            }
+        }
+        return completion;
+    }
+
+}
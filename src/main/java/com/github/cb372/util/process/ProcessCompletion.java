@@ -0,0 +1,59 @@
+package com.github.cb372.util.process;
+
+import com.github.cb372.util.stream.ProcessExitWatcher;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts down the things that have to happen before a process is complete:
+ * each output stream finishing, the process exiting, and the process wrapper being created.
+ * Exit detection only starts once somebody asks for the future.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+final class ProcessCompletion<P extends ExternalProcess> {
+    private final Process process;
+    private final ProcessFuture<P> future = new ProcessFuture<P>();
+    private final AtomicInteger remaining;
+    private final AtomicBoolean watching = new AtomicBoolean(false);
+    private volatile P wrapper;
+
+    ProcessCompletion(Process process, int streams) {
+        this.process = process;
+        this.remaining = new AtomicInteger(streams + 2);
+    }
+
+    Runnable streamFinished() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                countDown();
+            }
+        };
+    }
+
+    void bind(P wrapper) {
+        this.wrapper = wrapper;
+        countDown();
+    }
+
+    ProcessFuture<P> future() {
+        if (watching.compareAndSet(false, true)) {
+            ProcessExitWatcher.shared().watch(process, new Runnable() {
+                @Override
+                public void run() {
+                    countDown();
+                }
+            });
+        }
+        return future;
+    }
+
+    private void countDown() {
+        if (remaining.decrementAndGet() == 0) {
+            future.complete(wrapper);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.cb372.util.process;
+
+import com.github.cb372.util.stream.ProcessExitWatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The future completion of an external process.
+ *
+ * It completes once the process has exited and all of its output streams have been fully processed,
+ * so the process's exit value and any collected output can then be read without blocking.
+ *
+ * Exits are detected by the {@link ProcessExitWatcher#shared() shared exit watcher},
+ * so waiting for many processes does not need a thread per process.
+ * Completion cannot be cancelled; use {@link ExternalProcess#destroy()} to kill the process.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class ProcessFuture<P extends ExternalProcess> implements Future<P> {
+
+    /**
+     * Called when a process has completed.
+     */
+    public interface Callback<P> {
+        public void onComplete(P process);
+    }
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final List<Callback<? super P>> callbacks = new ArrayList<Callback<? super P>>();
+    private P process;
+
+    ProcessFuture() {}
+
+    /**
+     * Run a callback when the process completes, or immediately if it has already completed.
+     * The callback runs on whichever thread completes the process, so it should be quick.
+     * Anything it throws once the process has completed is passed to that thread's uncaught exception handler,
+     * and does not stop the other callbacks from running.
+     *
+     * @param callback callback
+     * @return this future
+     */
+    public ProcessFuture<P> addCallback(Callback<? super P> callback) {
+        P completed;
+        synchronized (this) {
+            if (process == null) {
+                callbacks.add(callback);
+                return this;
+            }
+            completed = process;
+        }
+        callback.onComplete(completed);
+        return this;
+    }
+
+    void complete(P process) {
+        List<Callback<? super P>> toRun;
+        synchronized (this) {
+            this.process = process;
+            toRun = new ArrayList<Callback<? super P>>(callbacks);
+            callbacks.clear();
+        }
+        done.countDown();
+        for (Callback<? super P> callback : toRun) {
+            try {
+                callback.onComplete(process);
+            } catch (RuntimeException | Error e) {
+                Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+            }
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public P get() throws InterruptedException, ExecutionException {
+        done.await();
+        return result();
+    }
+
+    @Override
+    public P get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return result();
+    }
+
+    private synchronized P result() {
+        return process;
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.cb372.util.process;
+
+import java.io.IOException;
+
+/**
+ * Starts a process described by a ProcessBuilder,
+ * for processes that are not started by {@link ProcessBuilder#start()}.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+interface ProcessStarter {
+
+    Process start(ProcessBuilder processBuilder) throws IOException;
+
+}
@@ -0,0 +1,150 @@
+package com.github.cb372.util.process;
+
+import com.github.cb372.util.stream.IOExceptionHandler;
+import com.github.cb372.util.stream.StreamProcessingExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Data to send to a process's stdin.
+ *
+ * Files are connected directly to the process's stdin where possible,
+ * so the data never passes through the JVM.
+ * Otherwise the data is written by a task on the
+ * {@link StreamProcessingExecutors#sharedPool() shared pool}, in large blocks,
+ * and stdin is closed once all of it has been written.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+abstract class StdInSource {
+    private static final int BLOCK_SIZE = 65536;
+
+    static final IOExceptionHandler LOGGING_HANDLER = new IOExceptionHandler() {
+        private final Logger logger = LoggerFactory.getLogger(StdInSource.class);
+
+        @Override
+        public void handle(IOException e) {
+            logger.warn("Failed to write to process's stdin", e);
+        }
+    };
+
+    static StdInSource of(final File file) {
+        return new StdInSource() {
+            @Override
+            boolean redirect(ProcessBuilder processBuilder) {
+                processBuilder.redirectInput(ProcessBuilder.Redirect.from(file));
+                return true;
+            }
+
+            @Override
+            void writeTo(OutputStream stdin) throws IOException {
+                copy(Files.newByteChannel(file.toPath()), stdin);
+            }
+        };
+    }
+
+    static StdInSource of(final Path path) {
+        if (path.getFileSystem() == FileSystems.getDefault()) {
+            return of(path.toFile());
+        }
+        return new StdInSource() {
+            @Override
+            void writeTo(OutputStream stdin) throws IOException {
+                copy(Files.newByteChannel(path), stdin);
+            }
+        };
+    }
+
+    static StdInSource of(final ReadableByteChannel channel) {
+        return new StdInSource() {
+            @Override
+            void writeTo(OutputStream stdin) throws IOException {
+                copy(channel, stdin);
+            }
+        };
+    }
+
+    static StdInSource of(ByteBuffer data) {
+        final ByteBuffer buffer = data.duplicate();
+        return new StdInSource() {
+            @Override
+            void writeTo(OutputStream stdin) throws IOException {
+                ByteBuffer remaining = buffer.duplicate();
+                if (remaining.hasArray()) {
+                    stdin.write(remaining.array(), remaining.arrayOffset() + remaining.position(), remaining.remaining());
+                    return;
+                }
+                byte[] block = new byte[Math.min(BLOCK_SIZE, remaining.remaining())];
+                while (remaining.hasRemaining()) {
+                    int n = Math.min(block.length, remaining.remaining());
+                    remaining.get(block, 0, n);
+                    stdin.write(block, 0, n);
+                }
+            }
+        };
+    }
+
+    /**
+     * Connect the source directly to the stdin of the process that will be started.
+     * @return false if the source cannot be read directly by the process
+     */
+    boolean redirect(ProcessBuilder processBuilder) {
+        return false;
+    }
+
+    /**
+     * Write all of the data.
+     */
+    abstract void writeTo(OutputStream stdin) throws IOException;
+
+    /**
+     * Start writing the data to the process's stdin, closing stdin when it has all been written.
+     */
+    void feed(Process process, final IOExceptionHandler ioExceptionHandler) {
+        final OutputStream stdin = process.getOutputStream();
+        StreamProcessingExecutors.sharedPool().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    try {
+                        writeTo(stdin);
+                    } finally {
+                        stdin.close();
+                    }
+                } catch (IOException e) {
+                    ioExceptionHandler.handle(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Copy a channel to the end, then close it.
+     * Blocks are written straight from the buffer's backing array,
+     * which the process's (buffered) stdin passes directly to the OS.
+     */
+    private static void copy(ReadableByteChannel channel, OutputStream stdin) throws IOException {
+        try {
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+            while (channel.read(block) != -1) {
+                if (block.position() > 0) {
+                    stdin.write(block.array(), 0, block.position());
+                    block.clear();
+                }
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+}
@@ -1,18 +1,47 @@
 package com.github.cb372.util.process;
 
 import com.github.cb372.util.stream.collector.TextOutputCollector;
+import com.github.cb372.util.stream.listener.text.LineIterator;
 
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
-public interface TextCollectingExternalProcess extends ExternalProcess, TextOutputCollector {}
+public interface TextCollectingExternalProcess extends ExternalProcess, TextOutputCollector {
 
-class TextCollectingJavaLangProcessWrapper extends JavaLangProcessWrapper implements TextCollectingExternalProcess {
+    /**
+     * Get the lines that the process sends to stdout, as they arrive.
+     *
+     * The iterator will be empty unless you explicitly called
+     * {@link com.github.cb372.util.process.ExternalProcessBuilder.TextStdOut#streamingStdOutLines(int)}
+     * when building the process.
+     *
+     * @return an iterator over stdout lines, which blocks until the next line is available
+     */
+    public LineIterator getStdOutLines();
+
+    @Override
+    public ProcessFuture<TextCollectingExternalProcess> completion();
+
+}
+
+class TextCollectingJavaLangProcessWrapper extends JavaLangProcessWrapper<TextCollectingExternalProcess>
+                                           implements TextCollectingExternalProcess {
     private final TextOutputCollector textOutputCollector;
+    private final LineIterator lines;
 
-    protected TextCollectingJavaLangProcessWrapper(Process process, TextOutputCollector textOutputCollector) {
-        super(process);
+    protected TextCollectingJavaLangProcessWrapper(Process process,
+                                                   TextOutputCollector errorCollector,
+                                                   ProcessCompletion<TextCollectingExternalProcess> completion,
+                                                   TextOutputCollector textOutputCollector,
+                                                   LineIterator lines) {
+        super(process, errorCollector, completion);
         this.textOutputCollector = textOutputCollector;
+        this.lines = lines;
+    }
+
+    @Override
+    public LineIterator getStdOutLines() {
+        return lines;
     }
 
     /**
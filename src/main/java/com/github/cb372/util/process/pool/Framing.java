@@ -0,0 +1,46 @@
+package com.github.cb372.util.process.pool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * How messages are separated from each other on a worker's stdin and stdout.
+ * See {@link Framings} for the provided implementations.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public interface Framing {
+
+    /**
+     * Write a message, framed so that the worker can tell where it ends.
+     *
+     * @param message message
+     * @param out the worker's stdin
+     * @throws IOException if the message could not be written
+     */
+    public void writeFrame(byte[] message, OutputStream out) throws IOException;
+
+    /**
+     * @return a new reader, to split one worker's stdout into messages
+     */
+    public FrameReader newReader();
+
+    /**
+     * Splits a stream of bytes into messages. Keeps any incomplete message until more bytes arrive.
+     */
+    public interface FrameReader {
+
+        /**
+         * @param b buffer
+         * @param offset start of data in buffer
+         * @param len length of data
+         * @param frames list to add any completed messages to
+         * @throws IOException if the data is not validly framed
+         */
+        public void read(byte[] b, int offset, int len, List<byte[]> frames) throws IOException;
+
+    }
+
+}
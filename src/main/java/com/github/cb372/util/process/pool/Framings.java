@@ -0,0 +1,157 @@
+package com.github.cb372.util.process.pool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The provided {@link Framing} implementations.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class Framings {
+
+    private Framings() {}
+
+    /**
+     * One message per line. Messages are terminated by '\n' when written,
+     * and a '\r' before the '\n' is removed when read.
+     * Messages must not contain newlines.
+     *
+     * @return line framing
+     */
+    public static Framing lines() {
+        return new DelimiterFraming((byte) '\n', true);
+    }
+
+    /**
+     * Messages are terminated by the given byte, e.g. 0.
+     * Messages must not contain the delimiter.
+     *
+     * @param delimiter delimiter
+     * @return delimiter framing
+     */
+    public static Framing delimitedBy(byte delimiter) {
+        return new DelimiterFraming(delimiter, false);
+    }
+
+    /**
+     * Each message is preceded by its length, as a 4-byte big-endian integer.
+     *
+     * @param maxLength the longest message that will be accepted from a worker, in bytes
+     * @return length-prefix framing
+     */
+    public static Framing lengthPrefixed(int maxLength) {
+        return new LengthPrefixFraming(maxLength);
+    }
+
+    private static final class DelimiterFraming implements Framing {
+        private final byte delimiter;
+        private final boolean stripCR;
+
+        DelimiterFraming(byte delimiter, boolean stripCR) {
+            this.delimiter = delimiter;
+            this.stripCR = stripCR;
+        }
+
+        @Override
+        public void writeFrame(byte[] message, OutputStream out) throws IOException {
+            out.write(message);
+            out.write(delimiter);
+        }
+
+        @Override
+        public FrameReader newReader() {
+            return new FrameReader() {
+                private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+
+                @Override
+                public void read(byte[] b, int offset, int len, List<byte[]> frames) {
+                    int from = offset;
+                    for (int i = offset; i < offset + len; i++) {
+                        if (b[i] == delimiter) {
+                            frame.write(b, from, i - from);
+                            frames.add(complete());
+                            from = i + 1;
+                        }
+                    }
+                    frame.write(b, from, offset + len - from);
+                }
+
+                private byte[] complete() {
+                    byte[] bytes = frame.toByteArray();
+                    frame.reset();
+                    if (stripCR && bytes.length > 0 && bytes[bytes.length - 1] == '\r') {
+                        return Arrays.copyOf(bytes, bytes.length - 1);
+                    }
+                    return bytes;
+                }
+            };
+        }
+    }
+
+    private static final class LengthPrefixFraming implements Framing {
+        private final int maxLength;
+
+        LengthPrefixFraming(int maxLength) {
+            if (maxLength < 0) {
+                throw new IllegalArgumentException("Maximum length must not be negative");
+            }
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public void writeFrame(byte[] message, OutputStream out) throws IOException {
+            int length = message.length;
+            out.write(new byte[] {
+                    (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length
+            });
+            out.write(message);
+        }
+
+        @Override
+        public FrameReader newReader() {
+            return new FrameReader() {
+                private final byte[] header = new byte[4];
+                private int headerBytes = 0;
+                private byte[] frame = null;
+                private int frameBytes = 0;
+
+                @Override
+                public void read(byte[] b, int offset, int len, List<byte[]> frames) throws IOException {
+                    int end = offset + len;
+                    while (offset < end) {
+                        if (frame == null) {
+                            int n = Math.min(header.length - headerBytes, end - offset);
+                            System.arraycopy(b, offset, header, headerBytes, n);
+                            headerBytes += n;
+                            offset += n;
+                            if (headerBytes < header.length) {
+                                return;
+                            }
+                            int length = ((header[0] & 0xff) << 24) | ((header[1] & 0xff) << 16)
+                                    | ((header[2] & 0xff) << 8) | (header[3] & 0xff);
+                            if (length < 0 || length > maxLength) {
+                                throw new IOException("Invalid message length from worker: " + (length & 0xffffffffL));
+                            }
+                            frame = new byte[length];
+                            frameBytes = 0;
+                            headerBytes = 0;
+                        }
+                        int n = Math.min(frame.length - frameBytes, end - offset);
+                        System.arraycopy(b, offset, frame, frameBytes, n);
+                        frameBytes += n;
+                        offset += n;
+                        if (frameBytes == frame.length) {
+                            frames.add(frame);
+                            frame = null;
+                        }
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.cb372.util.process.pool;
+
+import com.github.cb372.util.process.BinaryOutputCollectingExternalProcess;
+import com.github.cb372.util.process.Command;
+import com.github.cb372.util.process.ProcessBuilderProvider;
+import com.github.cb372.util.stream.IOExceptionHandler;
+import com.github.cb372.util.stream.StreamProcessingExecutors;
+import com.github.cb372.util.stream.listener.binary.ByteStreamListener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.github.cb372.util.process.StreamProcessing.consume;
+
+/**
+ * One process in a {@link WorkerPool}.
+ * Replies are split out of the process's stdout by its stream processing thread,
+ * and handed to the requesting thread through a queue.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+final class Worker implements ByteStreamListener, IOExceptionHandler {
+    private static final Object END = new Object();
+    private static final int STDERR_TAIL_LINES = 20;
+
+    private final Framing framing;
+    private final Framing.FrameReader reader;
+    private final BlockingQueue<Object> replies = new LinkedBlockingQueue<Object>();
+    private final List<byte[]> frames = new ArrayList<byte[]>();
+    private BinaryOutputCollectingExternalProcess process;
+    private int requestCount = 0;
+
+    Worker(Framing framing) {
+        this.framing = framing;
+        this.reader = framing.newReader();
+    }
+
+    void start(ProcessBuilderProvider command, String threadName) throws IOException {
+        process = Command.command(command)
+                .processStdOut(consume().asBinary()
+                        .withListener(this)
+                        .withIOExceptionHandler(this)
+                        .inDaemonThread()
+                        .withThreadName(threadName))
+                .processStdErr(consume().asText().inDaemonThread().withThreadName(threadName + "-stderr"))
+                .collectStdErrTail(STDERR_TAIL_LINES)
+                .start();
+    }
+
+    @Override
+    public void onBytes(byte[] b, int offset, int len) {
+        try {
+            reader.read(b, offset, len, frames);
+        } catch (IOException e) {
+            replies.add(e);
+        }
+        replies.addAll(frames);
+        frames.clear();
+    }
+
+    @Override
+    public void onEndOfStream() {
+        replies.add(END);
+    }
+
+    @Override
+    public void handle(IOException e) {
+        replies.add(e);
+    }
+
+    /**
+     * Send a user's request and wait for the reply, counting it towards the worker's request count.
+     * If this fails, the worker must not be used again, as a late reply would be mistaken for the next one.
+     */
+    byte[] request(byte[] request, long timeout, TimeUnit unit) throws IOException, InterruptedException, TimeoutException {
+        requestCount++;
+        return call(request, timeout, unit);
+    }
+
+    /**
+     * Send a request and wait for the reply, without counting it, e.g. for a health check.
+     * If this fails, the worker must not be used again, as a late reply would be mistaken for the next one.
+     */
+    byte[] call(byte[] request, long timeout, TimeUnit unit) throws IOException, InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        send(request, deadline);
+
+        Object reply = replies.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (reply == null) {
+            throw new TimeoutException("Worker did not reply within " + timeout + " " + unit);
+        }
+        if (reply instanceof byte[]) {
+            return (byte[]) reply;
+        }
+        if (reply instanceof IOException) {
+            throw new IOException("Failed to read reply from worker", (IOException) reply);
+        }
+        replies.add(END);
+        throw new IOException("Worker exited before replying" + stderrTail());
+    }
+
+    /**
+     * Write the request in the shared stream processing pool, so that a worker that is not reading its stdin
+     * cannot block the caller past the deadline. If the write does not finish in time, the worker is destroyed,
+     * which also makes the blocked write fail.
+     */
+    private void send(final byte[] request, long deadline) throws IOException, InterruptedException, TimeoutException {
+        final OutputStream stdin = process.getStdIn();
+        FutureTask<Void> write = new FutureTask<Void>(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                framing.writeFrame(request, stdin);
+                stdin.flush();
+                return null;
+            }
+        });
+        StreamProcessingExecutors.sharedPool().execute(write);
+        try {
+            write.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            process.destroy();
+            throw new TimeoutException("Worker did not read the request in time");
+        } catch (InterruptedException e) {
+            process.destroy();
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to send request to worker", e.getCause());
+        }
+    }
+
+    /**
+     * @return number of user requests sent to this worker, not including health checks
+     */
+    int getRequestCount() {
+        return requestCount;
+    }
+
+    boolean hasExited() {
+        try {
+            process.exitValue();
+            return true;
+        } catch (IllegalThreadStateException e) {
+            return false;
+        }
+    }
+
+    void stop() {
+        try {
+            process.getStdIn().close();
+        } catch (IOException e) {
+            // ignore
+        }
+        process.destroy();
+    }
+
+    private String stderrTail() throws InterruptedException {
+        StringBuilder sb = new StringBuilder();
+        for (String line : process.getStdErrTail(100, TimeUnit.MILLISECONDS)) {
+            sb.append('\n').append(line);
+        }
+        return sb.length() == 0 ? "" : ". Last lines of stderr:" + sb;
+    }
+}
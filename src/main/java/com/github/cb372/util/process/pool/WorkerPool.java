@@ -0,0 +1,432 @@
+package com.github.cb372.util.process.pool;
+
+import com.github.cb372.util.process.ProcessBuilderProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of long-lived worker processes that each handle many requests,
+ * so that the cost of starting a process is not paid on every call.
+ *
+ * Each request is written to an idle worker's stdin, and the worker's reply is read from its stdout,
+ * using a {@link Framing} to tell where messages end. A worker must send exactly one reply per request.
+ *
+ * Workers are replaced if they exit, fail a request or a health check, or do not reply in time.
+ * They can also be recycled after a maximum number of requests.
+ * Replacement processes are started in the background, not by the thread that made the request.
+ *
+ * <pre>
+ * WorkerPool pool = WorkerPool.builder("mytool", "--serve")
+ *         .withSize(4)
+ *         .withFraming(Framings.lines())
+ *         .start();
+ * String reply = pool.request("hello");
+ * </pre>
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class WorkerPool implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(WorkerPool.class);
+    private static final long RESTART_DELAY_MILLIS = 1000;
+
+    private final ProcessBuilderProvider command;
+    private final Framing framing;
+    private final Charset charset;
+    private final int maxRequestsPerWorker;
+    private final long requestTimeoutNanos;
+    private final byte[] healthCheckRequest;
+
+    private final BlockingDeque<Worker> idle = new LinkedBlockingDeque<Worker>();
+    private final ScheduledExecutorService maintenance;
+    private final ScheduledExecutorService healthChecks;
+    private final AtomicInteger workerIds = new AtomicInteger();
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong timedOutRequests = new AtomicLong();
+    private final AtomicLong totalRequestNanos = new AtomicLong();
+    private final AtomicLong workersStarted = new AtomicLong();
+    private final AtomicLong workersRecycled = new AtomicLong();
+    private final AtomicLong workersReplaced = new AtomicLong();
+    private final AtomicLong failedHealthChecks = new AtomicLong();
+
+    private WorkerPool(Builder builder) {
+        this.command = builder.command;
+        this.framing = builder.framing;
+        this.charset = builder.charset;
+        this.maxRequestsPerWorker = builder.maxRequestsPerWorker;
+        this.requestTimeoutNanos = builder.requestTimeoutNanos;
+        this.healthCheckRequest = builder.healthCheckRequest;
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(daemonThreads("WorkerPool-maintenance"));
+        // health checks can wait a whole request timeout per worker, so they must not delay replacements
+        this.healthChecks = Executors.newSingleThreadScheduledExecutor(daemonThreads("WorkerPool-health-check"));
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * @param command the worker command and its arguments
+     * @return a builder for a pool of workers running the command
+     */
+    public static Builder builder(String... command) {
+        final List<String> commandLine = Arrays.asList(command);
+        return builder(new ProcessBuilderProvider() {
+            @Override
+            public ProcessBuilder getProcessBuilder() {
+                return new ProcessBuilder(commandLine);
+            }
+        });
+    }
+
+    /**
+     * @param command provides a new ProcessBuilder for each worker
+     * @return a builder for a pool of workers running the command
+     */
+    public static Builder builder(ProcessBuilderProvider command) {
+        return new Builder(command);
+    }
+
+    /**
+     * Send a request to an idle worker and wait for its reply.
+     * Waits for a worker to become idle, and then for the reply, each for at most the request timeout.
+     *
+     * @param message request
+     * @return reply
+     * @throws IOException if the worker failed to handle the request
+     * @throws TimeoutException if no worker became idle, or the worker did not reply, in time
+     * @throws InterruptedException
+     */
+    public byte[] request(byte[] message) throws IOException, TimeoutException, InterruptedException {
+        long start = System.nanoTime();
+        Worker worker;
+        try {
+            worker = acquire();
+        } catch (TimeoutException e) {
+            timedOutRequests.incrementAndGet();
+            requests.incrementAndGet();
+            totalRequestNanos.addAndGet(System.nanoTime() - start);
+            throw e;
+        }
+        boolean succeeded = false;
+        try {
+            byte[] reply = worker.request(message, requestTimeoutNanos, TimeUnit.NANOSECONDS);
+            succeeded = true;
+            return reply;
+        } catch (TimeoutException e) {
+            timedOutRequests.incrementAndGet();
+            throw e;
+        } catch (IOException e) {
+            failedRequests.incrementAndGet();
+            throw e;
+        } finally {
+            requests.incrementAndGet();
+            totalRequestNanos.addAndGet(System.nanoTime() - start);
+            release(worker, succeeded);
+        }
+    }
+
+    /**
+     * Send a request to an idle worker and wait for its reply,
+     * encoding and decoding the messages with the pool's charset.
+     *
+     * @see #request(byte[])
+     */
+    public String request(String message) throws IOException, TimeoutException, InterruptedException {
+        return new String(request(message.getBytes(charset)), charset);
+    }
+
+    /**
+     * @return a snapshot of the pool's counters
+     */
+    public WorkerPoolMetrics getMetrics() {
+        return new WorkerPoolMetrics(
+                requests.get(),
+                failedRequests.get(),
+                timedOutRequests.get(),
+                totalRequestNanos.get(),
+                workersStarted.get(),
+                workersRecycled.get(),
+                workersReplaced.get(),
+                failedHealthChecks.get(),
+                idle.size(),
+                busyWorkers.get());
+    }
+
+    /**
+     * Stop all workers. Busy workers are stopped when their current request finishes.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        maintenance.shutdownNow();
+        healthChecks.shutdownNow();
+        List<Worker> workers = new ArrayList<Worker>();
+        idle.drainTo(workers);
+        for (Worker worker : workers) {
+            worker.stop();
+        }
+    }
+
+    private Worker acquire() throws TimeoutException, InterruptedException {
+        long deadline = System.nanoTime() + requestTimeoutNanos;
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("WorkerPool has been closed");
+            }
+            Worker worker = idle.pollFirst(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (worker == null) {
+                throw new TimeoutException("No worker became available in time");
+            }
+            if (worker.hasExited()) {
+                replace(worker);
+                continue;
+            }
+            busyWorkers.incrementAndGet();
+            return worker;
+        }
+    }
+
+    private void release(Worker worker, boolean succeeded) {
+        busyWorkers.decrementAndGet();
+        if (closed) {
+            worker.stop();
+        } else if (!succeeded) {
+            replace(worker);
+        } else if (maxRequestsPerWorker > 0 && worker.getRequestCount() >= maxRequestsPerWorker) {
+            workersRecycled.incrementAndGet();
+            worker.stop();
+            startWorkerInBackground(0);
+        } else {
+            // most recently used first, so that idle workers stay warm
+            offerIdle(worker);
+        }
+    }
+
+    private void replace(Worker worker) {
+        workersReplaced.incrementAndGet();
+        worker.stop();
+        startWorkerInBackground(0);
+    }
+
+    private void startWorker() throws IOException {
+        Worker worker = new Worker(framing);
+        worker.start(command, "WorkerPool-worker-" + workerIds.incrementAndGet());
+        workersStarted.incrementAndGet();
+        offerIdle(worker);
+    }
+
+    /**
+     * Make a worker available. If the pool was closed in the meantime,
+     * close() may already have drained the idle workers, so stop the worker here instead.
+     */
+    private void offerIdle(Worker worker) {
+        idle.offerFirst(worker);
+        if (closed && idle.remove(worker)) {
+            worker.stop();
+        }
+    }
+
+    private void startWorkerInBackground(long delayMillis) {
+        if (closed) {
+            return;
+        }
+        maintenance.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    startWorker();
+                } catch (IOException e) {
+                    logger.warn("Failed to start worker process, will retry", e);
+                    startWorkerInBackground(RESTART_DELAY_MILLIS);
+                }
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Check each idle worker in turn, starting with the one that has been idle longest.
+     */
+    private void checkHealth() {
+        int toCheck = idle.size();
+        for (int i = 0; i < toCheck && !closed; i++) {
+            Worker worker = idle.pollLast();
+            if (worker == null) {
+                return;
+            }
+            if (isHealthy(worker)) {
+                offerIdle(worker);
+            } else {
+                failedHealthChecks.incrementAndGet();
+                replace(worker);
+            }
+        }
+    }
+
+    private boolean isHealthy(Worker worker) {
+        if (worker.hasExited()) {
+            return false;
+        }
+        if (healthCheckRequest == null) {
+            return true;
+        }
+        try {
+            worker.call(healthCheckRequest, requestTimeoutNanos, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Worker failed health check", e);
+        } catch (TimeoutException e) {
+            logger.warn("Worker failed health check", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    public static final class Builder {
+        private final ProcessBuilderProvider command;
+        private int size = Runtime.getRuntime().availableProcessors();
+        private Framing framing = Framings.lines();
+        private Charset charset = Charset.forName("UTF-8");
+        private int maxRequestsPerWorker = 0;
+        private long requestTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+        private byte[] healthCheckRequest = null;
+        private long healthCheckIntervalNanos = TimeUnit.SECONDS.toNanos(10);
+
+        private Builder(ProcessBuilderProvider command) {
+            this.command = command;
+        }
+
+        /**
+         * Set the number of workers. Default is the number of CPUs.
+         * @param size number of workers
+         * @return builder
+         */
+        public Builder withSize(int size) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("Pool size must be at least 1");
+            }
+            this.size = size;
+            return this;
+        }
+
+        /**
+         * Set how messages are framed. Default is one message per line.
+         * @param framing framing
+         * @return builder
+         */
+        public Builder withFraming(Framing framing) {
+            this.framing = framing;
+            return this;
+        }
+
+        /**
+         * Set the charset used by {@link WorkerPool#request(String)}. Default is UTF-8.
+         * @param charset charset
+         * @return builder
+         */
+        public Builder withCharset(Charset charset) {
+            this.charset = charset;
+            return this;
+        }
+
+        /**
+         * Replace each worker after it has handled the given number of requests,
+         * e.g. to limit the effect of memory leaks. By default workers are never recycled.
+         * @param maxRequests maximum number of requests per worker
+         * @return builder
+         */
+        public Builder withMaxRequestsPerWorker(int maxRequests) {
+            if (maxRequests <= 0) {
+                throw new IllegalArgumentException("Maximum requests must be at least 1");
+            }
+            this.maxRequestsPerWorker = maxRequests;
+            return this;
+        }
+
+        /**
+         * Set how long to wait for an idle worker, and then for its reply. Default is 30 seconds.
+         * @param timeout timeout
+         * @param unit units of timeout
+         * @return builder
+         */
+        public Builder withRequestTimeout(long timeout, TimeUnit unit) {
+            this.requestTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * Periodically send the given request to idle workers,
+         * replacing any that do not reply within the request timeout.
+         * Whether or not this is set, idle workers that have exited are replaced.
+         * @param request request, e.g. "ping"
+         * @return builder
+         */
+        public Builder withHealthCheck(byte[] request) {
+            this.healthCheckRequest = request;
+            return this;
+        }
+
+        /**
+         * Set how often idle workers are checked. Default is 10 seconds.
+         * @param interval interval
+         * @param unit units of interval
+         * @return builder
+         */
+        public Builder withHealthCheckInterval(long interval, TimeUnit unit) {
+            this.healthCheckIntervalNanos = unit.toNanos(interval);
+            return this;
+        }
+
+        /**
+         * Start the workers.
+         * @return the pool
+         * @throws IOException if a worker failed to start
+         */
+        public WorkerPool start() throws IOException {
+            final WorkerPool pool = new WorkerPool(this);
+            try {
+                for (int i = 0; i < size; i++) {
+                    pool.startWorker();
+                }
+            } catch (IOException e) {
+                pool.close();
+                throw e;
+            }
+            pool.healthChecks.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    pool.checkHealth();
+                }
+            }, healthCheckIntervalNanos, healthCheckIntervalNanos, TimeUnit.NANOSECONDS);
+            return pool;
+        }
+    }
+}
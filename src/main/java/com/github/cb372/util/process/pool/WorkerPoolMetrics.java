@@ -0,0 +1,131 @@
+package com.github.cb372.util.process.pool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of a {@link WorkerPool}'s counters.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class WorkerPoolMetrics {
+    private final long requests;
+    private final long failedRequests;
+    private final long timedOutRequests;
+    private final long totalRequestNanos;
+    private final long workersStarted;
+    private final long workersRecycled;
+    private final long workersReplaced;
+    private final long failedHealthChecks;
+    private final int idleWorkers;
+    private final int busyWorkers;
+
+    WorkerPoolMetrics(long requests,
+                      long failedRequests,
+                      long timedOutRequests,
+                      long totalRequestNanos,
+                      long workersStarted,
+                      long workersRecycled,
+                      long workersReplaced,
+                      long failedHealthChecks,
+                      int idleWorkers,
+                      int busyWorkers) {
+        this.requests = requests;
+        this.failedRequests = failedRequests;
+        this.timedOutRequests = timedOutRequests;
+        this.totalRequestNanos = totalRequestNanos;
+        this.workersStarted = workersStarted;
+        this.workersRecycled = workersRecycled;
+        this.workersReplaced = workersReplaced;
+        this.failedHealthChecks = failedHealthChecks;
+        this.idleWorkers = idleWorkers;
+        this.busyWorkers = busyWorkers;
+    }
+
+    /**
+     * @return number of requests made, including failed ones and ones that timed out waiting for a worker
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return number of requests that failed because the worker could not be written to, or exited
+     */
+    public long getFailedRequests() {
+        return failedRequests;
+    }
+
+    /**
+     * @return number of requests that timed out, waiting either for a worker or for a reply
+     */
+    public long getTimedOutRequests() {
+        return timedOutRequests;
+    }
+
+    /**
+     * @param unit units
+     * @return mean time taken by a request, including waiting for a worker, and including failed requests
+     */
+    public long getMeanRequestTime(TimeUnit unit) {
+        return requests == 0 ? 0 : unit.convert(totalRequestNanos / requests, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return number of worker processes started, including replacements
+     */
+    public long getWorkersStarted() {
+        return workersStarted;
+    }
+
+    /**
+     * @return number of workers stopped because they had handled the maximum number of requests
+     */
+    public long getWorkersRecycled() {
+        return workersRecycled;
+    }
+
+    /**
+     * @return number of workers stopped because they failed a request or a health check, or exited
+     */
+    public long getWorkersReplaced() {
+        return workersReplaced;
+    }
+
+    /**
+     * @return number of health checks that failed
+     */
+    public long getFailedHealthChecks() {
+        return failedHealthChecks;
+    }
+
+    /**
+     * @return number of workers waiting for a request
+     */
+    public int getIdleWorkers() {
+        return idleWorkers;
+    }
+
+    /**
+     * @return number of workers handling a request
+     */
+    public int getBusyWorkers() {
+        return busyWorkers;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkerPoolMetrics{" +
+                "requests=" + requests +
+                ", failedRequests=" + failedRequests +
+                ", timedOutRequests=" + timedOutRequests +
+                ", meanRequestMicros=" + getMeanRequestTime(TimeUnit.MICROSECONDS) +
+                ", workersStarted=" + workersStarted +
+                ", workersRecycled=" + workersRecycled +
+                ", workersReplaced=" + workersReplaced +
+                ", failedHealthChecks=" + failedHealthChecks +
+                ", idleWorkers=" + idleWorkers +
+                ", busyWorkers=" + busyWorkers +
+                '}';
+    }
+}
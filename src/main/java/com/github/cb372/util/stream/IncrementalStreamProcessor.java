@@ -0,0 +1,28 @@
+package com.github.cb372.util.stream;
+
+import java.io.IOException;
+
+/**
+ * A StreamProcessor that can also be fed with data that somebody else has read,
+ * e.g. a {@link StreamMultiplexer} that reads many streams from one thread.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public interface IncrementalStreamProcessor extends StreamProcessor {
+
+    /**
+     * Process some data read from the stream.
+     *
+     * @param b buffer containing the data
+     * @param offset offset of the first byte in the buffer
+     * @param len number of bytes
+     */
+    void onBytes(byte[] b, int offset, int len) throws IOException;
+
+    /**
+     * Called when the end of the stream has been reached.
+     */
+    void onEndOfStream() throws IOException;
+
+}
@@ -0,0 +1,46 @@
+package com.github.cb372.util.stream;
+
+/**
+ * Wraps a runnable so that it behaves like it has its own thread
+ * when it is run on a pooled thread, by temporarily applying
+ * a thread name, priority and uncaught exception handler.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+final class PooledThreadRunnable implements Runnable {
+    private final Runnable runnable;
+    private final String threadName;
+    private final int threadPriority;
+    private final Thread.UncaughtExceptionHandler uncaughtExceptionHandler;
+
+    PooledThreadRunnable(Runnable runnable,
+                         String threadName,
+                         int threadPriority,
+                         Thread.UncaughtExceptionHandler uncaughtExceptionHandler) {
+        this.runnable = runnable;
+        this.threadName = threadName;
+        this.threadPriority = threadPriority;
+        this.uncaughtExceptionHandler = uncaughtExceptionHandler;
+    }
+
+    @Override
+    public void run() {
+        Thread thread = Thread.currentThread();
+        String originalName = thread.getName();
+        int originalPriority = thread.getPriority();
+        thread.setName(threadName);
+        thread.setPriority(threadPriority);
+        try {
+            runnable.run();
+        } catch (RuntimeException | Error e) {
+            if (uncaughtExceptionHandler == null) {
+                throw e;
+            }
+            uncaughtExceptionHandler.uncaughtException(thread, e);
+        } finally {
+            thread.setName(originalName);
+            thread.setPriority(originalPriority);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.github.cb372.util.stream;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Notices when processes exit, using a single thread for any number of processes,
+ * rather than one thread blocked in {@link Process#waitFor()} per process.
+ *
+ * The watcher thread polls its processes, backing off while none of them exit,
+ * so the time taken to notice that a process has exited is at most the maximum wait.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class ProcessExitWatcher {
+    private static final long MIN_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final Method IS_ALIVE = findIsAliveMethod();
+
+    private final BlockingQueue<Watch> incoming = new LinkedBlockingQueue<Watch>();
+    private final long maxWaitNanos;
+
+    /**
+     * @param maxWait maximum time to wait between polls
+     * @param unit units of maxWait
+     */
+    ProcessExitWatcher(long maxWait, TimeUnit unit) {
+        this.maxWaitNanos = Math.max(MIN_WAIT_NANOS, unit.toNanos(maxWait));
+        Thread thread = new Thread(new Watcher(), "ProcessExitWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * A watcher that waits at most 10ms between polls, shared by all processes
+     * built by an {@link com.github.cb372.util.process.ExternalProcessBuilder}.
+     *
+     * @return the shared watcher
+     */
+    public static ProcessExitWatcher shared() {
+        return SharedWatcherHolder.WATCHER;
+    }
+
+    /**
+     * Run a callback once the given process has exited.
+     * The callback runs on the watcher thread, so it should be quick.
+     *
+     * @param process process to watch
+     * @param onExit callback
+     */
+    public void watch(Process process, Runnable onExit) {
+        incoming.add(new Watch(process, onExit));
+    }
+
+    /**
+     * Check whether a process has exited, without blocking.
+     *
+     * @param process process
+     * @return true if the process has exited
+     */
+    public static boolean hasExited(Process process) {
+        if (IS_ALIVE != null) {
+            try {
+                return !((Boolean) IS_ALIVE.invoke(process));
+            } catch (IllegalAccessException e) {
+                // fall back to exitValue
+            } catch (InvocationTargetException e) {
+                // fall back to exitValue
+            }
+        }
+        try {
+            process.exitValue();
+            return true;
+        } catch (IllegalThreadStateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Process.isAlive() is only available on Java 8 and newer.
+     * Calling exitValue() instead costs an exception for every poll of a running process.
+     */
+    private static Method findIsAliveMethod() {
+        try {
+            return Process.class.getMethod("isAlive");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static final class SharedWatcherHolder {
+        static final ProcessExitWatcher WATCHER = new ProcessExitWatcher(10, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class Watch {
+        final Process process;
+        final Runnable onExit;
+
+        Watch(Process process, Runnable onExit) {
+            this.process = process;
+            this.onExit = onExit;
+        }
+    }
+
+    private final class Watcher implements Runnable {
+        private final List<Watch> active = new ArrayList<Watch>();
+
+        @Override
+        public void run() {
+            long waitNanos = MIN_WAIT_NANOS;
+            while (true) {
+                if (active.isEmpty()) {
+                    try {
+                        active.add(incoming.take());
+                        waitNanos = MIN_WAIT_NANOS;
+                    } catch (InterruptedException e) {
+                        continue;
+                    }
+                }
+                incoming.drainTo(active);
+
+                boolean somethingExited = false;
+                Iterator<Watch> it = active.iterator();
+                while (it.hasNext()) {
+                    Watch watch = it.next();
+                    if (hasExited(watch.process)) {
+                        it.remove();
+                        somethingExited = true;
+                        notifyExit(watch);
+                    }
+                }
+
+                if (somethingExited) {
+                    waitNanos = MIN_WAIT_NANOS;
+                } else {
+                    LockSupport.parkNanos(waitNanos);
+                    waitNanos = Math.min(waitNanos * 2, maxWaitNanos);
+                }
+            }
+        }
+
+        private void notifyExit(Watch watch) {
+            try {
+                watch.onExit.run();
+            } catch (RuntimeException | Error e) {
+                Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+            }
+        }
+    }
+
+}
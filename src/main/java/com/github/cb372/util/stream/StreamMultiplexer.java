@@ -0,0 +1,349 @@
+package com.github.cb372.util.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Processes the output streams of many processes using a small, fixed number of reactor threads,
+ * rather than one blocked thread per stream.
+ *
+ * Each reactor thread repeatedly polls its streams, reading whatever data is available
+ * and passing it to the stream's processor. When none of its streams have any data,
+ * the reactor backs off, waiting a little longer each time up to a maximum wait.
+ *
+ * Java process streams cannot signal end-of-stream without a blocking read,
+ * so a stream is considered finished once its process has exited
+ * and there is no more data available. Any remaining data is then read
+ * on the {@link StreamProcessingExecutors#sharedPool() shared pool}, so that a stream
+ * held open by a grandchild process cannot block the reactor.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class StreamMultiplexer {
+    private static final int BUFFER_SIZE = 8192;
+    private static final long MIN_IDLE_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final Reactor[] reactors;
+    private final long maxIdleWaitNanos;
+    private volatile boolean shutdown = false;
+    private boolean shared = false;
+
+    /**
+     * Create a multiplexer that waits at most 20ms between polls of idle streams.
+     *
+     * @param reactorThreads number of reactor threads
+     */
+    public StreamMultiplexer(int reactorThreads) {
+        this(reactorThreads, 20, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param reactorThreads number of reactor threads
+     * @param maxIdleWait maximum time to wait between polls when all streams are idle.
+     *                    This is the worst-case latency for noticing new output.
+     * @param unit units of maxIdleWait
+     */
+    public StreamMultiplexer(int reactorThreads, long maxIdleWait, TimeUnit unit) {
+        if (reactorThreads <= 0) {
+            throw new IllegalArgumentException("Number of reactor threads must be at least 1");
+        }
+        this.maxIdleWaitNanos = Math.max(MIN_IDLE_WAIT_NANOS, unit.toNanos(maxIdleWait));
+        this.reactors = new Reactor[reactorThreads];
+        for (int i = 0; i < reactorThreads; i++) {
+            reactors[i] = new Reactor();
+            Thread thread = new Thread(reactors[i], "StreamMultiplexer-" + (i + 1));
+            thread.setDaemon(true);
+            reactors[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * A multiplexer shared by all stream processors that are configured with
+     * {@link StreamProcessingThreadBuilder.Base#inSharedMultiplexer()}.
+     * It has one reactor thread per CPU, up to a maximum of 4.
+     *
+     * @return the shared multiplexer
+     */
+    public static StreamMultiplexer shared() {
+        return SharedMultiplexerHolder.MULTIPLEXER;
+    }
+
+    /**
+     * Start processing a stream belonging to the given process.
+     *
+     * @param stream one of the process's output streams
+     * @param process the process, used to decide when the stream has ended
+     * @param processor the processor that will be fed with the stream's data
+     * @param ioExceptionHandler handler for exceptions thrown while reading the stream
+     * @param uncaughtExceptionHandler handler for exceptions thrown by the processor. May be null.
+     */
+    public void register(InputStream stream,
+                         Process process,
+                         IncrementalStreamProcessor processor,
+                         IOExceptionHandler ioExceptionHandler,
+                         Thread.UncaughtExceptionHandler uncaughtExceptionHandler) {
+        register(stream, process, processor, ioExceptionHandler, uncaughtExceptionHandler, null);
+    }
+
+    /**
+     * Start processing a stream belonging to the given process.
+     *
+     * @param stream one of the process's output streams
+     * @param process the process, used to decide when the stream has ended
+     * @param processor the processor that will be fed with the stream's data
+     * @param ioExceptionHandler handler for exceptions thrown while reading the stream
+     * @param uncaughtExceptionHandler handler for exceptions thrown by the processor. May be null.
+     * @param onFinished called when processing has finished, whether or not it succeeded. May be null.
+     */
+    public void register(InputStream stream,
+                         Process process,
+                         IncrementalStreamProcessor processor,
+                         IOExceptionHandler ioExceptionHandler,
+                         Thread.UncaughtExceptionHandler uncaughtExceptionHandler,
+                         Runnable onFinished) {
+        if (shutdown) {
+            throw new IllegalStateException("StreamMultiplexer has been shut down");
+        }
+        Reactor leastLoaded = reactors[0];
+        for (Reactor reactor : reactors) {
+            if (reactor.load.get() < leastLoaded.load.get()) {
+                leastLoaded = reactor;
+            }
+        }
+        leastLoaded.register(
+                new Registration(stream, process, processor, ioExceptionHandler, uncaughtExceptionHandler, onFinished));
+        if (shutdown) {
+            // the reactor may already have handed off its streams and stopped
+            leastLoaded.handOffIncoming();
+        }
+    }
+
+    /**
+     * Stop the reactor threads.
+     * Streams that are still being processed are finished on the
+     * {@link StreamProcessingExecutors#sharedPool() shared pool} using blocking reads,
+     * so their processors still see the end of the stream.
+     *
+     * @throws UnsupportedOperationException if this is the {@link #shared() shared multiplexer}
+     */
+    public void shutdown() {
+        if (shared) {
+            throw new UnsupportedOperationException("The shared StreamMultiplexer cannot be shut down");
+        }
+        shutdown = true;
+        for (Reactor reactor : reactors) {
+            reactor.thread.interrupt();
+        }
+    }
+
+    private static final class SharedMultiplexerHolder {
+        static final StreamMultiplexer MULTIPLEXER =
+                new StreamMultiplexer(Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+        static {
+            MULTIPLEXER.shared = true;
+        }
+    }
+
+    private static final class Registration {
+        final InputStream stream;
+        final Process process;
+        final IncrementalStreamProcessor processor;
+        final IOExceptionHandler ioExceptionHandler;
+        final Thread.UncaughtExceptionHandler uncaughtExceptionHandler;
+        final Runnable onFinished;
+
+        Registration(InputStream stream,
+                     Process process,
+                     IncrementalStreamProcessor processor,
+                     IOExceptionHandler ioExceptionHandler,
+                     Thread.UncaughtExceptionHandler uncaughtExceptionHandler,
+                     Runnable onFinished) {
+            this.stream = stream;
+            this.process = process;
+            this.processor = processor;
+            this.ioExceptionHandler = ioExceptionHandler;
+            this.uncaughtExceptionHandler = uncaughtExceptionHandler;
+            this.onFinished = onFinished;
+        }
+
+        /**
+         * Read the rest of the stream until it ends.
+         */
+        void finish(byte[] buffer) throws IOException {
+            int bytesRead;
+            while ((bytesRead = stream.read(buffer)) != -1) {
+                processor.onBytes(buffer, 0, bytesRead);
+            }
+            processor.onEndOfStream();
+            stream.close();
+        }
+
+        void handle(Throwable e) {
+            closeQuietly();
+            if (e instanceof IOException) {
+                ioExceptionHandler.handle((IOException) e);
+            } else if (uncaughtExceptionHandler != null) {
+                uncaughtExceptionHandler.uncaughtException(Thread.currentThread(), e);
+            } else {
+                Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+            }
+        }
+
+        void finished() {
+            if (onFinished != null) {
+                onFinished.run();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Reads the remaining data of a stream whose process has exited.
+     */
+    private static final class Finisher implements Runnable {
+        private final Registration registration;
+
+        Finisher(Registration registration) {
+            this.registration = registration;
+        }
+
+        @Override
+        public void run() {
+            try {
+                registration.finish(new byte[BUFFER_SIZE]);
+            } catch (IOException | RuntimeException | Error e) {
+                registration.handle(e);
+            } finally {
+                registration.finished();
+            }
+        }
+    }
+
+    private final class Reactor implements Runnable {
+        private final BlockingQueue<Registration> incoming = new LinkedBlockingQueue<Registration>();
+        private final List<Registration> active = new ArrayList<Registration>();
+        private final AtomicInteger load = new AtomicInteger();
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private Thread thread;
+
+        void register(Registration registration) {
+            load.incrementAndGet();
+            incoming.add(registration);
+        }
+
+        @Override
+        public void run() {
+            long idleWaitNanos = MIN_IDLE_WAIT_NANOS;
+            while (!shutdown) {
+                if (active.isEmpty()) {
+                    try {
+                        active.add(incoming.take());
+                    } catch (InterruptedException e) {
+                        continue;
+                    }
+                }
+                incoming.drainTo(active);
+
+                boolean readSomething = false;
+                Iterator<Registration> it = active.iterator();
+                while (it.hasNext()) {
+                    switch (poll(it.next())) {
+                        case READ:
+                            readSomething = true;
+                            break;
+                        case FINISHED:
+                            it.remove();
+                            load.decrementAndGet();
+                            break;
+                        default:
+                            break;
+                    }
+                }
+
+                if (readSomething) {
+                    idleWaitNanos = MIN_IDLE_WAIT_NANOS;
+                } else {
+                    LockSupport.parkNanos(idleWaitNanos);
+                    idleWaitNanos = Math.min(idleWaitNanos * 2, maxIdleWaitNanos);
+                }
+            }
+
+            for (Registration registration : active) {
+                handOff(registration);
+            }
+            active.clear();
+            handOffIncoming();
+        }
+
+        /**
+         * Finish any streams that were registered too late to be polled.
+         * Safe to call from any thread, as each registration can only be taken from the queue once.
+         */
+        void handOffIncoming() {
+            Registration registration;
+            while ((registration = incoming.poll()) != null) {
+                handOff(registration);
+            }
+        }
+
+        private void handOff(Registration registration) {
+            load.decrementAndGet();
+            StreamProcessingExecutors.sharedPool().execute(new Finisher(registration));
+        }
+
+        /**
+         * Read whatever data is available, without blocking.
+         * Reads at most one buffer per poll, so that one busy stream cannot starve the others.
+         *
+         * @return whether any data was read, or whether the stream should not be polled again
+         */
+        private PollResult poll(Registration registration) {
+            try {
+                int available = registration.stream.available();
+                if (available > 0) {
+                    int bytesRead = registration.stream.read(buffer, 0, Math.min(available, buffer.length));
+                    if (bytesRead == -1) {
+                        registration.processor.onEndOfStream();
+                        registration.stream.close();
+                        registration.finished();
+                        return PollResult.FINISHED;
+                    }
+                    registration.processor.onBytes(buffer, 0, bytesRead);
+                    return PollResult.READ;
+                }
+                if (ProcessExitWatcher.hasExited(registration.process)) {
+                    StreamProcessingExecutors.sharedPool().execute(new Finisher(registration));
+                    return PollResult.FINISHED;
+                }
+                return PollResult.IDLE;
+            } catch (IOException | RuntimeException | Error e) {
+                registration.handle(e);
+                registration.finished();
+                return PollResult.FINISHED;
+            }
+        }
+    }
+
+    private enum PollResult {
+        READ, IDLE, FINISHED
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.github.cb372.util.stream;
+
+/**
+ * Thrown when output that is being consumed as it arrives could not be read.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class StreamProcessingException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public StreamProcessingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.github.cb372.util.stream;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for running stream processors on pooled threads.
+ *
+ * A stream processor occupies its thread until the stream ends,
+ * so any executor used for stream processing must be able to grow
+ * to the number of streams being processed at the same time.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class StreamProcessingExecutors {
+
+    private StreamProcessingExecutors() {}
+
+    /**
+     * A thread pool shared by all stream processors that are configured with
+     * {@link StreamProcessingThreadBuilder.Base#inSharedThreadPool()}.
+     *
+     * The pool creates threads as needed and keeps idle threads alive for 60 seconds,
+     * so launching many short-lived processes does not create two new threads per process.
+     * Its threads are daemon threads, so they will not prevent the JVM from exiting.
+     *
+     * @return the shared pool
+     */
+    public static ExecutorService sharedPool() {
+        return SharedPoolHolder.POOL;
+    }
+
+    private static final class SharedPoolHolder {
+        static final ExecutorService POOL = Executors.newCachedThreadPool(new DaemonThreadFactory());
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "StreamProcessor-pool-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -9,10 +9,19 @@ import java.io.IOException;
 public final class StreamProcessingRunnable implements Runnable {
     private final StreamProcessor streamProcessor;
     private final IOExceptionHandler exceptionHandler;
+    private final Runnable onFinished;
 
     public StreamProcessingRunnable(StreamProcessor streamProcessor, IOExceptionHandler exceptionHandler) {
+        this(streamProcessor, exceptionHandler, null);
+    }
+
+    /**
+     * @param onFinished called when processing has finished, whether or not it succeeded. May be null.
+     */
+    public StreamProcessingRunnable(StreamProcessor streamProcessor, IOExceptionHandler exceptionHandler, Runnable onFinished) {
         this.streamProcessor = streamProcessor;
         this.exceptionHandler = exceptionHandler;
+        this.onFinished = onFinished;
     }
 
     @Override
@@ -21,6 +30,10 @@ public final class StreamProcessingRunnable implements Runnable {
             streamProcessor.run();
         } catch (IOException e) {
             exceptionHandler.handle(e);
+        } finally {
+            if (onFinished != null) {
+                onFinished.run();
+            }
         }
     }
 }
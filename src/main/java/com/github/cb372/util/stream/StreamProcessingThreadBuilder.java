@@ -1,16 +1,20 @@
 package com.github.cb372.util.stream;
 
 import com.github.cb372.util.stream.listener.binary.ByteStreamListener;
+import com.github.cb372.util.stream.listener.binary.RecordListener;
 import com.github.cb372.util.stream.listener.text.CharStreamListener;
 import com.github.cb372.util.stream.listener.text.LoggingListener;
 import com.github.cb372.util.stream.listener.text.PipingListener;
 import com.github.cb372.util.stream.processor.ByteStreamProcessor;
 import com.github.cb372.util.stream.processor.CharStreamProcessor;
+import com.github.cb372.util.stream.processor.RecordStreamProcessor;
 
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Builder for a StreamProcessor thread.
@@ -20,6 +24,14 @@ import java.util.List;
  */
 public interface StreamProcessingThreadBuilder {
 
+    /**
+     * Build a thread that will process the given stream.
+     * The thread is not started. Note that any executor set using
+     * {@link Base#withExecutor(Executor)} is ignored by this method.
+     *
+     * @param stream stream to process
+     * @return an unstarted thread
+     */
     public Thread build(InputStream stream);
 
     public static abstract class Base<T extends Base<T>> {
@@ -27,9 +39,12 @@ public interface StreamProcessingThreadBuilder {
 
         private String threadName = "CharStreamProcessor";
         private boolean daemon = Thread.currentThread().isDaemon();
+        private boolean virtual = false;
         private int threadPriority = Thread.currentThread().getPriority();
         private IOExceptionHandler ioExceptionHandler = new ErrorLoggingIOExceptionHandler();
         private Thread.UncaughtExceptionHandler uncaughtExceptionHandler = Thread.getDefaultUncaughtExceptionHandler();
+        private Executor executor = null;
+        private StreamMultiplexer multiplexer = null;
 
         protected Base(Class<T> subclass) {
             this.subclass = subclass;
@@ -45,6 +60,21 @@ public interface StreamProcessingThreadBuilder {
             return subclass.cast(this);
         }
 
+        /**
+         * Process the stream in a virtual thread, so that blocking reads cost almost nothing.
+         *
+         * Virtual threads are always daemon threads and ignore thread priority,
+         * so those settings do not apply. This option requires Java 21 or newer.
+         * On older JVMs it has no effect and a platform thread is used as usual.
+         * It is also ignored if an executor or multiplexer has been set.
+         *
+         * @return builder
+         */
+        public T inVirtualThread() {
+            this.virtual = true;
+            return subclass.cast(this);
+        }
+
         public T withThreadName(String threadName) {
             this.threadName = threadName;
             return subclass.cast(this);
@@ -65,12 +95,113 @@ public interface StreamProcessingThreadBuilder {
             return subclass.cast(this);
         }
 
-        protected final Thread build(StreamProcessor streamProcessor) {
-            StreamProcessingRunnable runnable = new StreamProcessingRunnable(streamProcessor, ioExceptionHandler);
-            Thread thread = new Thread(runnable);
+        /**
+         * Run the stream processor using the given executor, rather than in a new thread.
+         *
+         * The executor must not limit the number of tasks that run at the same time,
+         * as each task occupies a thread until its stream ends.
+         *
+         * The thread name, priority and uncaught exception handler are applied
+         * to the pooled thread while it is processing the stream, and restored afterwards.
+         * The daemon setting is ignored, as it cannot be changed on a running thread.
+         *
+         * @param executor executor
+         * @return builder
+         */
+        public T withExecutor(Executor executor) {
+            this.executor = executor;
+            return subclass.cast(this);
+        }
+
+        /**
+         * Run the stream processor in a thread pool that is shared by all stream processors.
+         * See {@link StreamProcessingExecutors#sharedPool()}.
+         *
+         * @return builder
+         */
+        public T inSharedThreadPool() {
+            return withExecutor(StreamProcessingExecutors.sharedPool());
+        }
+
+        /**
+         * Process the stream using the given multiplexer, which services the streams
+         * of many processes using a small number of threads.
+         *
+         * This only applies to streams that belong to a process,
+         * i.e. streams started by an {@link com.github.cb372.util.process.ExternalProcessBuilder}.
+         * The thread settings and executor are ignored, as the stream is processed by the multiplexer's threads.
+         *
+         * @param multiplexer multiplexer
+         * @return builder
+         */
+        public T usingMultiplexer(StreamMultiplexer multiplexer) {
+            this.multiplexer = multiplexer;
+            return subclass.cast(this);
+        }
+
+        /**
+         * Process the stream using a multiplexer that is shared by all stream processors.
+         * See {@link StreamMultiplexer#shared()}.
+         *
+         * @return builder
+         */
+        public T inSharedMultiplexer() {
+            return usingMultiplexer(StreamMultiplexer.shared());
+        }
+
+        /**
+         * @return whether the stream will be processed by a multiplexer
+         */
+        public boolean usesMultiplexer() {
+            return multiplexer != null;
+        }
+
+        /**
+         * Copy the thread settings, exception handlers, executor and multiplexer of another builder.
+         */
+        protected final void copySettingsFrom(Base<?> other) {
+            this.threadName = other.threadName;
+            this.daemon = other.daemon;
+            this.virtual = other.virtual;
+            this.threadPriority = other.threadPriority;
+            this.ioExceptionHandler = other.ioExceptionHandler;
+            this.uncaughtExceptionHandler = other.uncaughtExceptionHandler;
+            this.executor = other.executor;
+            this.multiplexer = other.multiplexer;
+        }
+
+        protected final void start(IncrementalStreamProcessor streamProcessor,
+                                   InputStream stream,
+                                   Process process,
+                                   Runnable onFinished) {
+            if (multiplexer == null) {
+                start(streamProcessor, onFinished);
+            } else {
+                multiplexer.register(
+                        stream, process, streamProcessor, ioExceptionHandler, uncaughtExceptionHandler, onFinished);
+            }
+        }
+
+        protected final void start(StreamProcessor streamProcessor, Runnable onFinished) {
+            if (executor == null) {
+                build(streamProcessor, onFinished).start();
+            } else {
+                StreamProcessingRunnable runnable = new StreamProcessingRunnable(streamProcessor, ioExceptionHandler, onFinished);
+                executor.execute(new PooledThreadRunnable(runnable, threadName, threadPriority, uncaughtExceptionHandler));
+            }
+        }
+
+        protected final Thread build(StreamProcessor streamProcessor, Runnable onFinished) {
+            StreamProcessingRunnable runnable = new StreamProcessingRunnable(streamProcessor, ioExceptionHandler, onFinished);
+            Thread thread;
+            if (virtual && VirtualThreads.isSupported()) {
+                thread = VirtualThreads.newThread(runnable);
+            } else {
+                thread = new Thread(runnable);
+                thread.setDaemon(daemon);
+                thread.setPriority(threadPriority);
+            }
             thread.setName(threadName);
-            thread.setDaemon(daemon);
-            thread.setPriority(threadPriority);
             thread.setUncaughtExceptionHandler(uncaughtExceptionHandler);
             return thread;
         }
@@ -78,8 +209,11 @@ public interface StreamProcessingThreadBuilder {
 
     public static final class ByteStreamProcessingThreadBuilder extends Base<ByteStreamProcessingThreadBuilder>
                                                                 implements StreamProcessingThreadBuilder {
-        private List<ByteStreamListener> listeners = new ArrayList<ByteStreamListener>();
+        private final List<ByteStreamListener> listeners = new ArrayList<ByteStreamListener>();
+        private final List<RecordListener> recordListeners = new ArrayList<RecordListener>();
         private int bufferSize = 1024;
+        private Byte delimiter = null;
+        private boolean stripCR = false;
 
         public ByteStreamProcessingThreadBuilder() {
             super(ByteStreamProcessingThreadBuilder.class);
@@ -90,6 +224,64 @@ public interface StreamProcessingThreadBuilder {
             return this;
         }
 
+        /**
+         * Add a listener for the records of output. Only has an effect if {@link #splitOn(byte)} is used.
+         */
+        public ByteStreamProcessingThreadBuilder withListener(RecordListener listener) {
+            this.recordListeners.add(listener);
+            return this;
+        }
+
+        /**
+         * Split the output into records that end with the given byte, e.g. (byte) 0 for the output of
+         * {@code find -print0}. Records are passed to {@link RecordListener}s without being decoded.
+         * Listeners for the raw bytes still receive all of the output.
+         *
+         * The buffer grows if a record does not fit in it, so set a buffer size
+         * larger than most records with {@link #withBufferSize(int)}.
+         *
+         * @param delimiter byte that ends each record
+         */
+        public ByteStreamProcessingThreadBuilder splitOn(byte delimiter) {
+            this.delimiter = delimiter;
+            this.stripCR = false;
+            return this;
+        }
+
+        /**
+         * Split ASCII or UTF-8 text into lines on '\n', removing any '\r' before it,
+         * and pass them to {@link RecordListener}s without decoding them.
+         */
+        public ByteStreamProcessingThreadBuilder splitIntoLines() {
+            splitOn((byte) '\n');
+            this.stripCR = true;
+            return this;
+        }
+
+        /**
+         * @return whether any listeners have been added
+         */
+        public boolean hasListeners() {
+            return !listeners.isEmpty() || (delimiter != null && !recordListeners.isEmpty());
+        }
+
+        /**
+         * Create a builder with the same settings and listeners as this one.
+         * Listeners added to the copy are not added to this builder, so they only see the streams that the copy starts.
+         *
+         * @return a new builder
+         */
+        public ByteStreamProcessingThreadBuilder copy() {
+            ByteStreamProcessingThreadBuilder copy = new ByteStreamProcessingThreadBuilder();
+            copy.copySettingsFrom(this);
+            copy.listeners.addAll(listeners);
+            copy.recordListeners.addAll(recordListeners);
+            copy.bufferSize = bufferSize;
+            copy.delimiter = delimiter;
+            copy.stripCR = stripCR;
+            return copy;
+        }
+
         /**
          * Set the buffer size for reading binary data. Default is 1024 bytes.
          * @param bufferSize the desired buffer size in bytes (must be at least 1)
@@ -102,10 +294,50 @@ public interface StreamProcessingThreadBuilder {
             return this;
         }
 
+        private IncrementalStreamProcessor newStreamProcessor(InputStream stream) {
+            if (delimiter != null) {
+                return new RecordStreamProcessor(stream, bufferSize, delimiter, stripCR, listeners, recordListeners);
+            }
+            return new ByteStreamProcessor(stream, bufferSize, listeners);
+        }
+
         @Override
         public Thread build(InputStream stream) {
-            StreamProcessor streamProcessor = new ByteStreamProcessor(stream, bufferSize, listeners);
-            return build(streamProcessor);
+            return build(newStreamProcessor(stream), null);
+        }
+
+        /**
+         * Start processing the given stream, either in a new thread
+         * or using the configured executor.
+         *
+         * @param stream stream to process
+         */
+        public void start(InputStream stream) {
+            start(newStreamProcessor(stream), null);
+        }
+
+        /**
+         * Start processing one of the output streams of the given process,
+         * either in a new thread, using the configured executor
+         * or using the configured {@link StreamMultiplexer}.
+         *
+         * @param stream stream to process
+         * @param process the process that the stream belongs to
+         */
+        public void start(InputStream stream, Process process) {
+            start(stream, process, null);
+        }
+
+        /**
+         * Start processing one of the output streams of the given process,
+         * and run a callback once processing has finished, whether or not it succeeded.
+         *
+         * @param stream stream to process
+         * @param process the process that the stream belongs to
+         * @param onFinished callback, run on the thread that processed the stream
+         */
+        public void start(InputStream stream, Process process, Runnable onFinished) {
+            start(newStreamProcessor(stream), stream, process, onFinished);
         }
     }
 
@@ -115,6 +347,8 @@ public interface StreamProcessingThreadBuilder {
         private final List<CharStreamListener> listeners = new ArrayList<CharStreamListener>();
         private Charset charset = Charset.forName("UTF-8");
         private String prefix = "";
+        private int bufferSize = CharStreamProcessor.DEFAULT_BUFFER_SIZE;
+        private CodingErrorAction malformedInputAction = CodingErrorAction.REPLACE;
 
         public CharStreamProcessingThreadBuilder() {
             super(CharStreamProcessingThreadBuilder.class);
@@ -129,6 +363,30 @@ public interface StreamProcessingThreadBuilder {
             return withCharset(Charset.forName(charset));
         }
 
+        /**
+         * Set the size of the buffers used for reading and decoding the stream. Default is 8192.
+         * @param bufferSize the desired buffer size in bytes (must be at least 16)
+         */
+        public CharStreamProcessingThreadBuilder withBufferSize(int bufferSize) {
+            if (bufferSize < 16) {
+                throw new IllegalArgumentException("Buffer size must be at least 16");
+            }
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * Set what to do with input that is malformed, or cannot be mapped to a character, in the stream's charset.
+         * By default it is replaced with U+FFFD. With {@link CodingErrorAction#REPORT},
+         * processing stops and the {@link java.nio.charset.CharacterCodingException} is passed to the IOExceptionHandler.
+         *
+         * @param action replace, ignore or report
+         */
+        public CharStreamProcessingThreadBuilder onMalformedInput(CodingErrorAction action) {
+            this.malformedInputAction = action;
+            return this;
+        }
+
         public CharStreamProcessingThreadBuilder withPrefix(String prefix){
             this.prefix = prefix;
             return this;
@@ -148,6 +406,30 @@ public interface StreamProcessingThreadBuilder {
             return withLogging(listenerBuilder.build());
         }
 
+        /**
+         * @return whether any listeners have been added
+         */
+        public boolean hasListeners() {
+            return !listeners.isEmpty();
+        }
+
+        /**
+         * Create a builder with the same settings and listeners as this one.
+         * Listeners added to the copy are not added to this builder, so they only see the streams that the copy starts.
+         *
+         * @return a new builder
+         */
+        public CharStreamProcessingThreadBuilder copy() {
+            CharStreamProcessingThreadBuilder copy = new CharStreamProcessingThreadBuilder();
+            copy.copySettingsFrom(this);
+            copy.listeners.addAll(listeners);
+            copy.charset = charset;
+            copy.prefix = prefix;
+            copy.bufferSize = bufferSize;
+            copy.malformedInputAction = malformedInputAction;
+            return copy;
+        }
+
         public CharStreamProcessingThreadBuilder pipingToStdOut() {
             listeners.add(new PipingListener(System.out));
             return this;
@@ -158,10 +440,47 @@ public interface StreamProcessingThreadBuilder {
             return this;
         }
 
+        private CharStreamProcessor newStreamProcessor(InputStream inputStream) {
+            return new CharStreamProcessor(inputStream, charset, prefix, listeners, bufferSize, malformedInputAction);
+        }
+
         @Override
         public Thread build(InputStream inputStream) {
-            StreamProcessor streamProcessor = new CharStreamProcessor(inputStream, charset, prefix, listeners);
-            return build(streamProcessor);
+            return build(newStreamProcessor(inputStream), null);
+        }
+
+        /**
+         * Start processing the given stream, either in a new thread
+         * or using the configured executor.
+         *
+         * @param inputStream stream to process
+         */
+        public void start(InputStream inputStream) {
+            start(newStreamProcessor(inputStream), null);
+        }
+
+        /**
+         * Start processing one of the output streams of the given process,
+         * either in a new thread, using the configured executor
+         * or using the configured {@link StreamMultiplexer}.
+         *
+         * @param inputStream stream to process
+         * @param process the process that the stream belongs to
+         */
+        public void start(InputStream inputStream, Process process) {
+            start(inputStream, process, null);
+        }
+
+        /**
+         * Start processing one of the output streams of the given process,
+         * and run a callback once processing has finished, whether or not it succeeded.
+         *
+         * @param inputStream stream to process
+         * @param process the process that the stream belongs to
+         * @param onFinished callback, run on the thread that processed the stream
+         */
+        public void start(InputStream inputStream, Process process, Runnable onFinished) {
+            start(newStreamProcessor(inputStream), inputStream, process, onFinished);
         }
     }
 
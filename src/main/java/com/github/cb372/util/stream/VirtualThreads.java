@@ -0,0 +1,64 @@
+package com.github.cb372.util.stream;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Creates virtual threads, on JVMs that support them.
+ *
+ * This is the Java 7 version of the class. It finds Thread.ofVirtual() by reflection,
+ * so that virtual threads are still used on Java 21+ when the classes are not loaded from the multi-release jar.
+ * The multi-release jar contains a Java 21 version in META-INF/versions/21 that calls it directly.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+final class VirtualThreads {
+    private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+    private static final Method UNSTARTED = OF_VIRTUAL == null
+            ? null : findMethod(OF_VIRTUAL.getReturnType(), "unstarted", Runnable.class);
+    private static final boolean SUPPORTED = UNSTARTED != null && canCreateVirtualThreads();
+
+    private VirtualThreads() {}
+
+    static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    static Thread newThread(Runnable runnable) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+        }
+        try {
+            return (Thread) UNSTARTED.invoke(OF_VIRTUAL.invoke(null), runnable);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * On Java 19 and 20, virtual threads are a preview feature, and Thread.ofVirtual() throws unless it is enabled.
+     */
+    private static boolean canCreateVirtualThreads() {
+        try {
+            OF_VIRTUAL.invoke(null);
+            return true;
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Thread.ofVirtual() and Thread.Builder.unstarted(Runnable) are only available on Java 21 and newer.
+     */
+    private static Method findMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.github.cb372.util.stream.collector;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Streams and channels that read a sequence of ByteBuffers without copying them first.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class ByteBuffers {
+
+    private ByteBuffers() {}
+
+    /**
+     * @param buffers buffers to read. Their positions will be advanced as they are read.
+     * @return a stream that reads the remaining bytes of each buffer in turn
+     */
+    public static InputStream asInputStream(ByteBuffer[] buffers) {
+        return new ByteBuffersInputStream(buffers);
+    }
+
+    /**
+     * @param buffers buffers to read. Their positions will be advanced as they are read.
+     * @return a channel that reads the remaining bytes of each buffer in turn
+     */
+    public static ReadableByteChannel asChannel(ByteBuffer[] buffers) {
+        return new ByteBuffersChannel(buffers);
+    }
+
+    private static final class ByteBuffersInputStream extends InputStream {
+        private final ByteBuffer[] buffers;
+        private int index = 0;
+
+        ByteBuffersInputStream(ByteBuffer[] buffers) {
+            this.buffers = buffers;
+        }
+
+        private ByteBuffer current() {
+            while (index < buffers.length && !buffers[index].hasRemaining()) {
+                index++;
+            }
+            return index < buffers.length ? buffers[index] : null;
+        }
+
+        @Override
+        public int read() {
+            ByteBuffer buffer = current();
+            return buffer == null ? -1 : buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int offset, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            ByteBuffer buffer = current();
+            if (buffer == null) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, offset, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            ByteBuffer buffer = current();
+            return buffer == null ? 0 : buffer.remaining();
+        }
+    }
+
+    private static final class ByteBuffersChannel implements ReadableByteChannel {
+        private final ByteBuffer[] buffers;
+        private int index = 0;
+        private boolean open = true;
+
+        ByteBuffersChannel(ByteBuffer[] buffers) {
+            this.buffers = buffers;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            int total = 0;
+            while (dst.hasRemaining() && index < buffers.length) {
+                ByteBuffer buffer = buffers[index];
+                if (!buffer.hasRemaining()) {
+                    index++;
+                    continue;
+                }
+                if (buffer.remaining() <= dst.remaining()) {
+                    total += buffer.remaining();
+                    dst.put(buffer);
+                } else {
+                    int n = dst.remaining();
+                    ByteBuffer slice = buffer.duplicate();
+                    slice.limit(slice.position() + n);
+                    dst.put(slice);
+                    buffer.position(buffer.position() + n);
+                    total += n;
+                }
+            }
+            if (total == 0 && index >= buffers.length) {
+                return -1;
+            }
+            return total;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.cb372.util.stream.collector;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A BinaryOutputCollector that can give access to the collected data without copying it.
+ *
+ * All methods block until the stream is exhausted.
+ * Each call returns a new view of the data, positioned at the start.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public interface ChunkedBinaryOutputCollector extends BinaryOutputCollector {
+
+    /**
+     * @return the collected data, as a sequence of read-only buffers
+     * @throws InterruptedException
+     */
+    public ByteBuffer[] getOutputBuffers() throws InterruptedException;
+
+    /**
+     * @return a stream that reads the collected data
+     * @throws InterruptedException
+     */
+    public InputStream getOutputAsStream() throws InterruptedException;
+
+    /**
+     * @return a channel that reads the collected data
+     * @throws InterruptedException
+     */
+    public ReadableByteChannel getOutputAsChannel() throws InterruptedException;
+
+    /**
+     * @return the number of bytes collected
+     * @throws InterruptedException
+     */
+    public long getOutputSize() throws InterruptedException;
+
+}
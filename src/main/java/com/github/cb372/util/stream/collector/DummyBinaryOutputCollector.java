@@ -1,12 +1,15 @@
 package com.github.cb372.util.stream.collector;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Author: chris
  * Created: 9/29/13
  */
-public class DummyBinaryOutputCollector implements BinaryOutputCollector {
+public class DummyBinaryOutputCollector implements ChunkedBinaryOutputCollector {
 
     @Override
     public byte[] getBinaryOutput() throws InterruptedException {
@@ -17,4 +20,24 @@ public class DummyBinaryOutputCollector implements BinaryOutputCollector {
     public byte[] getBinaryOutput(long time, TimeUnit timeUnit) throws InterruptedException {
         return new byte[0];
     }
+
+    @Override
+    public ByteBuffer[] getOutputBuffers() throws InterruptedException {
+        return new ByteBuffer[0];
+    }
+
+    @Override
+    public InputStream getOutputAsStream() throws InterruptedException {
+        return ByteBuffers.asInputStream(new ByteBuffer[0]);
+    }
+
+    @Override
+    public ReadableByteChannel getOutputAsChannel() throws InterruptedException {
+        return ByteBuffers.asChannel(new ByteBuffer[0]);
+    }
+
+    @Override
+    public long getOutputSize() throws InterruptedException {
+        return 0;
+    }
 }
@@ -0,0 +1,198 @@
+package com.github.cb372.util.stream.collector;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Random access to the lines of a text file, such as the output of a process that was
+ * redirected to a file, without reading the whole file into memory.
+ * </p>
+ * <p>
+ * The file is memory-mapped, and an index of line start offsets is built lazily:
+ * asking for line N only scans the file as far as line N, and the scan is never repeated.
+ * Lines end at "\n", "\r" or "\r\n", as for {@link com.github.cb372.util.stream.processor.CharStreamProcessor}.
+ * The charset must encode these characters as single bytes, as ASCII-compatible charsets such as UTF-8 do.
+ * </p>
+ * <p>
+ * The mapping covers the file as it was when it was opened.
+ * Closing releases the file, but the mapped memory is only freed once it is garbage collected.
+ * </p>
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class MappedLineFile implements Closeable {
+    private static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    private final RandomAccessFile file;
+    private final Charset charset;
+    private final long size;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final MappedByteBuffer[] segments;
+
+    private long[] lineStarts = new long[1024];
+    private int lineCount = 0;
+    private long scanPosition = 0;
+
+    /**
+     * Memory-map a file.
+     *
+     * @param file the file
+     * @param charset the file's encoding
+     * @return the mapped file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static MappedLineFile open(File file, Charset charset) throws IOException {
+        return new MappedLineFile(file, charset, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param segmentSize size of each mapped region. Must be a power of 2.
+     */
+    MappedLineFile(File file, Charset charset, int segmentSize) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        this.charset = charset;
+        this.segmentShift = Integer.numberOfTrailingZeros(segmentSize);
+        this.segmentMask = segmentSize - 1;
+        try {
+            FileChannel channel = this.file.getChannel();
+            this.size = channel.size();
+            this.segments = new MappedByteBuffer[(int) ((size + segmentMask) >>> segmentShift)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = (long) i << segmentShift;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segmentSize, size - position));
+            }
+        } catch (IOException | RuntimeException e) {
+            this.file.close();
+            throw e;
+        }
+        if (size > 0) {
+            lineStarts[lineCount++] = 0;
+        }
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Get a read-only view of part of the file.
+     *
+     * @param position offset of the first byte
+     * @param length number of bytes. The region must lie within a single mapped segment of 1GB.
+     * @return the region
+     */
+    public ByteBuffer region(long position, int length) {
+        if (position < 0 || length < 0 || position + length > size) {
+            throw new IndexOutOfBoundsException("Region is outside the file");
+        }
+        int segment = (int) (position >>> segmentShift);
+        int offset = (int) (position & segmentMask);
+        ByteBuffer region = segments[segment].asReadOnlyBuffer();
+        if (offset + length > region.capacity()) {
+            throw new IllegalArgumentException("Region crosses a segment boundary");
+        }
+        region.position(offset).limit(offset + length);
+        return region.slice();
+    }
+
+    /**
+     * Count the lines in the file. This indexes the whole file the first time it is called.
+     *
+     * @return the number of lines
+     */
+    public synchronized int getLineCount() {
+        indexUpTo(Integer.MAX_VALUE);
+        return lineCount;
+    }
+
+    /**
+     * @param line line number, starting from 0
+     * @return offset of the first byte of the line
+     * @throws IndexOutOfBoundsException if the file has fewer lines
+     */
+    public synchronized long getLineOffset(int line) {
+        indexUpTo(line);
+        if (line < 0 || line >= lineCount) {
+            throw new IndexOutOfBoundsException("No line " + line + " in file of " + lineCount + " lines");
+        }
+        return lineStarts[line];
+    }
+
+    /**
+     * @param line line number, starting from 0
+     * @return the line, without its line ending
+     * @throws IndexOutOfBoundsException if the file has fewer lines
+     */
+    public synchronized String getLine(int line) {
+        long start = getLineOffset(line);
+        indexUpTo(line + 1);
+        long end = line + 1 < lineCount ? lineStarts[line + 1] : size;
+        if (end > start && byteAt(end - 1) == '\n') {
+            end--;
+        }
+        if (end > start && byteAt(end - 1) == '\r') {
+            end--;
+        }
+        return new String(bytes(start, (int) (end - start)), charset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Scan the file until the start of the given line has been found, or the file has ended.
+     */
+    private void indexUpTo(int line) {
+        while (lineCount <= line && scanPosition < size) {
+            byte b = byteAt(scanPosition++);
+            if (b == '\n' || b == '\r') {
+                if (b == '\r' && scanPosition < size && byteAt(scanPosition) == '\n') {
+                    scanPosition++;
+                }
+                if (scanPosition < size) {
+                    addLineStart(scanPosition);
+                }
+            }
+        }
+    }
+
+    private void addLineStart(long position) {
+        if (lineCount == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+        }
+        lineStarts[lineCount++] = position;
+    }
+
+    private byte byteAt(long position) {
+        return segments[(int) (position >>> segmentShift)].get((int) (position & segmentMask));
+    }
+
+    private byte[] bytes(long position, int length) {
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long p = position + copied;
+            ByteBuffer segment = segments[(int) (p >>> segmentShift)].duplicate();
+            segment.position((int) (p & segmentMask));
+            int n = Math.min(length - copied, segment.remaining());
+            segment.get(bytes, copied, n);
+            copied += n;
+        }
+        return bytes;
+    }
+}
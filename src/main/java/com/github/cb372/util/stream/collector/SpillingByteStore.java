@@ -0,0 +1,174 @@
+package com.github.cb372.util.stream.collector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A store for bytes that is kept in memory until it reaches a given size,
+ * and is then moved to a temporary file.
+ *
+ * Data must be written by a single thread, and {@link #finish()} must be called
+ * before the data is read. The temporary file is deleted when the store is closed.
+ * The store may be closed by another thread while data is still being written,
+ * e.g. when a collector is closed before its process has finished; any data written after that is ignored.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class SpillingByteStore implements Closeable {
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+    private final long inMemoryThreshold;
+    private final File tempDir;
+
+    private ExposedByteArrayOutputStream memory = new ExposedByteArrayOutputStream();
+    private File file = null;
+    private OutputStream fileOut = null;
+    private long size = 0;
+    private boolean closed = false;
+
+    /**
+     * @param inMemoryThreshold the maximum number of bytes to keep in memory
+     * @param tempDir the directory in which to create the temporary file,
+     *                or null to use the default temporary directory
+     */
+    public SpillingByteStore(long inMemoryThreshold, File tempDir) {
+        if (inMemoryThreshold < 0) {
+            throw new IllegalArgumentException("In-memory threshold must not be negative");
+        }
+        this.inMemoryThreshold = inMemoryThreshold;
+        this.tempDir = tempDir;
+    }
+
+    public synchronized void write(byte[] b, int offset, int len) throws IOException {
+        if (closed) {
+            return;
+        }
+        if (file == null && size + len > inMemoryThreshold) {
+            spill();
+        }
+        if (file == null) {
+            memory.write(b, offset, len);
+        } else {
+            fileOut.write(b, offset, len);
+        }
+        size += len;
+    }
+
+    public synchronized void write(byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    private void spill() throws IOException {
+        file = File.createTempFile("externalized-", ".out", tempDir);
+        fileOut = new BufferedOutputStream(new FileOutputStream(file), FILE_BUFFER_SIZE);
+        memory.writeTo(fileOut);
+        memory = null;
+    }
+
+    /**
+     * Call this when all data has been written.
+     */
+    public synchronized void finish() throws IOException {
+        if (fileOut != null) {
+            fileOut.close();
+        }
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return true if the data has been moved to a temporary file
+     */
+    public synchronized boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * Open a stream to read the data from the start.
+     * Streams should be closed before the store is closed.
+     *
+     * @return a new input stream
+     */
+    public synchronized InputStream openInputStream() throws IOException {
+        checkNotClosed();
+        if (file == null) {
+            return memory.toInputStream();
+        } else {
+            return new BufferedInputStream(new FileInputStream(file), FILE_BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Copy all of the data into a byte array.
+     *
+     * @return the data
+     */
+    public synchronized byte[] toByteArray() throws IOException {
+        checkNotClosed();
+        if (file == null) {
+            return memory.toByteArray();
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Too much data to fit in a byte array: " + size + " bytes");
+        }
+        byte[] bytes = new byte[(int) size];
+        InputStream in = openInputStream();
+        try {
+            int offset = 0;
+            int bytesRead;
+            while (offset < bytes.length && (bytesRead = in.read(bytes, offset, bytes.length - offset)) != -1) {
+                offset += bytesRead;
+            }
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    /**
+     * Delete the temporary file, if there is one.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            finish();
+        } finally {
+            memory = null;
+            if (file != null && file.exists() && !file.delete()) {
+                throw new IOException("Failed to delete temporary file " + file);
+            }
+        }
+    }
+
+    private void checkNotClosed() throws IOException {
+        if (closed) {
+            throw new IOException("The store has been closed");
+        }
+    }
+
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+
+}
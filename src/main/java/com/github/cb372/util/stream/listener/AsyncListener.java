@@ -0,0 +1,271 @@
+package com.github.cb372.util.stream.listener;
+
+import com.github.cb372.util.stream.StreamProcessingExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * Base class for listeners that pass output on to other, possibly slow, listeners
+ * on a separate consumer thread, so that the stream processor never waits for them.
+ * </p>
+ * <p>
+ * Output is queued in a bounded ring buffer. Its slots are allocated up front,
+ * and each slot's data buffer is reused once it has been allocated,
+ * so queueing output does not allocate memory once the buffer has warmed up.
+ * When the buffer is full, the {@link OverflowPolicy} decides what happens,
+ * and any output that is thrown away is counted.
+ * </p>
+ * <p>
+ * The consumer runs on the {@link StreamProcessingExecutors#sharedPool() shared pool} while there is output queued,
+ * and gives its thread back to the pool whenever the buffer is empty, so a stream that fails without
+ * an end of stream does not hold on to a thread.
+ * The end of the stream is never dropped, and {@link #onEndOfStream()} waits until the listeners have
+ * received everything that was queued, so once a process has completed its listeners have seen all of its
+ * (undropped) output.
+ * </p>
+ *
+ * Author: chris
+ * Created: 10/18/26
+ *
+ * @param <B> type of the data buffers, e.g. char[]
+ */
+public abstract class AsyncListener<B> implements StreamListener {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncListener.class);
+
+    protected static final int DATA = 0;
+    protected static final int LINE = 1;
+    protected static final int END_OF_STREAM = 2;
+
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleRate;
+
+    private final int[] types;
+    private final String[] lines;
+    private final B[] buffers;
+    private final int[] lengths;
+    private final int capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition dispatched = lock.newCondition();
+    private int head = 0;
+    private int count = 0;
+    private boolean consuming = false;
+    private B spareBuffer = null;
+    private long overflowCount = 0;
+    private long endsOfStreamQueued = 0;
+    private long endsOfStreamDispatched = 0;
+
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    private final Runnable consumer = new Runnable() {
+        @Override
+        public void run() {
+            consume();
+        }
+    };
+
+    /**
+     * @param capacity number of pieces of output (runs of data or lines) that the buffer can hold. Must be at least 2.
+     * @param overflowPolicy what to do when the buffer is full
+     * @param sampleRate for {@link OverflowPolicy#Sample}, keep one in every sampleRate pieces of output
+     */
+    @SuppressWarnings("unchecked")
+    protected AsyncListener(int capacity, OverflowPolicy overflowPolicy, int sampleRate) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2");
+        }
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate must be at least 1");
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = sampleRate;
+        this.types = new int[capacity];
+        this.lines = new String[capacity];
+        this.buffers = (B[]) new Object[capacity];
+        this.lengths = new int[capacity];
+    }
+
+    /**
+     * @param size minimum size
+     * @return a new data buffer
+     */
+    protected abstract B newBuffer(int size);
+
+    /**
+     * @return the size of the data buffer
+     */
+    protected abstract int sizeOf(B buffer);
+
+    /**
+     * Pass a piece of output to the listeners. Called on the consumer thread.
+     *
+     * @param type {@link #DATA}, {@link #LINE} or {@link #END_OF_STREAM}
+     * @param line the line, for LINE
+     * @param buffer the data, for DATA. Only valid until this method returns.
+     * @param length the length of the data, for DATA
+     */
+    protected abstract void dispatch(int type, String line, B buffer, int length);
+
+    /**
+     * @return the number of pieces of output (runs of data or lines) that were thrown away because the buffer was full
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * Queue a run of data, which is copied into the buffer.
+     */
+    protected final void queueData(B data, int offset, int length) {
+        queue(DATA, null, data, offset, length);
+    }
+
+    /**
+     * Queue a line of output.
+     */
+    protected final void queueLine(String line) {
+        queue(LINE, line, null, 0, 0);
+    }
+
+    /**
+     * Queue the end of the stream, and wait until the listeners have received it.
+     */
+    @Override
+    public final void onEndOfStream() {
+        lock.lock();
+        try {
+            if (!queue(END_OF_STREAM, null, null, 0, 0)) {
+                return;
+            }
+            long target = ++endsOfStreamQueued;
+            while (endsOfStreamDispatched < target) {
+                dispatched.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return false if the output was dropped
+     */
+    private boolean queue(int type, String line, B data, int offset, int length) {
+        lock.lock();
+        try {
+            if (count == capacity && !makeRoom(type)) {
+                droppedEvents.incrementAndGet();
+                return false;
+            }
+            int tail = (head + count) % capacity;
+            types[tail] = type;
+            lines[tail] = line;
+            lengths[tail] = length;
+            if (type == DATA) {
+                B buffer = buffers[tail];
+                if (buffer == null || sizeOf(buffer) < length) {
+                    buffer = buffers[tail] = newBuffer(length);
+                }
+                System.arraycopy(data, offset, buffer, 0, length);
+            }
+            count++;
+            if (!consuming) {
+                consuming = true;
+                StreamProcessingExecutors.sharedPool().execute(consumer);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Make room in a full buffer, according to the overflow policy.
+     * @return false if the new output should be dropped instead
+     */
+    private boolean makeRoom(int type) {
+        OverflowPolicy policy = type == END_OF_STREAM ? OverflowPolicy.Block : overflowPolicy;
+        if (policy == OverflowPolicy.DropNewest) {
+            return false;
+        }
+        if (policy == OverflowPolicy.Sample && ++overflowCount % sampleRate != 0) {
+            return false;
+        }
+        if (policy != OverflowPolicy.Block && types[head] != END_OF_STREAM) {
+            lines[head] = null;
+            head = (head + 1) % capacity;
+            count--;
+            droppedEvents.incrementAndGet();
+            return true;
+        }
+        try {
+            while (count == capacity) {
+                notFull.await();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Take output from the buffer and pass it on, until the buffer is empty.
+     * The consumer swaps its spare data buffer with the slot's, so it can dispatch without holding the lock.
+     */
+    private void consume() {
+        while (true) {
+            int type;
+            String line;
+            int length;
+            B buffer = null;
+            lock.lock();
+            try {
+                if (count == 0) {
+                    // the next queued output starts a new consumer
+                    consuming = false;
+                    return;
+                }
+                type = types[head];
+                line = lines[head];
+                length = lengths[head];
+                if (type == DATA) {
+                    buffer = buffers[head];
+                    buffers[head] = spareBuffer;
+                    spareBuffer = buffer;
+                }
+                lines[head] = null;
+                head = (head + 1) % capacity;
+                count--;
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                dispatch(type, line, buffer, length);
+            } catch (Throwable e) {
+                logger.warn("Stream listener failed", e);
+            }
+
+            if (type == END_OF_STREAM) {
+                lock.lock();
+                try {
+                    endsOfStreamDispatched++;
+                    dispatched.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.github.cb372.util.stream.listener;
+
+/**
+ * What an {@link AsyncListener} does with new output when its buffer is full,
+ * i.e. when its listeners have fallen too far behind.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public enum OverflowPolicy {
+    /**
+     * Wait for the listeners to catch up. Nothing is lost,
+     * but the stream stops being read while the buffer is full.
+     */
+    Block,
+
+    /**
+     * Throw away the oldest output in the buffer to make room.
+     */
+    DropOldest,
+
+    /**
+     * Throw away the new output.
+     */
+    DropNewest,
+
+    /**
+     * Keep one in every N pieces of new output, throwing away the oldest output in the buffer to make room,
+     * and throw away the rest. Listeners that have fallen behind still see a sample of the latest output.
+     */
+    Sample
+}
@@ -0,0 +1,103 @@
+package com.github.cb372.util.stream.listener.binary;
+
+import com.github.cb372.util.stream.listener.AsyncListener;
+import com.github.cb372.util.stream.listener.OverflowPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * A listener that passes binary data on to a group of other listeners on a separate thread,
+ * through a bounded buffer, so that slow listeners never hold up reading the stream.
+ * </p>
+ * <p>
+ * The listeners in the group are called one after the other, on the same thread, in the order given.
+ * See {@link AsyncListener} for details.
+ * </p>
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class AsyncByteStreamListener extends AsyncListener<byte[]> implements ByteStreamListener {
+    private final ByteStreamListener[] listeners;
+
+    private AsyncByteStreamListener(List<ByteStreamListener> listeners, int capacity,
+                                    OverflowPolicy overflowPolicy, int sampleRate) {
+        super(capacity, overflowPolicy, sampleRate);
+        this.listeners = listeners.toArray(new ByteStreamListener[listeners.size()]);
+    }
+
+    public static Builder dispatchingTo(ByteStreamListener... listeners) {
+        return new Builder(Arrays.asList(listeners));
+    }
+
+    @Override
+    public void onBytes(byte[] b, int offset, int len) {
+        queueData(b, offset, len);
+    }
+
+    @Override
+    protected byte[] newBuffer(int size) {
+        return new byte[Math.max(size, 1024)];
+    }
+
+    @Override
+    protected int sizeOf(byte[] buffer) {
+        return buffer.length;
+    }
+
+    @Override
+    protected void dispatch(int type, String line, byte[] buffer, int length) {
+        if (type == DATA) {
+            for (ByteStreamListener listener : listeners) {
+                listener.onBytes(buffer, 0, length);
+            }
+        } else if (type == END_OF_STREAM) {
+            for (ByteStreamListener listener : listeners) {
+                listener.onEndOfStream();
+            }
+        }
+    }
+
+    public static class Builder {
+        private final List<ByteStreamListener> listeners;
+        private int capacity = 1024;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.Block;
+        private int sampleRate = 10;
+
+        public Builder(List<ByteStreamListener> listeners) {
+            this.listeners = new ArrayList<ByteStreamListener>(listeners);
+        }
+
+        /**
+         * Set the number of chunks of data that can be waiting for the listeners. Default is 1024.
+         */
+        public Builder withCapacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Set what to do when the listeners fall so far behind that the buffer is full.
+         * Default is {@link OverflowPolicy#Block}.
+         */
+        public Builder withOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Use {@link OverflowPolicy#Sample}, keeping one in every sampleRate chunks while the buffer is full.
+         */
+        public Builder sampling(int sampleRate) {
+            this.sampleRate = sampleRate;
+            return withOverflowPolicy(OverflowPolicy.Sample);
+        }
+
+        public AsyncByteStreamListener build() {
+            return new AsyncByteStreamListener(listeners, capacity, overflowPolicy, sampleRate);
+        }
+    }
+}
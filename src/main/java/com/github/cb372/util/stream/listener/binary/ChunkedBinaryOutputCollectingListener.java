@@ -0,0 +1,138 @@
+package com.github.cb372.util.stream.listener.binary;
+
+import com.github.cb372.util.stream.collector.ByteBuffers;
+import com.github.cb372.util.stream.collector.ChunkedBinaryOutputCollector;
+import com.github.cb372.util.stream.listener.OutputCollectingListener;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A listener that collects all output from a stream into a list of chunks.
+ * The first chunk is small, and each one is twice the size of the previous one,
+ * up to the maximum chunk size, so a few bytes of output do not cost a whole chunk.
+ *
+ * Unlike {@link BinaryOutputCollectingListener}, the data is never copied
+ * into a bigger array as it grows, and it can be read as buffers, a stream or a channel without copying.
+ * The chunks can optionally be allocated in direct memory, outside the Java heap.
+ *
+ * Warning: The amount of data that can be collected is unbounded.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class ChunkedBinaryOutputCollectingListener extends OutputCollectingListener
+                                                   implements ByteStreamListener, ChunkedBinaryOutputCollector {
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    private static final int FIRST_CHUNK_SIZE = 128;
+
+    private final int chunkSize;
+    private final boolean direct;
+    private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+    private ByteBuffer current = null;
+    private long size = 0;
+
+    public ChunkedBinaryOutputCollectingListener() {
+        this(DEFAULT_CHUNK_SIZE, false);
+    }
+
+    /**
+     * @param chunkSize maximum size of each chunk in bytes
+     * @param direct if true, allocate chunks in direct memory
+     */
+    public ChunkedBinaryOutputCollectingListener(int chunkSize, boolean direct) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be at least 1");
+        }
+        this.chunkSize = chunkSize;
+        this.direct = direct;
+    }
+
+    @Override
+    public void onBytes(byte[] b, int offset, int len) {
+        size += len;
+        while (len > 0) {
+            if (current == null || !current.hasRemaining()) {
+                int capacity = current == null
+                        ? Math.min(FIRST_CHUNK_SIZE, chunkSize)
+                        : (int) Math.min((long) current.capacity() * 2, chunkSize);
+                current = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+                chunks.add(current);
+            }
+            int n = Math.min(len, current.remaining());
+            current.put(b, offset, n);
+            offset += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public ByteBuffer[] getOutputBuffers() throws InterruptedException {
+        awaitCompletion();
+        return buffers();
+    }
+
+    @Override
+    public InputStream getOutputAsStream() throws InterruptedException {
+        return ByteBuffers.asInputStream(getOutputBuffers());
+    }
+
+    @Override
+    public ReadableByteChannel getOutputAsChannel() throws InterruptedException {
+        return ByteBuffers.asChannel(getOutputBuffers());
+    }
+
+    @Override
+    public long getOutputSize() throws InterruptedException {
+        awaitCompletion();
+        return size;
+    }
+
+    /**
+     * Copy the output into a single array.
+     * Use {@link #getOutputBuffers()} to avoid the copy.
+     */
+    @Override
+    public byte[] getBinaryOutput() throws InterruptedException {
+        awaitCompletion();
+        return toByteArray();
+    }
+
+    @Override
+    public byte[] getBinaryOutput(long time, TimeUnit timeUnit) throws InterruptedException {
+        if (awaitOutputCollection(time, timeUnit)) {
+            return toByteArray();
+        } else {
+            return new byte[0];
+        }
+    }
+
+    private ByteBuffer[] buffers() {
+        ByteBuffer[] buffers = new ByteBuffer[chunks.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            ByteBuffer buffer = chunks.get(i).asReadOnlyBuffer();
+            buffer.flip();
+            buffers[i] = buffer;
+        }
+        return buffers;
+    }
+
+    private byte[] toByteArray() {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too much output to fit in a byte array: " + size + " bytes");
+        }
+        byte[] bytes = new byte[(int) size];
+        int offset = 0;
+        for (ByteBuffer buffer : buffers()) {
+            int n = buffer.remaining();
+            buffer.get(bytes, offset, n);
+            offset += n;
+        }
+        return bytes;
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.github.cb372.util.stream.listener.binary;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A record of binary output, i.e. the bytes between two delimiters, as a slice of the stream processor's buffer.
+ * </p>
+ * <p>
+ * The same Record object and buffer are reused for the next record,
+ * so a Record is only valid during the {@link RecordListener#onRecord(Record)} call.
+ * Copy it with {@link #toByteArray()} or decode it with {@link #decode(Charset)} to keep it.
+ * </p>
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class Record {
+    private byte[] array;
+    private int offset;
+    private int length;
+
+    /**
+     * Point this record at a new slice. Used by the stream processor.
+     */
+    public void set(byte[] array, int offset, int length) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return the buffer containing the record. Do not modify it.
+     */
+    public byte[] array() {
+        return array;
+    }
+
+    /**
+     * @return offset of the first byte of the record in the buffer
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * @return number of bytes in the record, not including the delimiter
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @param index index within the record
+     * @return the byte
+     */
+    public byte byteAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " is outside the record of length " + length);
+        }
+        return array[offset + index];
+    }
+
+    /**
+     * @return a read-only view of the record
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(array, offset, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a copy of the record
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOfRange(array, offset, offset + length);
+    }
+
+    /**
+     * @param charset the record's encoding
+     * @return the record decoded as a String
+     */
+    public String decode(Charset charset) {
+        return new String(array, offset, length, charset);
+    }
+
+    @Override
+    public String toString() {
+        return "Record(" + length + " bytes)";
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.cb372.util.stream.listener.binary;
+
+import com.github.cb372.util.stream.listener.StreamListener;
+
+/**
+ * A listener for binary output that has been split into records on a delimiter byte,
+ * e.g. the NUL-separated output of {@code find -print0}.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public interface RecordListener extends StreamListener {
+
+    /**
+     * Called once for every record of output.
+     * @param record the record, without its delimiter. Only valid until this method returns.
+     */
+    public void onRecord(Record record);
+
+}
@@ -0,0 +1,141 @@
+package com.github.cb372.util.stream.listener.binary;
+
+import com.github.cb372.util.stream.collector.BinaryOutputCollector;
+import com.github.cb372.util.stream.collector.SpillingByteStore;
+import com.github.cb372.util.stream.listener.OutputCollectingListener;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A listener that collects all output from a stream, keeping it in memory
+ * up to a given size and then moving it to a temporary file.
+ *
+ * Use {@link #openInputStream()} to read the output without loading it all into memory.
+ * Call {@link #close()} when you have finished with the output, to delete the temporary file.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class SpillingBinaryOutputCollectingListener extends OutputCollectingListener
+                                                    implements ByteStreamListener, BinaryOutputCollector, Closeable {
+    private final SpillingByteStore store;
+    private IOException error = null;
+
+    /**
+     * @param inMemoryThreshold the maximum number of bytes to keep in memory
+     */
+    public SpillingBinaryOutputCollectingListener(long inMemoryThreshold) {
+        this(inMemoryThreshold, null);
+    }
+
+    /**
+     * @param inMemoryThreshold the maximum number of bytes to keep in memory
+     * @param tempDir the directory in which to create the temporary file,
+     *                or null to use the default temporary directory
+     */
+    public SpillingBinaryOutputCollectingListener(long inMemoryThreshold, File tempDir) {
+        this.store = new SpillingByteStore(inMemoryThreshold, tempDir);
+    }
+
+    @Override
+    public void onBytes(byte[] b, int offset, int len) {
+        if (error != null) {
+            return;
+        }
+        try {
+            store.write(b, offset, len);
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    @Override
+    public void onEndOfStream() {
+        try {
+            store.finish();
+        } catch (IOException e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+        super.onEndOfStream();
+    }
+
+    /**
+     * Open a stream to read all output, waiting until all output has been collected.
+     *
+     * @return a new input stream
+     * @throws IOException if the output could not be written to or read from the temporary file
+     * @throws InterruptedException
+     */
+    public InputStream openInputStream() throws IOException, InterruptedException {
+        awaitCompletion();
+        checkError();
+        return store.openInputStream();
+    }
+
+    /**
+     * Wait until all output has been collected.
+     *
+     * @return the number of bytes of output
+     * @throws InterruptedException
+     */
+    public long getSize() throws InterruptedException {
+        awaitCompletion();
+        return store.size();
+    }
+
+    /**
+     * @return true if the output was too big to keep in memory and has been moved to a temporary file
+     */
+    public boolean isSpilled() {
+        return store.isSpilled();
+    }
+
+    /**
+     * Warning: This loads all of the output into memory. Prefer {@link #openInputStream()} for large output.
+     */
+    @Override
+    public byte[] getBinaryOutput() throws InterruptedException {
+        awaitCompletion();
+        return toByteArray();
+    }
+
+    @Override
+    public byte[] getBinaryOutput(long time, TimeUnit timeUnit) throws InterruptedException {
+        if (awaitOutputCollection(time, timeUnit)) {
+            return toByteArray();
+        } else {
+            return new byte[0];
+        }
+    }
+
+    private byte[] toByteArray() {
+        try {
+            checkError();
+            return store.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read collected output", e);
+        }
+    }
+
+    private void checkError() throws IOException {
+        if (error != null) {
+            throw new IOException("Failed to collect output", error);
+        }
+    }
+
+    /**
+     * Delete the temporary file, if there is one.
+     * Any streams opened using {@link #openInputStream()} should be closed first.
+     */
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+
+}
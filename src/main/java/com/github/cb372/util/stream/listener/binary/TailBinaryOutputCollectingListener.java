@@ -0,0 +1,126 @@
+package com.github.cb372.util.stream.listener.binary;
+
+import com.github.cb372.util.stream.collector.ByteBuffers;
+import com.github.cb372.util.stream.collector.ChunkedBinaryOutputCollector;
+import com.github.cb372.util.stream.listener.OutputCollectingListener;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A listener that keeps only the last N bytes of output from a stream,
+ * in a fixed-size ring buffer.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class TailBinaryOutputCollectingListener extends OutputCollectingListener
+                                                implements ByteStreamListener, ChunkedBinaryOutputCollector {
+    private final byte[] ring;
+    private int next = 0;
+    private long byteCount = 0;
+
+    /**
+     * @param maxBytes number of bytes to keep
+     */
+    public TailBinaryOutputCollectingListener(int maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Number of bytes must be at least 1");
+        }
+        this.ring = new byte[maxBytes];
+    }
+
+    @Override
+    public void onBytes(byte[] b, int offset, int len) {
+        byteCount += len;
+        if (len > ring.length) {
+            // only the end of this chunk will survive
+            offset += len - ring.length;
+            len = ring.length;
+        }
+        int n = Math.min(len, ring.length - next);
+        System.arraycopy(b, offset, ring, next, n);
+        System.arraycopy(b, offset + n, ring, 0, len - n);
+        next = (next + len) % ring.length;
+    }
+
+    /**
+     * @return the total number of bytes seen, including those that have been discarded
+     * @throws InterruptedException
+     */
+    public long getByteCount() throws InterruptedException {
+        awaitCompletion();
+        return byteCount;
+    }
+
+    @Override
+    public ByteBuffer[] getOutputBuffers() throws InterruptedException {
+        awaitCompletion();
+        return buffers();
+    }
+
+    @Override
+    public InputStream getOutputAsStream() throws InterruptedException {
+        return ByteBuffers.asInputStream(getOutputBuffers());
+    }
+
+    @Override
+    public ReadableByteChannel getOutputAsChannel() throws InterruptedException {
+        return ByteBuffers.asChannel(getOutputBuffers());
+    }
+
+    @Override
+    public long getOutputSize() throws InterruptedException {
+        awaitCompletion();
+        return size();
+    }
+
+    /**
+     * Get the last bytes sent to the stream.
+     */
+    @Override
+    public byte[] getBinaryOutput() throws InterruptedException {
+        awaitCompletion();
+        return toByteArray();
+    }
+
+    @Override
+    public byte[] getBinaryOutput(long time, TimeUnit timeUnit) throws InterruptedException {
+        if (awaitOutputCollection(time, timeUnit)) {
+            return toByteArray();
+        } else {
+            return new byte[0];
+        }
+    }
+
+    private int size() {
+        return (int) Math.min(byteCount, ring.length);
+    }
+
+    /**
+     * The ring holds the tail in at most two pieces: from the oldest byte to the end of the array,
+     * then from the start of the array up to the newest byte.
+     */
+    private ByteBuffer[] buffers() {
+        if (byteCount < ring.length) {
+            return new ByteBuffer[] { ByteBuffer.wrap(ring, 0, next).asReadOnlyBuffer() };
+        }
+        return new ByteBuffer[] {
+                ByteBuffer.wrap(ring, next, ring.length - next).asReadOnlyBuffer(),
+                ByteBuffer.wrap(ring, 0, next).asReadOnlyBuffer()
+        };
+    }
+
+    private byte[] toByteArray() {
+        byte[] bytes = new byte[size()];
+        int offset = 0;
+        for (ByteBuffer buffer : buffers()) {
+            int n = buffer.remaining();
+            buffer.get(bytes, offset, n);
+            offset += n;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,168 @@
+package com.github.cb372.util.stream.listener.text;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * An Aho-Corasick automaton, which finds all occurrences of any number of literal strings
+ * in a single pass over the text.
+ *
+ * Each state's transitions are kept as a sorted array of characters, searched with binary search,
+ * and missing transitions are resolved by following failure links.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+final class AhoCorasick {
+    private static final int[] NONE = new int[0];
+
+    private char[][] keys = new char[16][];
+    private int[][] targets = new int[16][];
+    private int[] fail = new int[16];
+    /** indices of the literals that end at each state, including via failure links */
+    private int[][] outputs = new int[16][];
+    private int stateCount = 1;
+
+    /**
+     * @param literals the strings to search for. None may be empty.
+     */
+    AhoCorasick(List<String> literals) {
+        keys[0] = new char[0];
+        targets[0] = NONE;
+        outputs[0] = NONE;
+        for (int i = 0; i < literals.size(); i++) {
+            String literal = literals.get(i);
+            if (literal.isEmpty()) {
+                throw new IllegalArgumentException("Cannot match an empty string");
+            }
+            int state = 0;
+            for (int j = 0; j < literal.length(); j++) {
+                int next = transition(state, literal.charAt(j));
+                if (next < 0) {
+                    next = addState();
+                    addTransition(state, literal.charAt(j), next);
+                }
+                state = next;
+            }
+            outputs[state] = append(outputs[state], i);
+        }
+        buildFailureLinks();
+    }
+
+    /**
+     * Find which literals occur in the text.
+     *
+     * @param text text to search
+     * @param found set to true for each literal that occurs, by index
+     * @return the number of literals that were newly marked as found
+     */
+    int findAll(CharSequence text, boolean[] found) {
+        int newlyFound = 0;
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next < 0 ? 0 : next;
+            for (int literal : outputs[state]) {
+                if (!found[literal]) {
+                    found[literal] = true;
+                    newlyFound++;
+                }
+            }
+        }
+        return newlyFound;
+    }
+
+    private int transition(int state, char c) {
+        int i = Arrays.binarySearch(keys[state], c);
+        return i < 0 ? -1 : targets[state][i];
+    }
+
+    private int addState() {
+        if (stateCount == keys.length) {
+            int size = stateCount * 2;
+            keys = Arrays.copyOf(keys, size);
+            targets = Arrays.copyOf(targets, size);
+            fail = Arrays.copyOf(fail, size);
+            outputs = Arrays.copyOf(outputs, size);
+        }
+        keys[stateCount] = new char[0];
+        targets[stateCount] = NONE;
+        outputs[stateCount] = NONE;
+        return stateCount++;
+    }
+
+    private void addTransition(int state, char c, int target) {
+        int i = -(Arrays.binarySearch(keys[state], c) + 1);
+        char[] k = keys[state];
+        int[] t = targets[state];
+        char[] newKeys = new char[k.length + 1];
+        int[] newTargets = new int[t.length + 1];
+        System.arraycopy(k, 0, newKeys, 0, i);
+        System.arraycopy(t, 0, newTargets, 0, i);
+        newKeys[i] = c;
+        newTargets[i] = target;
+        System.arraycopy(k, i, newKeys, i + 1, k.length - i);
+        System.arraycopy(t, i, newTargets, i + 1, t.length - i);
+        keys[state] = newKeys;
+        targets[state] = newTargets;
+    }
+
+    /**
+     * Breadth-first, so that each state's failure state has been completed before it is used.
+     */
+    private void buildFailureLinks() {
+        Queue<Integer> queue = new ArrayDeque<Integer>();
+        for (int child : targets[0]) {
+            fail[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            for (int i = 0; i < keys[state].length; i++) {
+                char c = keys[state][i];
+                int child = targets[state][i];
+                int f = fail[state];
+                int next;
+                while ((next = transition(f, c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = next < 0 || next == child ? 0 : next;
+                outputs[child] = merge(outputs[child], outputs[fail[child]]);
+                queue.add(child);
+            }
+        }
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        List<Integer> merged = new ArrayList<Integer>();
+        for (int value : a) {
+            merged.add(value);
+        }
+        for (int value : b) {
+            if (!merged.contains(value)) {
+                merged.add(value);
+            }
+        }
+        int[] result = new int[merged.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = merged.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,167 @@
+package com.github.cb372.util.stream.listener.text;
+
+import com.github.cb372.util.stream.listener.AsyncListener;
+import com.github.cb372.util.stream.listener.OverflowPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * A listener that passes characters and lines on to a group of other listeners on a separate thread,
+ * through a bounded buffer, so that slow listeners never hold up reading the stream.
+ * </p>
+ * <p>
+ * e.g.
+ * </p>
+ * <pre>
+ *     consume().asText().withListener(
+ *         AsyncCharStreamListener.dispatchingTo(slowListener)
+ *             .withCapacity(4096)
+ *             .withOverflowPolicy(OverflowPolicy.DropOldest)
+ *             .build())
+ * </pre>
+ * <p>
+ * The listeners in the group are called one after the other, on the same thread, in the order given.
+ * See {@link AsyncListener} for details.
+ * </p>
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class AsyncCharStreamListener extends AsyncListener<char[]>
+                                           implements CharChunkListener, SelectiveCharStreamListener {
+    private final CharStreamListener[] charListeners;
+    private final CharStreamListener[] lineListeners;
+    private final CharStreamListener[] listeners;
+    private final char[] single = new char[1];
+
+    private AsyncCharStreamListener(List<CharStreamListener> listeners, int capacity,
+                                    OverflowPolicy overflowPolicy, int sampleRate) {
+        super(capacity, overflowPolicy, sampleRate);
+        List<CharStreamListener> charListeners = new ArrayList<CharStreamListener>();
+        List<CharStreamListener> lineListeners = new ArrayList<CharStreamListener>();
+        for (CharStreamListener listener : listeners) {
+            boolean selective = listener instanceof SelectiveCharStreamListener;
+            if (!selective || ((SelectiveCharStreamListener) listener).wantsChars()) {
+                charListeners.add(listener);
+            }
+            if (!selective || ((SelectiveCharStreamListener) listener).wantsLines()) {
+                lineListeners.add(listener);
+            }
+        }
+        this.charListeners = charListeners.toArray(new CharStreamListener[charListeners.size()]);
+        this.lineListeners = lineListeners.toArray(new CharStreamListener[lineListeners.size()]);
+        this.listeners = listeners.toArray(new CharStreamListener[listeners.size()]);
+    }
+
+    public static Builder dispatchingTo(CharStreamListener... listeners) {
+        return new Builder(Arrays.asList(listeners));
+    }
+
+    @Override
+    public boolean wantsChars() {
+        return charListeners.length > 0;
+    }
+
+    @Override
+    public boolean wantsLines() {
+        return lineListeners.length > 0;
+    }
+
+    @Override
+    public void onChars(char[] c, int offset, int len) {
+        queueData(c, offset, len);
+    }
+
+    @Override
+    public void onChar(char c) {
+        // only called by stream processors that do not know about CharChunkListener, i.e. from one thread
+        single[0] = c;
+        queueData(single, 0, 1);
+    }
+
+    @Override
+    public void onLine(String line) {
+        queueLine(line);
+    }
+
+    @Override
+    protected char[] newBuffer(int size) {
+        return new char[Math.max(size, 1024)];
+    }
+
+    @Override
+    protected int sizeOf(char[] buffer) {
+        return buffer.length;
+    }
+
+    @Override
+    protected void dispatch(int type, String line, char[] buffer, int length) {
+        switch (type) {
+            case DATA:
+                for (CharStreamListener listener : charListeners) {
+                    if (listener instanceof CharChunkListener) {
+                        ((CharChunkListener) listener).onChars(buffer, 0, length);
+                    } else {
+                        for (int i = 0; i < length; i++) {
+                            listener.onChar(buffer[i]);
+                        }
+                    }
+                }
+                break;
+            case LINE:
+                for (CharStreamListener listener : lineListeners) {
+                    listener.onLine(line);
+                }
+                break;
+            case END_OF_STREAM:
+                for (CharStreamListener listener : listeners) {
+                    listener.onEndOfStream();
+                }
+                break;
+        }
+    }
+
+    public static class Builder {
+        private final List<CharStreamListener> listeners;
+        private int capacity = 1024;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.Block;
+        private int sampleRate = 10;
+
+        public Builder(List<CharStreamListener> listeners) {
+            this.listeners = new ArrayList<CharStreamListener>(listeners);
+        }
+
+        /**
+         * Set the number of pieces of output (runs of characters or lines) that can be waiting
+         * for the listeners. Default is 1024.
+         */
+        public Builder withCapacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Set what to do when the listeners fall so far behind that the buffer is full.
+         * Default is {@link OverflowPolicy#Block}.
+         */
+        public Builder withOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Use {@link OverflowPolicy#Sample}, keeping one in every sampleRate pieces of output while the buffer is full.
+         */
+        public Builder sampling(int sampleRate) {
+            this.sampleRate = sampleRate;
+            return withOverflowPolicy(OverflowPolicy.Sample);
+        }
+
+        public AsyncCharStreamListener build() {
+            return new AsyncCharStreamListener(listeners, capacity, overflowPolicy, sampleRate);
+        }
+    }
+}
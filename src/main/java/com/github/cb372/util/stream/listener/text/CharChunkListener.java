@@ -0,0 +1,27 @@
+package com.github.cb372.util.stream.listener.text;
+
+/**
+ * A {@link CharStreamListener} that can receive characters in bulk.
+ *
+ * If a listener implements this interface, the stream processor will call
+ * {@link #onChars(char[], int, int)} instead of calling {@link #onChar(char)}
+ * once for every character.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public interface CharChunkListener extends CharStreamListener {
+
+    /**
+     * Called with a run of characters of output, including newline characters.
+     *
+     * The array is reused by the stream processor, so listeners must copy
+     * any characters that they want to keep after this method returns.
+     *
+     * @param c buffer containing the characters
+     * @param offset offset of the first character in the buffer
+     * @param len number of characters
+     */
+    public void onChars(char[] c, int offset, int len);
+
+}
@@ -0,0 +1,196 @@
+package com.github.cb372.util.stream.listener.text;
+
+import com.github.cb372.util.stream.IOExceptionHandler;
+import com.github.cb372.util.stream.StreamProcessingException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A listener that lets you iterate over lines of output as they arrive.
+ *
+ * Lines are passed from the stream processing thread to the consumer through a bounded queue.
+ * When the queue is full, the stream processing thread stops reading until the consumer catches up,
+ * so a process that writes faster than its output is consumed will block, rather than the output piling up in memory.
+ * For the same reason, do not process the stream using a {@link com.github.cb372.util.stream.StreamMultiplexer},
+ * as a slow consumer would hold up all the other streams that it is processing.
+ *
+ * {@link #hasNext()} blocks until a line is available or the stream ends.
+ * If the stream could not be read, it throws a {@link StreamProcessingException},
+ * as long as this iterator is also registered as the stream's {@link IOExceptionHandler}.
+ *
+ * If you process the stream yourself, call {@link #onStreamProcessingFinished()} once processing has stopped,
+ * e.g. from the callback passed to
+ * {@link com.github.cb372.util.stream.StreamProcessingThreadBuilder.CharStreamProcessingThreadBuilder#start(java.io.InputStream, Process, Runnable)},
+ * so that the iteration ends even if another listener threw an exception before the end of the stream.
+ * {@link com.github.cb372.util.process.ExternalProcessBuilder} does this for you.
+ *
+ * If you stop iterating before the stream ends, call {@link #close()}
+ * so that the rest of the output is discarded rather than blocking the process.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class LineIterator implements Iterator<String>, Closeable,
+                                     CharChunkListener, SelectiveCharStreamListener, IOExceptionHandler {
+    private static final String END = new String("<end of stream>");
+
+    private final BlockingQueue<String> queue;
+    private volatile boolean closed = false;
+    private volatile boolean ended = false;
+    private volatile IOException error = null;
+    private String next = null;
+    private boolean finished = false;
+
+    /**
+     * @param capacity maximum number of lines waiting to be consumed
+     */
+    public LineIterator(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.queue = new ArrayBlockingQueue<String>(capacity);
+    }
+
+    @Override
+    public void onChar(char c) {
+        // do nothing
+    }
+
+    @Override
+    public void onChars(char[] c, int offset, int len) {
+        // do nothing
+    }
+
+    @Override
+    public boolean wantsChars() {
+        return false;
+    }
+
+    @Override
+    public boolean wantsLines() {
+        return true;
+    }
+
+    @Override
+    public void onLine(String line) {
+        put(line);
+    }
+
+    @Override
+    public void onEndOfStream() {
+        end(null);
+    }
+
+    @Override
+    public void handle(IOException e) {
+        end(e);
+    }
+
+    /**
+     * Called once stream processing has stopped, however it stopped.
+     * If the end of the stream was not reached, the iteration ends with a {@link StreamProcessingException}.
+     */
+    public void onStreamProcessingFinished() {
+        end(new IOException("Stream processing stopped before the end of the stream"));
+    }
+
+    /**
+     * Wait for space in the queue. This is what stops the stream being read
+     * while the consumer is falling behind.
+     * If the wait is interrupted, the line cannot be passed on, so the iteration ends with an error.
+     */
+    private void put(String line) {
+        if (closed || ended) {
+            return;
+        }
+        try {
+            queue.put(line);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            end(new InterruptedIOException("Interrupted while waiting for the output to be consumed"));
+        }
+    }
+
+    /**
+     * Queue the end of the iteration, unless it has already been queued.
+     * This waits for space in the queue even if the thread is interrupted,
+     * as otherwise the consumer would wait forever.
+     */
+    private synchronized void end(IOException e) {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        error = e;
+        boolean interrupted = Thread.interrupted();
+        try {
+            while (!closed) {
+                try {
+                    queue.put(END);
+                    break;
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            String line;
+            try {
+                line = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StreamProcessingException("Interrupted while waiting for output", e);
+            }
+            if (line == END) {
+                finished = true;
+            } else {
+                next = line;
+            }
+        }
+        if (finished && error != null && !closed) {
+            throw new StreamProcessingException("Failed to read output", error);
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String line = next;
+        next = null;
+        return line;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stop iterating. Any remaining output will be discarded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        finished = true;
+        next = null;
+        // unblock the stream processing thread if it is waiting for space
+        queue.clear();
+    }
+}
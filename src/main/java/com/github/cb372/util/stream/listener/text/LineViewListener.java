@@ -0,0 +1,25 @@
+package com.github.cb372.util.stream.listener.text;
+
+/**
+ * A {@link CharStreamListener} that can receive lines without a String being created for each one.
+ *
+ * If a listener implements this interface, the stream processor will call
+ * {@link #onLineView(CharSequence)} instead of {@link #onLine(String)}.
+ * If no listener needs a String, lines are never copied out of the processor's line buffer.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public interface LineViewListener extends CharStreamListener {
+
+    /**
+     * Called once for every line of output.
+     *
+     * The view is a read-only window onto the stream processor's line buffer, which is reused for the next line,
+     * so it is only valid until this method returns. Call toString() on it to keep a copy of the line.
+     *
+     * @param line line (does not include newline characters)
+     */
+    public void onLineView(CharSequence line);
+
+}
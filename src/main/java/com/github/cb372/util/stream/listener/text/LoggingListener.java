@@ -2,13 +2,25 @@ package com.github.cb372.util.stream.listener.text;
 
 import org.slf4j.Logger;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
 /**
+ * <p>
  * A stream listener that logs every line of output to a supplied Slf4j logger.
+ * </p>
+ * <p>
+ * Nothing is done for a line if the log level is disabled, not even copying it out of the stream processor's buffer.
+ * Optionally, lines can be batched, so that a burst of lines becomes a single log event,
+ * and rate-limited, so that a noisy process cannot flood the logs.
+ * </p>
  *
  * Author: chris
  * Created: 4/5/13
  */
-public final class LoggingListener extends StreamLineListener {
+public final class LoggingListener extends StreamLineListener implements LineViewListener {
     public enum LogLevel {
         Trace, Debug, Info, Warn, Error
     }
@@ -17,15 +29,153 @@ public final class LoggingListener extends StreamLineListener {
     private final LogLevel level;
     private final String prefix;
 
+    private final int batchLines;
+    private final long batchNanos;
+    private final int rateLimitLines;
+    private final long rateLimitNanos;
+
+    // batching state
+    private final StringBuilder batch = new StringBuilder();
+    private int batchedLines = 0;
+    private long batchGeneration = 0;
+
+    // rate limiting state
+    private long periodStart = 0;
+    private int linesInPeriod = 0;
+    private long suppressedLines = 0;
+
     public LoggingListener(Logger logger, LogLevel level, String prefix) {
+        this(logger, level, prefix, 1, 0, 0, 0);
+    }
+
+    private LoggingListener(Logger logger, LogLevel level, String prefix,
+                            int batchLines, long batchNanos, int rateLimitLines, long rateLimitNanos) {
         this.logger = logger;
         this.level = level;
         this.prefix = prefix;
+        this.batchLines = batchLines;
+        this.batchNanos = batchNanos;
+        this.rateLimitLines = rateLimitLines;
+        this.rateLimitNanos = rateLimitNanos;
+    }
+
+    @Override
+    public void onLineView(CharSequence line) {
+        if (isEnabled()) {
+            onLine(line.toString());
+        }
     }
 
     @Override
     public void onLine(String line) {
-        String log = prefix + line;
+        if (!isEnabled()) {
+            return;
+        }
+        if (batchLines <= 1 && rateLimitLines == 0) {
+            log(prefix.isEmpty() ? line : prefix + line);
+            return;
+        }
+        synchronized (this) {
+            if (rateLimitLines > 0 && !withinRateLimit()) {
+                return;
+            }
+            addToBatch(line);
+        }
+    }
+
+    @Override
+    public synchronized void onEndOfStream() {
+        flushBatch();
+        logSuppressedLines();
+    }
+
+    /**
+     * Count the line against the rate limit, starting a new period if the current one is over.
+     * @return false if the line should be suppressed
+     */
+    private boolean withinRateLimit() {
+        long now = System.nanoTime();
+        if (linesInPeriod == 0 || now - periodStart >= rateLimitNanos) {
+            flushBatch();
+            logSuppressedLines();
+            periodStart = now;
+            linesInPeriod = 0;
+        }
+        if (linesInPeriod == rateLimitLines) {
+            suppressedLines++;
+            return false;
+        }
+        linesInPeriod++;
+        return true;
+    }
+
+    private void logSuppressedLines() {
+        if (suppressedLines > 0 && isEnabled()) {
+            log(prefix + suppressedLines + " lines suppressed");
+        }
+        suppressedLines = 0;
+    }
+
+    private void addToBatch(String line) {
+        if (batchLines <= 1) {
+            log(prefix + line);
+            return;
+        }
+        if (batchedLines > 0) {
+            batch.append('\n');
+        }
+        batch.append(prefix).append(line);
+        batchedLines++;
+        if (batchedLines == batchLines) {
+            flushBatch();
+        } else if (batchedLines == 1 && batchNanos > 0) {
+            scheduleFlush(batchGeneration);
+        }
+    }
+
+    private void flushBatch() {
+        if (batchedLines == 0) {
+            return;
+        }
+        log(batch.toString());
+        batch.setLength(0);
+        batchedLines = 0;
+        batchGeneration++;
+    }
+
+    /**
+     * Flush the current batch once it is old enough, unless it has been flushed already.
+     */
+    private void scheduleFlush(final long generation) {
+        FlushTimerHolder.TIMER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (LoggingListener.this) {
+                    if (batchGeneration == generation) {
+                        flushBatch();
+                    }
+                }
+            }
+        }, batchNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private boolean isEnabled() {
+        switch (level) {
+            case Trace:
+                return logger.isTraceEnabled();
+            case Debug:
+                return logger.isDebugEnabled();
+            case Info:
+                return logger.isInfoEnabled();
+            case Warn:
+                return logger.isWarnEnabled();
+            case Error:
+                return logger.isErrorEnabled();
+        }
+        return false;
+    }
+
+    private void log(String log) {
         switch (level) {
             case Trace:
                 logger.trace(log);
@@ -45,10 +195,25 @@ public final class LoggingListener extends StreamLineListener {
         }
     }
 
+    private static final class FlushTimerHolder {
+        static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "LoggingListener-flush");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
     public static class Builder {
         private final Logger logger;
         private LogLevel level = LogLevel.Info;
         private String prefix = "";
+        private int batchLines = 1;
+        private long batchNanos = 0;
+        private int rateLimitLines = 0;
+        private long rateLimitNanos = 0;
 
         public Builder(Logger logger) {
             this.logger = logger;
@@ -84,8 +249,44 @@ public final class LoggingListener extends StreamLineListener {
             return this;
         }
 
+        /**
+         * Log bursts of lines as a single log event, with the lines separated by newlines.
+         * A batch is logged once it has maxLines lines, once its first line is maxDelay old,
+         * or at the end of the stream, whichever comes first.
+         *
+         * @param maxLines maximum number of lines in a log event
+         * @param maxDelay maximum time to hold on to a line before logging it
+         * @param unit unit of maxDelay
+         */
+        public Builder batching(int maxLines, long maxDelay, TimeUnit unit) {
+            if (maxLines < 1) {
+                throw new IllegalArgumentException("Batches must have at least 1 line");
+            }
+            this.batchLines = maxLines;
+            this.batchNanos = unit.toNanos(maxDelay);
+            return this;
+        }
+
+        /**
+         * Log at most maxLines lines per period. Further lines are dropped,
+         * and a "N lines suppressed" message is logged when the next period starts
+         * or at the end of the stream.
+         *
+         * @param maxLines maximum number of lines to log per period
+         * @param period length of a period
+         * @param unit unit of period
+         */
+        public Builder rateLimitedTo(int maxLines, long period, TimeUnit unit) {
+            if (maxLines < 1) {
+                throw new IllegalArgumentException("Rate limit must be at least 1 line");
+            }
+            this.rateLimitLines = maxLines;
+            this.rateLimitNanos = unit.toNanos(period);
+            return this;
+        }
+
         public LoggingListener build() {
-            return new LoggingListener(logger, level, prefix);
+            return new LoggingListener(logger, level, prefix, batchLines, batchNanos, rateLimitLines, rateLimitNanos);
         }
 
         public Builder atTraceLevel() {
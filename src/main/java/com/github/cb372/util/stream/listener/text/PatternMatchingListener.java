@@ -0,0 +1,351 @@
+package com.github.cb372.util.stream.listener.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * <p>
+ * A stream listener that watches the output for any number of literal strings and regular expressions,
+ * e.g. a readiness marker such as "Server started" and some error signatures.
+ * </p>
+ * <p>
+ * All the literals are found in a single pass over each line, using an Aho-Corasick automaton.
+ * Regular expressions without capturing groups, flags or quoting are combined into one alternation,
+ * so lines that match none of them are also rejected in a single pass;
+ * they are only tried one by one on lines where at least one of them matches.
+ * Lines are read through a {@link LineViewListener line view}, and nothing is allocated for a line
+ * unless it matches.
+ * </p>
+ * <p>
+ * Callbacks are called on the stream processing thread for every line that matches a pattern.
+ * Use {@link #awaitMatch(String, long, TimeUnit)} to wait for the first match of a pattern, e.g.
+ * </p>
+ * <pre>
+ *     PatternMatchingListener matcher = new PatternMatchingListener.Builder()
+ *         .literal("Server started")
+ *         .regex("ERROR \\[\\w+\\]")
+ *         .build();
+ *     ExternalProcess process = command("...")
+ *         .processStdOut(consume().asText().withListener(matcher))
+ *         .start();
+ *     if (matcher.awaitMatch("Server started", 30, TimeUnit.SECONDS) == null) {
+ *         // timed out, or the process exited without starting
+ *     }
+ * </pre>
+ * <p>
+ * The same listener can be added to more than one stream, e.g. to both stdout and stderr.
+ * The matchers are reused from line to line, so lines are matched one at a time, whichever stream they come from.
+ * Callbacks are therefore never called concurrently, and line numbers count the lines of all the streams together.
+ * {@link #awaitMatch(String, long, TimeUnit)} stops waiting as soon as any one of the streams ends.
+ * </p>
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class PatternMatchingListener extends StreamLineListener implements LineViewListener {
+
+    public interface Callback {
+        void onMatch(Match match);
+    }
+
+    /**
+     * A line that matched a pattern.
+     */
+    public static final class Match {
+        private final String pattern;
+        private final String line;
+        private final long lineNumber;
+
+        private Match(String pattern, String line, long lineNumber) {
+            this.pattern = pattern;
+            this.line = line;
+            this.lineNumber = lineNumber;
+        }
+
+        /**
+         * @return the pattern, as it was given to the builder
+         */
+        public String getPattern() {
+            return pattern;
+        }
+
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * @return the line's position in the output, starting from 1
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        @Override
+        public String toString() {
+            return "Match(" + pattern + " at line " + lineNumber + ": " + line + ")";
+        }
+    }
+
+    // quotes and inline flags, e.g. a (?x) comment, can run on past the end of a regex within an alternation
+    private static final Pattern UNSAFE_TO_COMBINE = Pattern.compile("\\\\Q|\\(\\?[a-zA-Z-]+[:)]");
+
+    private final String[] patterns;
+    private final Map<String, Integer> patternIndices = new HashMap<String, Integer>();
+    private final List<Callback> callbacks;
+
+    private final AhoCorasick literals;
+    private final int[] literalPatterns;
+    private final boolean[] literalsFound;
+
+    private final Matcher combinedRegex;
+    private final Matcher[] combinedRegexes;
+    private final int[] combinedRegexPatterns;
+    private final Matcher[] otherRegexes;
+    private final int[] otherRegexPatterns;
+
+    private final Match[] firstMatches;
+    private boolean ended = false;
+
+    // guards the matchers, literalsFound and lineNumber, which are shared by all the streams
+    private final Object matchLock = new Object();
+    private long lineNumber = 0;
+
+    private PatternMatchingListener(List<String> literals, List<Pattern> regexes, List<Callback> callbacks) {
+        this.callbacks = new ArrayList<Callback>(callbacks);
+        this.patterns = new String[literals.size() + regexes.size()];
+        this.firstMatches = new Match[patterns.length];
+
+        this.literals = literals.isEmpty() ? null : new AhoCorasick(literals);
+        this.literalPatterns = new int[literals.size()];
+        this.literalsFound = new boolean[literals.size()];
+        for (int i = 0; i < literals.size(); i++) {
+            literalPatterns[i] = addPattern(literals.get(i));
+        }
+
+        List<Pattern> combined = new ArrayList<Pattern>();
+        List<Pattern> others = new ArrayList<Pattern>();
+        List<Integer> combinedIndices = new ArrayList<Integer>();
+        List<Integer> otherIndices = new ArrayList<Integer>();
+        for (Pattern regex : regexes) {
+            int index = addPattern(regex.pattern());
+            // capturing groups would renumber backreferences, and flags would apply to the whole alternation
+            if (regex.matcher("").groupCount() == 0 && regex.flags() == 0
+                    && !UNSAFE_TO_COMBINE.matcher(regex.pattern()).find()) {
+                combined.add(regex);
+                combinedIndices.add(index);
+            } else {
+                others.add(regex);
+                otherIndices.add(index);
+            }
+        }
+        Pattern alternation = combine(combined);
+        if (alternation == null) {
+            others.addAll(combined);
+            otherIndices.addAll(combinedIndices);
+            combined.clear();
+            combinedIndices.clear();
+        }
+        this.combinedRegex = alternation == null ? null : alternation.matcher("");
+        this.combinedRegexes = matchers(combined);
+        this.combinedRegexPatterns = toArray(combinedIndices);
+        this.otherRegexes = matchers(others);
+        this.otherRegexPatterns = toArray(otherIndices);
+    }
+
+    private int addPattern(String pattern) {
+        int index = patternIndices.size();
+        if (patternIndices.put(pattern, index) != null) {
+            throw new IllegalArgumentException("Duplicate pattern: " + pattern);
+        }
+        patterns[index] = pattern;
+        return index;
+    }
+
+    @Override
+    public void onLine(String line) {
+        onLineView(line);
+    }
+
+    @Override
+    public void onLineView(CharSequence line) {
+        synchronized (matchLock) {
+            match(line);
+        }
+    }
+
+    private void match(CharSequence line) {
+        lineNumber++;
+        if (literals != null && literals.findAll(line, literalsFound) > 0) {
+            for (int i = 0; i < literalsFound.length; i++) {
+                if (literalsFound[i]) {
+                    literalsFound[i] = false;
+                    matched(literalPatterns[i], line);
+                }
+            }
+        }
+        if (combinedRegex != null && combinedRegex.reset(line).find()) {
+            if (combinedRegexes.length == 1) {
+                matched(combinedRegexPatterns[0], line);
+            } else {
+                for (int i = 0; i < combinedRegexes.length; i++) {
+                    if (combinedRegexes[i].reset(line).find()) {
+                        matched(combinedRegexPatterns[i], line);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < otherRegexes.length; i++) {
+            if (otherRegexes[i].reset(line).find()) {
+                matched(otherRegexPatterns[i], line);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onEndOfStream() {
+        ended = true;
+        notifyAll();
+    }
+
+    private void matched(int pattern, CharSequence line) {
+        Match match = new Match(patterns[pattern], line.toString(), lineNumber);
+        synchronized (this) {
+            if (firstMatches[pattern] == null) {
+                firstMatches[pattern] = match;
+                notifyAll();
+            }
+        }
+        for (Callback callback : callbacks) {
+            callback.onMatch(match);
+        }
+    }
+
+    /**
+     * @param pattern a pattern that was given to the builder
+     * @return the first line that matched the pattern, or null if none has matched yet
+     */
+    public synchronized Match getFirstMatch(String pattern) {
+        return firstMatches[indexOf(pattern)];
+    }
+
+    /**
+     * Wait for a line to match the pattern. Returns immediately if a line has already matched it.
+     *
+     * @param pattern a pattern that was given to the builder
+     * @param timeout maximum time to wait
+     * @param unit unit of timeout
+     * @return the first line that matched the pattern,
+     * or null if the timeout expired or the stream ended without a match
+     * @throws InterruptedException
+     */
+    public synchronized Match awaitMatch(String pattern, long timeout, TimeUnit unit) throws InterruptedException {
+        int index = indexOf(pattern);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (firstMatches[index] == null && !ended) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return firstMatches[index];
+    }
+
+    private int indexOf(String pattern) {
+        Integer index = patternIndices.get(pattern);
+        if (index == null) {
+            throw new IllegalArgumentException("Not one of the listener's patterns: " + pattern);
+        }
+        return index;
+    }
+
+    /**
+     * @return the alternation, or null if there are no regexes or they cannot be combined
+     */
+    private static Pattern combine(List<Pattern> regexes) {
+        if (regexes.isEmpty()) {
+            return null;
+        }
+        if (regexes.size() == 1) {
+            return regexes.get(0);
+        }
+        StringBuilder alternation = new StringBuilder();
+        for (Pattern regex : regexes) {
+            if (alternation.length() > 0) {
+                alternation.append('|');
+            }
+            alternation.append("(?:").append(regex.pattern()).append(')');
+        }
+        try {
+            return Pattern.compile(alternation.toString());
+        } catch (PatternSyntaxException e) {
+            // valid on their own, but not together, e.g. a quote or comment that runs on into the next regex
+            return null;
+        }
+    }
+
+    private static Matcher[] matchers(List<Pattern> regexes) {
+        Matcher[] matchers = new Matcher[regexes.size()];
+        for (int i = 0; i < matchers.length; i++) {
+            matchers[i] = regexes.get(i).matcher("");
+        }
+        return matchers;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    public static class Builder {
+        private final List<String> literals = new ArrayList<String>();
+        private final List<Pattern> regexes = new ArrayList<Pattern>();
+        private final List<Callback> callbacks = new ArrayList<Callback>();
+
+        /**
+         * Watch for lines containing the given strings.
+         */
+        public Builder literal(String... literals) {
+            this.literals.addAll(Arrays.asList(literals));
+            return this;
+        }
+
+        /**
+         * Watch for lines containing a match for the given regular expression.
+         */
+        public Builder regex(String regex) {
+            return regex(Pattern.compile(regex));
+        }
+
+        /**
+         * Watch for lines containing a match for the given regular expression.
+         */
+        public Builder regex(Pattern regex) {
+            this.regexes.add(regex);
+            return this;
+        }
+
+        /**
+         * Call the callback for every line that matches a pattern.
+         * A line that matches several patterns is passed to the callback once for each pattern.
+         */
+        public Builder onMatch(Callback callback) {
+            this.callbacks.add(callback);
+            return this;
+        }
+
+        public PatternMatchingListener build() {
+            return new PatternMatchingListener(literals, regexes, callbacks);
+        }
+    }
+}
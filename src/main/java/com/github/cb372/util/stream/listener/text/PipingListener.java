@@ -8,7 +8,7 @@ import java.io.PrintStream;
  * Author: chris
  * Created: 4/5/13
  */
-public final class PipingListener implements CharStreamListener {
+public final class PipingListener implements CharChunkListener, SelectiveCharStreamListener {
     private final PrintStream out;
 
     public PipingListener(PrintStream out) {
@@ -17,7 +17,12 @@ public final class PipingListener implements CharStreamListener {
 
     @Override
     public void onChar(char c) {
-        out.write((int) c);
+        out.print(c);
+    }
+
+    @Override
+    public void onChars(char[] c, int offset, int len) {
+        out.print(new String(c, offset, len));
     }
 
     @Override
@@ -25,6 +30,16 @@ public final class PipingListener implements CharStreamListener {
         // do nothing
     }
 
+    @Override
+    public boolean wantsChars() {
+        return true;
+    }
+
+    @Override
+    public boolean wantsLines() {
+        return false;
+    }
+
     @Override
     public void onEndOfStream() {
         // do nothing
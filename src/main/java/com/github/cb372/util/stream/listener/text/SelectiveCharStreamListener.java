@@ -0,0 +1,25 @@
+package com.github.cb372.util.stream.listener.text;
+
+/**
+ * A {@link CharStreamListener} that declares which callbacks it actually uses.
+ *
+ * The stream processor uses this to skip work that no listener needs,
+ * e.g. it will not build lines if none of its listeners want them.
+ * Listeners that do not implement this interface receive both characters and lines.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public interface SelectiveCharStreamListener extends CharStreamListener {
+
+    /**
+     * @return false if this listener ignores {@link #onChar(char)}
+     */
+    public boolean wantsChars();
+
+    /**
+     * @return false if this listener ignores {@link #onLine(String)}
+     */
+    public boolean wantsLines();
+
+}
@@ -0,0 +1,183 @@
+package com.github.cb372.util.stream.listener.text;
+
+import com.github.cb372.util.stream.collector.SpillingByteStore;
+import com.github.cb372.util.stream.collector.TextOutputCollector;
+import com.github.cb372.util.stream.listener.OutputCollectingListener;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A listener that collects all lines of output from a stream, keeping them in memory
+ * up to a given size and then moving them to a temporary file.
+ *
+ * Use {@link #openReader()} to read the output line by line without loading it all into memory.
+ * Call {@link #close()} when you have finished with the output, to delete the temporary file.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class SpillingTextOutputCollectingListener extends OutputCollectingListener
+                                                  implements CharChunkListener, SelectiveCharStreamListener,
+                                                             TextOutputCollector, Closeable {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final byte[] NEWLINE = { '\n' };
+
+    private final SpillingByteStore store;
+    private long lineCount = 0;
+    private IOException error = null;
+
+    /**
+     * @param inMemoryThreshold the maximum number of bytes to keep in memory
+     */
+    public SpillingTextOutputCollectingListener(long inMemoryThreshold) {
+        this(inMemoryThreshold, null);
+    }
+
+    /**
+     * @param inMemoryThreshold the maximum number of bytes to keep in memory
+     * @param tempDir the directory in which to create the temporary file,
+     *                or null to use the default temporary directory
+     */
+    public SpillingTextOutputCollectingListener(long inMemoryThreshold, File tempDir) {
+        this.store = new SpillingByteStore(inMemoryThreshold, tempDir);
+    }
+
+    @Override
+    public void onChar(char c) {
+        // do nothing
+    }
+
+    @Override
+    public void onChars(char[] c, int offset, int len) {
+        // do nothing
+    }
+
+    @Override
+    public void onLine(String line) {
+        if (error != null) {
+            return;
+        }
+        try {
+            // Lines never contain newline characters, so they can be stored newline-separated
+            store.write(line.getBytes(UTF8));
+            store.write(NEWLINE);
+            lineCount++;
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    @Override
+    public void onEndOfStream() {
+        try {
+            store.finish();
+        } catch (IOException e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+        super.onEndOfStream();
+    }
+
+    @Override
+    public boolean wantsChars() {
+        return false;
+    }
+
+    @Override
+    public boolean wantsLines() {
+        return true;
+    }
+
+    /**
+     * Open a reader to read all output line by line, waiting until all output has been collected.
+     *
+     * @return a new reader
+     * @throws IOException if the output could not be written to or read from the temporary file
+     * @throws InterruptedException
+     */
+    public BufferedReader openReader() throws IOException, InterruptedException {
+        awaitCompletion();
+        checkError();
+        return new BufferedReader(new InputStreamReader(store.openInputStream(), UTF8));
+    }
+
+    /**
+     * Wait until all output has been collected.
+     *
+     * @return the number of lines of output
+     * @throws InterruptedException
+     */
+    public long getLineCount() throws InterruptedException {
+        awaitCompletion();
+        return lineCount;
+    }
+
+    /**
+     * @return true if the output was too big to keep in memory and has been moved to a temporary file
+     */
+    public boolean isSpilled() {
+        return store.isSpilled();
+    }
+
+    /**
+     * Warning: This loads all of the output into memory. Prefer {@link #openReader()} for large output.
+     */
+    @Override
+    public List<String> getTextOutput() throws InterruptedException {
+        awaitCompletion();
+        return readLines();
+    }
+
+    @Override
+    public List<String> getTextOutput(long time, TimeUnit timeUnit) throws InterruptedException {
+        if (awaitOutputCollection(time, timeUnit)) {
+            return readLines();
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    private List<String> readLines() throws InterruptedException {
+        try {
+            List<String> lines = new ArrayList<String>();
+            BufferedReader reader = openReader();
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            } finally {
+                reader.close();
+            }
+            return Collections.unmodifiableList(lines);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read collected output", e);
+        }
+    }
+
+    private void checkError() throws IOException {
+        if (error != null) {
+            throw new IOException("Failed to collect output", error);
+        }
+    }
+
+    /**
+     * Delete the temporary file, if there is one.
+     * Any readers opened using {@link #openReader()} should be closed first.
+     */
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+
+}
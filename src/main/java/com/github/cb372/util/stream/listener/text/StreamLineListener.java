@@ -7,13 +7,28 @@ package com.github.cb372.util.stream.listener.text;
  * Author: chris
  * Created: 4/5/13
  */
-public abstract class StreamLineListener implements CharStreamListener {
+public abstract class StreamLineListener implements CharChunkListener, SelectiveCharStreamListener {
 
     @Override
     public final void onChar(char c) {
         // do nothing
     }
 
+    @Override
+    public final void onChars(char[] c, int offset, int len) {
+        // do nothing
+    }
+
+    @Override
+    public final boolean wantsChars() {
+        return false;
+    }
+
+    @Override
+    public boolean wantsLines() {
+        return true;
+    }
+
     @Override
     public void onEndOfStream() {
         // do nothing
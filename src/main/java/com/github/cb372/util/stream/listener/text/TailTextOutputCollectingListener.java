@@ -0,0 +1,101 @@
+package com.github.cb372.util.stream.listener.text;
+
+import com.github.cb372.util.stream.collector.TextOutputCollector;
+import com.github.cb372.util.stream.listener.OutputCollectingListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A listener that keeps only the last N lines of output from a stream,
+ * discarding older lines as new ones arrive.
+ *
+ * Useful for keeping the end of a process's stderr for diagnostics
+ * without the memory usage growing with the amount of output.
+ * Note that a single very long line is still held in memory in full.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class TailTextOutputCollectingListener extends OutputCollectingListener
+                                              implements CharChunkListener, SelectiveCharStreamListener, TextOutputCollector {
+    private final String[] lines;
+    private int next = 0;
+    private long lineCount = 0;
+
+    /**
+     * @param maxLines number of lines to keep
+     */
+    public TailTextOutputCollectingListener(int maxLines) {
+        if (maxLines <= 0) {
+            throw new IllegalArgumentException("Number of lines must be at least 1");
+        }
+        this.lines = new String[maxLines];
+    }
+
+    @Override
+    public void onChar(char c) {
+        // do nothing
+    }
+
+    @Override
+    public void onChars(char[] c, int offset, int len) {
+        // do nothing
+    }
+
+    @Override
+    public boolean wantsChars() {
+        return false;
+    }
+
+    @Override
+    public boolean wantsLines() {
+        return true;
+    }
+
+    @Override
+    public void onLine(String line) {
+        lines[next] = line;
+        next = (next + 1) % lines.length;
+        lineCount++;
+    }
+
+    /**
+     * @return the total number of lines seen, including those that have been discarded
+     * @throws InterruptedException
+     */
+    public long getLineCount() throws InterruptedException {
+        awaitCompletion();
+        return lineCount;
+    }
+
+    /**
+     * Get the last lines sent to the stream, oldest first.
+     */
+    @Override
+    public List<String> getTextOutput() throws InterruptedException {
+        awaitCompletion();
+        return tail();
+    }
+
+    @Override
+    public List<String> getTextOutput(long time, TimeUnit timeUnit) throws InterruptedException {
+        if (awaitOutputCollection(time, timeUnit)) {
+            return tail();
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    private List<String> tail() {
+        int size = (int) Math.min(lineCount, lines.length);
+        List<String> tail = new ArrayList<String>(size);
+        int first = (next - size + lines.length) % lines.length;
+        for (int i = 0; i < size; i++) {
+            tail.add(lines[(first + i) % lines.length]);
+        }
+        return Collections.unmodifiableList(tail);
+    }
+}
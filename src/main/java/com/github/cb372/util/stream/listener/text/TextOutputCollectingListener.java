@@ -20,7 +20,7 @@ import java.util.concurrent.TimeUnit;
  * Created: 4/5/13
  */
 public class TextOutputCollectingListener extends OutputCollectingListener
-                                          implements CharStreamListener, TextOutputCollector {
+                                          implements CharChunkListener, SelectiveCharStreamListener, TextOutputCollector {
     private List<String> lines = new ArrayList<String>();
 
     @Override
@@ -28,6 +28,21 @@ public class TextOutputCollectingListener extends OutputCollectingListener
         // do nothing
     }
 
+    @Override
+    public void onChars(char[] c, int offset, int len) {
+        // do nothing
+    }
+
+    @Override
+    public boolean wantsChars() {
+        return false;
+    }
+
+    @Override
+    public boolean wantsLines() {
+        return true;
+    }
+
     @Override
     public void onLine(String line) {
         lines.add(line);
@@ -1,6 +1,6 @@
 package com.github.cb372.util.stream.processor;
 
-import com.github.cb372.util.stream.StreamProcessor;
+import com.github.cb372.util.stream.IncrementalStreamProcessor;
 import com.github.cb372.util.stream.listener.binary.ByteStreamListener;
 
 import java.io.IOException;
@@ -12,7 +12,7 @@ import java.util.List;
  * Author: chris
  * Created: 9/29/13
  */
-public class ByteStreamProcessor implements StreamProcessor {
+public class ByteStreamProcessor implements IncrementalStreamProcessor {
     private final InputStream stream;
     private final List<ByteStreamListener> listeners;
     private final byte[] buffer;
@@ -31,18 +31,20 @@ public class ByteStreamProcessor implements StreamProcessor {
     public void run() throws IOException {
         int bytesRead;
         while ((bytesRead = stream.read(buffer)) != -1) {
-            onBytes(buffer, bytesRead);
+            onBytes(buffer, 0, bytesRead);
         }
-        onEOS();
+        onEndOfStream();
     }
 
-    private void onBytes(byte[] buffer, int bytesRead) {
+    @Override
+    public void onBytes(byte[] b, int offset, int len) {
         for (ByteStreamListener listener : listeners) {
-            listener.onBytes(buffer, 0, bytesRead);
+            listener.onBytes(b, offset, len);
         }
     }
 
-    private void onEOS() {
+    @Override
+    public void onEndOfStream() {
         for (ByteStreamListener listener : listeners) {
             listener.onEndOfStream();
         }
@@ -1,13 +1,20 @@
 package com.github.cb372.util.stream.processor;
 
-import com.github.cb372.util.stream.StreamProcessor;
+import com.github.cb372.util.stream.IncrementalStreamProcessor;
+import com.github.cb372.util.stream.listener.text.CharChunkListener;
 import com.github.cb372.util.stream.listener.text.CharStreamListener;
+import com.github.cb372.util.stream.listener.text.LineViewListener;
+import com.github.cb372.util.stream.listener.text.SelectiveCharStreamListener;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -15,23 +22,101 @@ import java.util.List;
  * A CharStreamProcessor consumes an input stream, notifying listeners on
  * every character and every line read.
  *
+ * Characters are decoded a buffer at a time. Listeners that implement
+ * {@link CharChunkListener} receive them as runs of characters,
+ * other listeners are called once per character.
+ *
+ * Listeners that implement {@link SelectiveCharStreamListener} only receive
+ * the callbacks they ask for. If no listener wants lines, no lines are built,
+ * and if no listener wants either, the stream is drained without being decoded.
+ *
+ * Listeners that implement {@link LineViewListener} receive each line as a reused view
+ * of the line buffer. A String is only created for a line if some other listener wants lines.
+ * Either way, listeners receive each line in the order in which they were added.
+ *
+ * For ISO-8859-1, US-ASCII and UTF-8, runs of bytes that map directly to chars
+ * (every byte for ISO-8859-1, ASCII bytes otherwise) are copied by a simple loop,
+ * and the CharsetDecoder is only used for the bytes in between.
+ * Malformed input is replaced with U+FFFD by default, but it can instead be reported,
+ * in which case processing stops with a {@link java.nio.charset.CharacterCodingException}.
+ *
  * It is essential to consume the outpt and error streams of a process,
  * as some processes hang when their output buffers fill up.
  *
  * Author: chris
  * Created: 4/5/13
  */
-public final class CharStreamProcessor implements StreamProcessor {
+public final class CharStreamProcessor implements IncrementalStreamProcessor {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * Which bytes can be copied straight to chars.
+     */
+    private enum FastPath {
+        None, Ascii, Latin1
+    }
+
     private final InputStream stream;
-    private final Charset charset;
-    private final String linePrefix;
+    private final CharsetDecoder decoder;
+    private final FastPath fastPath;
+    private final char[] prefixChars;
     private final List<CharStreamListener> listeners;
+    private final CharStreamListener[] charListeners;
+    private final CharStreamListener[] lineListeners;
+    // the line listeners that take a view of the line, or null where a listener needs a String
+    private final LineViewListener[] lineViewListeners;
 
-    public CharStreamProcessor(InputStream stream, Charset charset, String linePrefix, List<CharStreamListener> listeners) {
+    private final ByteBuffer bytes;
+    private final CharBuffer chars;
+    private final StringBuilder line = new StringBuilder();
+    private final LineView lineView = new LineView(line);
+    private boolean lastWasCR = false;
+    private boolean atLineStart = true;
+
+    /**
+     * @param stream stream to process
+     * @param charset the stream's encoding
+     * @param linePrefix prefix to add to every line
+     * @param listeners listeners
+     * @param bufferSize size of the byte and char buffers
+     * @param malformedInputAction what to do with malformed or unmappable input: replace, ignore or report it
+     */
+    public CharStreamProcessor(InputStream stream, Charset charset, String linePrefix, List<CharStreamListener> listeners,
+                               int bufferSize, CodingErrorAction malformedInputAction) {
         this.stream = stream;
-        this.charset = charset;
-        this.linePrefix = linePrefix;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(malformedInputAction)
+                .onUnmappableCharacter(malformedInputAction);
+        this.fastPath = fastPathFor(charset);
+        this.bytes = ByteBuffer.allocate(bufferSize);
+        this.chars = CharBuffer.allocate(bufferSize);
+        this.prefixChars = linePrefix.toCharArray();
         this.listeners = listeners;
+
+        List<CharStreamListener> charListeners = new ArrayList<CharStreamListener>();
+        List<CharStreamListener> lineListeners = new ArrayList<CharStreamListener>();
+        for (CharStreamListener listener : listeners) {
+            boolean selective = listener instanceof SelectiveCharStreamListener;
+            if (!selective || ((SelectiveCharStreamListener) listener).wantsChars()) {
+                charListeners.add(listener);
+            }
+            if (!selective || ((SelectiveCharStreamListener) listener).wantsLines()) {
+                lineListeners.add(listener);
+            }
+        }
+        this.charListeners = charListeners.toArray(new CharStreamListener[charListeners.size()]);
+        this.lineListeners = lineListeners.toArray(new CharStreamListener[lineListeners.size()]);
+
+        this.lineViewListeners = new LineViewListener[this.lineListeners.length];
+        for (int i = 0; i < this.lineListeners.length; i++) {
+            if (this.lineListeners[i] instanceof LineViewListener) {
+                this.lineViewListeners[i] = (LineViewListener) this.lineListeners[i];
+            }
+        }
+    }
+
+    public CharStreamProcessor(InputStream stream, Charset charset, String linePrefix, List<CharStreamListener> listeners) {
+        this(stream, charset, linePrefix, listeners, DEFAULT_BUFFER_SIZE, CodingErrorAction.REPLACE);
     }
 
     public CharStreamProcessor(InputStream stream, Charset charset, List<CharStreamListener> listeners) {
@@ -48,62 +133,286 @@ public final class CharStreamProcessor implements StreamProcessor {
 
     @Override
     public void run() throws IOException {
-        int c;
-        StringBuilder line = new StringBuilder();
-        boolean lastWasCR = false;
-        char[] prefixChars = linePrefix.toCharArray();
-
-        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, charset));
         try {
-            while ((c = reader.read()) != -1) {
-                char ch = (char) c;
-                if (line.length() == 0) {
-                    outputPrefix(prefixChars, line);
-                }
-                switch (ch) {
-                    case '\r':
-                        onLine(line);
-                        break;
-                    case '\n':
-                        if (!lastWasCR) {
-                            onLine(line);
-                        }
-                        break;
-                    default:
-                        line.append(ch);
-                }
-                onChar(ch);
-                lastWasCR = ch == '\r';
+            if (!wantsOutput()) {
+                drain();
+                return;
             }
+            int bytesRead;
+            while ((bytesRead = stream.read(bytes.array(), bytes.position(), bytes.remaining())) != -1) {
+                bytes.position(bytes.position() + bytesRead);
+                decode(false);
+            }
+            onEndOfStream();
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static FastPath fastPathFor(Charset charset) {
+        String name = charset.name();
+        if (name.equals("ISO-8859-1")) {
+            return FastPath.Latin1;
+        }
+        if (name.equals("US-ASCII") || name.equals("UTF-8")) {
+            return FastPath.Ascii;
+        }
+        return FastPath.None;
+    }
+
+    @Override
+    public void onBytes(byte[] b, int offset, int len) throws IOException {
+        if (!wantsOutput()) {
+            return;
+        }
+        while (len > 0) {
+            int n = Math.min(len, bytes.remaining());
+            bytes.put(b, offset, n);
+            offset += n;
+            len -= n;
+            decode(false);
+        }
+    }
+
+    @Override
+    public void onEndOfStream() throws IOException {
+        if (wantsOutput()) {
+            decode(true);
+            while (decoder.flush(chars).isOverflow()) {
+                process();
+            }
+            process();
             // drain the last line
             if (line.length() > 0) {
                 onLine(line);
             }
-            // tell listeners that it is EOS
-            onEOS();
-        } finally {
-            reader.close();
         }
+        // tell listeners that it is EOS
+        onEOS();
+    }
+
+    private boolean wantsOutput() {
+        return charListeners.length > 0 || lineListeners.length > 0;
+    }
+
+    /**
+     * Nobody is interested in the output, so just read it
+     * without bothering to decode it.
+     */
+    private void drain() throws IOException {
+        byte[] buffer = bytes.array();
+        while (stream.read(buffer) != -1) {
+            // discard
+        }
+        onEOS();
+    }
+
+    /**
+     * Decode as many of the buffered bytes as possible,
+     * keeping any incomplete character for next time.
+     * Bytes that the fast path can handle are copied directly,
+     * and the decoder is given the runs of bytes in between,
+     * plus the byte that follows each run, so that it can tell a truncated sequence from an incomplete one.
+     */
+    private void decode(boolean endOfInput) throws IOException {
+        bytes.flip();
+        while (true) {
+            copyDirectly();
+            if (!chars.hasRemaining()) {
+                process();
+                continue;
+            }
+            if (!bytes.hasRemaining() && !endOfInput) {
+                break;
+            }
+            int limit = bytes.limit();
+            int runEnd = fastPath == FastPath.None ? limit : Math.min(endOfNonAsciiRun() + 1, limit);
+            bytes.limit(runEnd);
+            CoderResult result = decoder.decode(bytes, chars, endOfInput && runEnd == limit);
+            bytes.limit(limit);
+            if (result.isOverflow()) {
+                process();
+            } else if (result.isError()) {
+                result.throwException();
+            } else if (runEnd == limit) {
+                break;
+            }
+        }
+        process();
+        bytes.compact();
     }
 
-    private void outputPrefix(char[] prefixChars, StringBuilder line) {
-        for (char prefixChar : prefixChars) {
-            onChar(prefixChar);
-            line.append(prefixChar);
+    /**
+     * Copy bytes that map directly to chars, until the first one that doesn't.
+     */
+    private void copyDirectly() {
+        if (fastPath == FastPath.None) {
+            return;
         }
+        byte[] in = bytes.array();
+        char[] out = chars.array();
+        int inPos = bytes.position();
+        int outPos = chars.position();
+        int n = Math.min(bytes.remaining(), chars.remaining());
+        int i = 0;
+        if (fastPath == FastPath.Latin1) {
+            for (; i < n; i++) {
+                out[outPos + i] = (char) (in[inPos + i] & 0xff);
+            }
+        } else {
+            for (; i < n; i++) {
+                byte b = in[inPos + i];
+                if (b < 0) {
+                    break;
+                }
+                out[outPos + i] = (char) b;
+            }
+        }
+        bytes.position(inPos + i);
+        chars.position(outPos + i);
+    }
+
+    /**
+     * @return the index of the first ASCII byte after the current position, or the limit if there is none
+     */
+    private int endOfNonAsciiRun() {
+        byte[] in = bytes.array();
+        int i = bytes.position();
+        int limit = bytes.limit();
+        while (i < limit && in[i] < 0) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Pass the decoded characters to the listeners.
+     */
+    private void process() {
+        int len = chars.position();
+        if (len == 0) {
+            return;
+        }
+        if (lineListeners.length == 0) {
+            processChars(chars.array(), len);
+        } else if (charListeners.length == 0) {
+            processLines(chars.array(), len);
+        } else {
+            processCharsAndLines(chars.array(), len);
+        }
+        chars.clear();
+    }
+
+    /**
+     * Split a buffer of characters into lines, passing runs of characters
+     * to the listeners in between.
+     */
+    private void processCharsAndLines(char[] buffer, int len) {
+        int charsFrom = 0; // start of the run of chars not yet sent to listeners
+        int lineFrom = 0;  // start of the part of the current line not yet copied to the line buffer
+        boolean hasPrefix = prefixChars.length > 0;
+
+        for (int i = 0; i < len; i++) {
+            char ch = buffer[i];
+            if (hasPrefix && lineFrom == i && line.length() == 0) {
+                onChars(buffer, charsFrom, i - charsFrom);
+                charsFrom = i;
+                onChars(prefixChars, 0, prefixChars.length);
+                line.append(prefixChars);
+            }
+            if (ch == '\r' || ch == '\n') {
+                line.append(buffer, lineFrom, i - lineFrom);
+                lineFrom = i + 1;
+                if (ch == '\r' || !lastWasCR) {
+                    onChars(buffer, charsFrom, i - charsFrom);
+                    charsFrom = i;
+                    onLine(line);
+                }
+            }
+            lastWasCR = ch == '\r';
+        }
+        line.append(buffer, lineFrom, len - lineFrom);
+        onChars(buffer, charsFrom, len - charsFrom);
+    }
+
+    /**
+     * Split a buffer of characters into lines. No listener wants individual characters.
+     */
+    private void processLines(char[] buffer, int len) {
+        int lineFrom = 0;
+        boolean hasPrefix = prefixChars.length > 0;
+
+        for (int i = 0; i < len; i++) {
+            char ch = buffer[i];
+            if (hasPrefix && lineFrom == i && line.length() == 0) {
+                line.append(prefixChars);
+            }
+            if (ch == '\r' || ch == '\n') {
+                line.append(buffer, lineFrom, i - lineFrom);
+                lineFrom = i + 1;
+                if (ch == '\r' || !lastWasCR) {
+                    onLine(line);
+                }
+            }
+            lastWasCR = ch == '\r';
+        }
+        line.append(buffer, lineFrom, len - lineFrom);
+    }
+
+    /**
+     * Pass a buffer of characters to the listeners. No listener wants lines,
+     * so line endings only matter for deciding where to insert the prefix.
+     */
+    private void processChars(char[] buffer, int len) {
+        if (prefixChars.length == 0) {
+            onChars(buffer, 0, len);
+            return;
+        }
+
+        int charsFrom = 0;
+        for (int i = 0; i < len; i++) {
+            char ch = buffer[i];
+            if (atLineStart) {
+                onChars(buffer, charsFrom, i - charsFrom);
+                charsFrom = i;
+                onChars(prefixChars, 0, prefixChars.length);
+                atLineStart = false;
+            }
+            if (ch == '\r' || (ch == '\n' && !lastWasCR)) {
+                atLineStart = true;
+            }
+            lastWasCR = ch == '\r';
+        }
+        onChars(buffer, charsFrom, len - charsFrom);
     }
 
     private void onLine(StringBuilder b) {
-        final String line = b.toString();
-        for (CharStreamListener listener : listeners) {
-            listener.onLine(line);
+        String line = null;
+        for (int i = 0; i < lineListeners.length; i++) {
+            if (lineViewListeners[i] != null) {
+                lineViewListeners[i].onLineView(lineView);
+            } else {
+                if (line == null) {
+                    line = b.toString();
+                }
+                lineListeners[i].onLine(line);
+            }
         }
         b.setLength(0);
     }
 
-    private void onChar(char c) {
-        for (CharStreamListener listener : listeners) {
-            listener.onChar(c);
+    private void onChars(char[] c, int offset, int len) {
+        if (len == 0) {
+            return;
+        }
+        for (CharStreamListener listener : charListeners) {
+            if (listener instanceof CharChunkListener) {
+                ((CharChunkListener) listener).onChars(c, offset, len);
+            } else {
+                for (int i = offset; i < offset + len; i++) {
+                    listener.onChar(c[i]);
+                }
+            }
         }
     }
 
@@ -112,4 +421,35 @@ public final class CharStreamProcessor implements StreamProcessor {
             listener.onEndOfStream();
         }
     }
+
+    /**
+     * A read-only view of the line buffer, so that listeners cannot modify it.
+     */
+    private static final class LineView implements CharSequence {
+        private final StringBuilder line;
+
+        LineView(StringBuilder line) {
+            this.line = line;
+        }
+
+        @Override
+        public int length() {
+            return line.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return line.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return line.substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return line.toString();
+        }
+    }
 }
@@ -0,0 +1,192 @@
+package com.github.cb372.util.stream.processor;
+
+import com.github.cb372.util.stream.IncrementalStreamProcessor;
+import com.github.cb372.util.stream.listener.binary.ByteStreamListener;
+import com.github.cb372.util.stream.listener.binary.Record;
+import com.github.cb372.util.stream.listener.binary.RecordListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * A RecordStreamProcessor consumes an input stream, splitting it into records on a delimiter byte,
+ * e.g. '\n' for the lines of ASCII or UTF-8 text, or NUL for the output of {@code find -print0}.
+ * </p>
+ * <p>
+ * The data is never decoded. Records are passed to {@link RecordListener}s as slices of the read buffer,
+ * and the buffer is searched for the delimiter 8 bytes at a time.
+ * A record that does not fit in the buffer makes the buffer grow.
+ * Any {@link ByteStreamListener}s receive the raw data, as with a {@link ByteStreamProcessor}.
+ * </p>
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public final class RecordStreamProcessor implements IncrementalStreamProcessor {
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final InputStream stream;
+    private final byte delimiter;
+    private final long delimiterPattern;
+    private final boolean stripCR;
+    private final List<ByteStreamListener> byteListeners;
+    private final List<RecordListener> recordListeners;
+    private final Record record = new Record();
+
+    private byte[] buffer;
+    private ByteBuffer words;
+    private int recordStart = 0; // start of the record that is being read
+    private int scanned = 0;     // end of the part of the buffer that has been searched
+    private int end = 0;         // end of the data in the buffer
+
+    /**
+     * @param stream stream to process
+     * @param bufferSize initial buffer size
+     * @param delimiter byte that ends each record
+     * @param stripCR whether to remove a '\r' before the delimiter, for splitting text into lines
+     * @param byteListeners listeners for the raw data
+     * @param recordListeners listeners for the records
+     */
+    public RecordStreamProcessor(InputStream stream, int bufferSize, byte delimiter, boolean stripCR,
+                                 List<ByteStreamListener> byteListeners, List<RecordListener> recordListeners) {
+        this.stream = stream;
+        this.delimiter = delimiter;
+        this.delimiterPattern = LOW_BITS * (delimiter & 0xff);
+        this.stripCR = stripCR;
+        this.byteListeners = byteListeners;
+        this.recordListeners = recordListeners;
+        setBuffer(new byte[Math.max(bufferSize, 8)]);
+    }
+
+    public RecordStreamProcessor(InputStream stream, int bufferSize, byte delimiter, RecordListener... listeners) {
+        this(stream, bufferSize, delimiter, false, Collections.<ByteStreamListener>emptyList(), Arrays.asList(listeners));
+    }
+
+    @Override
+    public void run() throws IOException {
+        try {
+            while (true) {
+                int offset = makeRoom();
+                int bytesRead = stream.read(buffer, offset, buffer.length - offset);
+                if (bytesRead == -1) {
+                    break;
+                }
+                if (bytesRead > 0) {
+                    for (ByteStreamListener listener : byteListeners) {
+                        listener.onBytes(buffer, end, bytesRead);
+                    }
+                    end += bytesRead;
+                    split();
+                }
+            }
+            onEndOfStream();
+        } finally {
+            stream.close();
+        }
+    }
+
+    @Override
+    public void onBytes(byte[] b, int offset, int len) {
+        for (ByteStreamListener listener : byteListeners) {
+            listener.onBytes(b, offset, len);
+        }
+        while (len > 0) {
+            int n = Math.min(len, buffer.length - makeRoom());
+            System.arraycopy(b, offset, buffer, end, n);
+            end += n;
+            offset += n;
+            len -= n;
+            split();
+        }
+    }
+
+    @Override
+    public void onEndOfStream() {
+        if (end > recordStart) {
+            emit(recordStart, end);
+        }
+        recordStart = scanned = end = 0;
+        for (ByteStreamListener listener : byteListeners) {
+            listener.onEndOfStream();
+        }
+        for (RecordListener listener : recordListeners) {
+            listener.onEndOfStream();
+        }
+    }
+
+    /**
+     * Make sure there is space at the end of the buffer, by moving the current record
+     * to the start of the buffer, or by growing the buffer if the record fills it.
+     * @return the end of the data in the buffer
+     */
+    private int makeRoom() {
+        if (end < buffer.length) {
+            return end;
+        }
+        if (recordStart > 0) {
+            System.arraycopy(buffer, recordStart, buffer, 0, end - recordStart);
+            scanned -= recordStart;
+            end -= recordStart;
+            recordStart = 0;
+        } else {
+            setBuffer(Arrays.copyOf(buffer, buffer.length * 2));
+        }
+        return end;
+    }
+
+    private void setBuffer(byte[] buffer) {
+        this.buffer = buffer;
+        this.words = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Pass every complete record in the buffer to the listeners.
+     */
+    private void split() {
+        int i;
+        while ((i = indexOfDelimiter(scanned, end)) >= 0) {
+            emit(recordStart, i);
+            recordStart = scanned = i + 1;
+        }
+        scanned = end;
+    }
+
+    /**
+     * Search for the delimiter a long word at a time, using the classic "has zero byte" trick
+     * on the word XORed with the delimiter repeated 8 times.
+     * The word is read little-endian, so the lowest flagged byte is the first match.
+     */
+    private int indexOfDelimiter(int from, int to) {
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long x = words.getLong(i) ^ delimiterPattern;
+            long found = (x - LOW_BITS) & ~x & HIGH_BITS;
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (buffer[i] == delimiter) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void emit(int from, int to) {
+        if (stripCR && to > from && buffer[to - 1] == '\r') {
+            to--;
+        }
+        record.set(buffer, from, to - from);
+        for (RecordListener listener : recordListeners) {
+            listener.onRecord(record);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.cb372.util.stream;
+
+/**
+ * Creates virtual threads, on JVMs that support them.
+ *
+ * This is the Java 21 version of the class, packaged in META-INF/versions/21 of the multi-release jar.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {}
+
+    static boolean isSupported() {
+        return true;
+    }
+
+    static Thread newThread(Runnable runnable) {
+        return Thread.ofVirtual().unstarted(runnable);
+    }
+
+}
@@ -0,0 +1,190 @@
+package com.github.cb372.util.process;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import static com.github.cb372.util.process.Command.command;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class ClassDataSharingTest {
+
+    private final File javaHome = new File(System.getProperty("java.home"));
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void parsesJavaVersions() {
+        assertThat(ClassDataSharing.majorVersion("1.8.0_292"), is(8));
+        assertThat(ClassDataSharing.majorVersion("17.0.1"), is(17));
+        assertThat(ClassDataSharing.majorVersion("21"), is(21));
+    }
+
+    @Test
+    public void doesNothingIfTheClasspathContainsDirectories() throws IOException {
+        ClassDataSharing cds = new ClassDataSharing(tempDir.newFolder("cache"), 0);
+        String classpath = System.getProperty("java.class.path");
+        assumeTrue(hasDirectory(classpath));
+
+        assertThat(cds.jvmArgs(javaHome, Collections.<String>emptyList(), classpath, "Foo").isEmpty(), is(true));
+    }
+
+    @Test
+    public void recordsClassesThenBuildsAndUsesAnArchive() throws Exception {
+        String javaVersion = ClassDataSharing.javaVersion(javaHome);
+        assumeTrue(javaVersion != null && ClassDataSharing.majorVersion(javaVersion) >= 10);
+
+        File cache = new File(tempDir.getRoot(), "cache");
+        String classpath = jarOf(PrintHello.class).getAbsolutePath();
+        String mainClass = PrintHello.class.getName();
+        ClassDataSharing cds = new ClassDataSharing(cache, 0);
+
+        // first launch records the classes it loads
+        List<String> args = cds.jvmArgs(javaHome, Collections.<String>emptyList(), classpath, mainClass);
+        assertThat(args.get(0).startsWith("-XX:DumpLoadedClassList="), is(true));
+        assertThat(run(args, classpath, mainClass), is("hello"));
+
+        // second launch builds the archive in the background
+        assertThat(cds.jvmArgs(javaHome, Collections.<String>emptyList(), classpath, mainClass).isEmpty(), is(true));
+
+        long deadline = System.currentTimeMillis() + 60000;
+        while (args.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            args = cds.jvmArgs(javaHome, Collections.<String>emptyList(), classpath, mainClass);
+        }
+        assertThat(args.contains("-Xshare:auto"), is(true));
+        assertThat(run(args, classpath, mainClass), is("hello"));
+    }
+
+    @Test
+    public void prunesOlderEntriesForTheSameMainClassAndUnusedEntries() throws Exception {
+        String javaVersion = ClassDataSharing.javaVersion(javaHome);
+        assumeTrue(javaVersion != null && ClassDataSharing.majorVersion(javaVersion) >= 10);
+
+        File cache = new File(tempDir.getRoot(), "cache");
+        File jar = jarOf(PrintHello.class);
+        String mainClass = PrintHello.class.getName();
+        ClassDataSharing cds = new ClassDataSharing(cache, 0);
+        long now = System.currentTimeMillis();
+
+        cds.jvmArgs(javaHome, Collections.<String>emptyList(), jar.getAbsolutePath(), mainClass);
+        File oldClassList = cache.listFiles()[0];
+        String oldKey = oldClassList.getName().substring(0, oldClassList.getName().indexOf('.'));
+        File oldFailed = new File(cache, oldKey + ".failed");
+        oldFailed.createNewFile();
+        oldClassList.setLastModified(now - TimeUnit.DAYS.toMillis(2));
+        oldFailed.setLastModified(now - TimeUnit.DAYS.toMillis(2));
+        File recentlyUsed = new File(cache, oldKey.substring(0, 9) + "0000000000000000000000000000000000000000.jsa");
+        recentlyUsed.createNewFile();
+        File otherMainClass = new File(cache, "00000000-0000000000000000000000000000000000000000.jsa");
+        otherMainClass.createNewFile();
+        otherMainClass.setLastModified(now - TimeUnit.DAYS.toMillis(2));
+        File unused = new File(cache, "00000000-1111111111111111111111111111111111111111.jsa");
+        unused.createNewFile();
+        unused.setLastModified(now - TimeUnit.DAYS.toMillis(40));
+        File notOurs = new File(cache, "notes.txt");
+        notOurs.createNewFile();
+        notOurs.setLastModified(now - TimeUnit.DAYS.toMillis(40));
+
+        // the jar changes, so the next launch has a new key
+        jar.setLastModified(jar.lastModified() - 10000);
+        List<String> args = cds.jvmArgs(javaHome, Collections.<String>emptyList(), jar.getAbsolutePath(), mainClass);
+        assertThat(args.get(0).startsWith("-XX:DumpLoadedClassList="), is(true));
+
+        assertThat(oldClassList.exists(), is(false));
+        assertThat(oldFailed.exists(), is(false));
+        assertThat(unused.exists(), is(false));
+        assertThat(recentlyUsed.exists(), is(true));
+        assertThat(otherMainClass.exists(), is(true));
+        assertThat(notOurs.exists(), is(true));
+        assertThat(cache.list().length, is(4));
+    }
+
+    @Test
+    public void createsTheCacheDirectoryForTheCurrentUserOnly() throws Exception {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        String javaVersion = ClassDataSharing.javaVersion(javaHome);
+        assumeTrue(javaVersion != null && ClassDataSharing.majorVersion(javaVersion) >= 10);
+
+        File cache = new File(tempDir.getRoot(), "cache");
+        String classpath = jarOf(PrintHello.class).getAbsolutePath();
+        new ClassDataSharing(cache, 0).jvmArgs(javaHome, Collections.<String>emptyList(), classpath, "Foo");
+
+        assertThat(Files.getPosixFilePermissions(cache.toPath()), is(PosixFilePermissions.fromString("rwx------")));
+    }
+
+    @Test
+    public void doesNothingIfOtherUsersCanWriteToTheCacheDirectory() throws Exception {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        String javaVersion = ClassDataSharing.javaVersion(javaHome);
+        assumeTrue(javaVersion != null && ClassDataSharing.majorVersion(javaVersion) >= 10);
+
+        File cache = tempDir.newFolder("cache");
+        Files.setPosixFilePermissions(cache.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+        String classpath = jarOf(PrintHello.class).getAbsolutePath();
+        ClassDataSharing cds = new ClassDataSharing(cache, 0);
+
+        assertThat(cds.jvmArgs(javaHome, Collections.<String>emptyList(), classpath, "Foo").isEmpty(), is(true));
+        assertThat(cache.list().length, is(0));
+    }
+
+    private String run(List<String> jvmArgs, String classpath, String mainClass) throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<String>();
+        cmd.add(new File(javaHome, "bin/java").getAbsolutePath());
+        cmd.addAll(jvmArgs);
+        cmd.add("-cp");
+        cmd.add(classpath);
+        cmd.add(mainClass);
+        TextCollectingExternalProcess process = command(cmd).collectStdOut().start();
+        process.waitFor();
+        return process.getTextOutput().get(0);
+    }
+
+    private File jarOf(Class<?> clazz) throws IOException {
+        String path = clazz.getName().replace('.', '/') + ".class";
+        File jar = tempDir.newFile("test.jar");
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        InputStream in = clazz.getClassLoader().getResourceAsStream(path);
+        try {
+            out.putNextEntry(new JarEntry(path));
+            IOUtils.copy(in, out);
+            out.closeEntry();
+        } finally {
+            in.close();
+            out.close();
+        }
+        return jar;
+    }
+
+    private boolean hasDirectory(String classpath) {
+        for (String element : classpath.split(File.pathSeparator)) {
+            if (new File(element).isDirectory()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.cb372.util.process;
+
+/**
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class CountRuns {
+    private static int runs = 0;
+
+    public static void main(String[] args) {
+        runs++;
+        System.out.println(runs);
+        if (args.length > 0) {
+            throw new IllegalStateException(args[0]);
+        }
+    }
+}
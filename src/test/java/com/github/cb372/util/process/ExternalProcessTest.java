@@ -1,13 +1,33 @@
 package com.github.cb372.util.process;
 
 
+import com.github.cb372.util.stream.StreamMultiplexer;
+import com.github.cb372.util.stream.StreamProcessingException;
+import com.github.cb372.util.stream.StreamProcessingThreadBuilder;
+import com.github.cb372.util.stream.listener.text.StreamLineListener;
 import com.github.cb372.util.stream.listener.text.TextOutputCollectingListener;
 import org.apache.commons.io.IOUtils;
+import com.github.cb372.util.stream.collector.MappedLineFile;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static com.github.cb372.util.process.Java.java;
@@ -15,6 +35,7 @@ import static com.github.cb372.util.process.StreamProcessing.consume;
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * Author: chris
@@ -22,6 +43,9 @@ import static org.junit.Assert.assertThat;
  */
 public class ExternalProcessTest {
 
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
     @Test
     public void processReturnsCorrectExitCode() throws IOException, InterruptedException {
         ExternalProcess process = Command.parse("src/test/resources/myscript.sh").start();
@@ -90,6 +114,85 @@ public class ExternalProcessTest {
         assertThat(process.getTextOutput().get(1), equalTo("world"));
     }
 
+    @Test
+    public void collectsOnlyTheTailOfOutputIfToldTo() throws IOException, InterruptedException {
+        TextCollectingExternalProcess process = Command.parse("src/test/resources/myscript.sh")
+                .collectStdOutTail(1)
+                .collectStdErrTail(10)
+                .start();
+        process.waitFor();
+
+        assertThat(process.getTextOutput(), equalTo(Arrays.asList("world")));
+        assertThat(process.getStdErrTail(), equalTo(Arrays.asList("oh noes")));
+    }
+
+    @Test
+    public void canIterateOverOutputLinesAsTheyArrive() throws IOException, InterruptedException {
+        TextCollectingExternalProcess process = Command.parse("src/test/resources/myscript.sh")
+                .streamingStdOutLines(1)
+                .start();
+
+        Iterator<String> lines = process.getStdOutLines();
+        assertThat(lines.next(), equalTo("hello"));
+        assertThat(lines.next(), equalTo("world"));
+        assertThat(lines.hasNext(), is(false));
+        assertThat(process.waitFor(), equalTo(123));
+    }
+
+    @Test
+    public void eachProcessStartedFromABuilderGetsItsOwnOutput() throws IOException, InterruptedException {
+        ExternalProcessBuilder.TextStdOut builder = Command.parse("src/test/resources/myscript.sh")
+                .processStdOut(consume().asText())
+                .collectStdOut()
+                .streamingStdOutLines(10);
+        TextCollectingExternalProcess first = builder.start();
+        first.waitFor();
+        TextCollectingExternalProcess second = builder.start();
+        second.waitFor();
+
+        for (TextCollectingExternalProcess process : Arrays.asList(first, second)) {
+            List<String> lines = new ArrayList<String>();
+            Iterator<String> it = process.getStdOutLines();
+            while (it.hasNext()) {
+                lines.add(it.next());
+            }
+            assertThat(lines, equalTo(Arrays.asList("hello", "world")));
+            assertThat(process.getTextOutput(), equalTo(Arrays.asList("hello", "world")));
+        }
+    }
+
+    @Test(expected = StreamProcessingException.class)
+    public void iteratingOverOutputLinesFailsIfAListenerThrows() throws IOException, InterruptedException {
+        TextCollectingExternalProcess process = Command.parse("src/test/resources/myscript.sh")
+                .processStdOut(consume().asText()
+                        .withListener(new StreamLineListener() {
+                            @Override
+                            public void onLine(String line) {
+                                throw new IllegalStateException("listener failed");
+                            }
+                        })
+                        .withUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                            @Override
+                            public void uncaughtException(Thread t, Throwable e) {
+                                // expected
+                            }
+                        }))
+                .streamingStdOutLines(10)
+                .start();
+
+        Iterator<String> lines = process.getStdOutLines();
+        while (lines.hasNext()) {
+            lines.next();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotIterateOverOutputLinesFromAMultiplexer() throws IOException {
+        Command.parse("src/test/resources/myscript.sh")
+                .processStdOut(consume().asText().inSharedMultiplexer())
+                .streamingStdOutLines(10);
+    }
+
     @Test
     public void doesNotCollectProcessOutputUnlessToldTo() throws IOException, InterruptedException {
         TextCollectingExternalProcess process = Command.parse("src/test/resources/myscript.sh")
@@ -99,6 +202,235 @@ public class ExternalProcessTest {
         assertThat(process.getTextOutput().isEmpty(), is(true));
     }
 
+    @Test
+    public void canProcessOutputUsingAnExecutor() throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final List<String> threadNames = new CopyOnWriteArrayList<String>();
+            TextOutputCollectingListener stdoutListener = new TextOutputCollectingListener() {
+                @Override
+                public void onLine(String line) {
+                    threadNames.add(Thread.currentThread().getName());
+                    super.onLine(line);
+                }
+            };
+            TextOutputCollectingListener stderrListener = new TextOutputCollectingListener();
+
+            ExternalProcess process = Command.parse("src/test/resources/myscript.sh")
+                    .processStdOut(consume().asText().withListener(stdoutListener).withExecutor(executor).withThreadName("gobbler"))
+                    .processStdErr(consume().asText().withListener(stderrListener).inSharedThreadPool())
+                    .start();
+
+            process.waitFor();
+            assertThat(stdoutListener.getTextOutput(1, TimeUnit.SECONDS), equalTo(Arrays.asList("hello", "world")));
+            assertThat(stderrListener.getTextOutput(1, TimeUnit.SECONDS), equalTo(Arrays.asList("oh noes")));
+            assertThat(threadNames, equalTo(Arrays.asList("gobbler", "gobbler")));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void canProcessOutputInVirtualThread() throws Exception {
+        // Falls back to a platform thread on JVMs without virtual threads
+        final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+        TextCollectingExternalProcess process = Command.parse("src/test/resources/myscript.sh")
+                .processStdOut(consume().asText().inVirtualThread().withListener(new StreamLineListener() {
+                    @Override
+                    public void onLine(String line) {
+                        threads.add(Thread.currentThread());
+                    }
+                }))
+                .processStdErr(consume().asText().inVirtualThread())
+                .collectStdOut()
+                .start();
+
+        assertThat(process.waitFor(), equalTo(123));
+        assertThat(process.getTextOutput(1, TimeUnit.SECONDS), equalTo(Arrays.asList("hello", "world")));
+        String version = System.getProperty("java.specification.version");
+        boolean java21 = !version.startsWith("1.") && Integer.parseInt(version) >= 21;
+        assertThat(isVirtual(threads.get(0)), is(java21));
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void canProcessOutputOfManyProcessesUsingOneMultiplexerThread() throws IOException, InterruptedException {
+        StreamMultiplexer multiplexer = new StreamMultiplexer(1);
+        try {
+            List<TextCollectingExternalProcess> processes = new ArrayList<TextCollectingExternalProcess>();
+            List<TextOutputCollectingListener> stderrListeners = new ArrayList<TextOutputCollectingListener>();
+            for (int i = 0; i < 20; i++) {
+                TextOutputCollectingListener stderrListener = new TextOutputCollectingListener();
+                processes.add(Command.parse("src/test/resources/myscript.sh")
+                        .processStdOut(consume().asText().usingMultiplexer(multiplexer))
+                        .processStdErr(consume().asText().withListener(stderrListener).usingMultiplexer(multiplexer))
+                        .collectStdOut()
+                        .start());
+                stderrListeners.add(stderrListener);
+            }
+
+            for (int i = 0; i < 20; i++) {
+                assertThat(processes.get(i).waitFor(), equalTo(123));
+                assertThat(processes.get(i).getTextOutput(5, TimeUnit.SECONDS), equalTo(Arrays.asList("hello", "world")));
+                assertThat(stderrListeners.get(i).getTextOutput(5, TimeUnit.SECONDS), equalTo(Arrays.asList("oh noes")));
+            }
+        } finally {
+            multiplexer.shutdown();
+        }
+    }
+
+    @Test
+    public void shuttingDownAMultiplexerFinishesTheStreamsItWasProcessing() throws IOException, InterruptedException {
+        StreamMultiplexer multiplexer = new StreamMultiplexer(1);
+        final CountDownLatch firstLine = new CountDownLatch(1);
+        TextCollectingExternalProcess process = Command.parse("cat")
+                .processStdOut(consume().asText().withListener(new StreamLineListener() {
+                    @Override
+                    public void onLine(String line) {
+                        firstLine.countDown();
+                    }
+                }).usingMultiplexer(multiplexer))
+                .collectStdOut()
+                .start();
+
+        process.getStdIn().write("hello\n".getBytes("UTF-8"));
+        process.getStdIn().flush();
+        assertThat(firstLine.await(5, TimeUnit.SECONDS), is(true));
+        multiplexer.shutdown();
+
+        process.getStdIn().write("world\n".getBytes("UTF-8"));
+        process.getStdIn().close();
+        process.waitFor();
+        assertThat(process.getTextOutput(5, TimeUnit.SECONDS), equalTo(Arrays.asList("hello", "world")));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void theSharedMultiplexerCannotBeShutDown() {
+        StreamMultiplexer.shared().shutdown();
+    }
+
+    @Test
+    public void acceptsStreamProcessingThreadBuildersFromOutsideTheLibrary() throws Exception {
+        final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        StreamProcessingThreadBuilder copyingBuilder = new StreamProcessingThreadBuilder() {
+            @Override
+            public Thread build(final InputStream stream) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            IOUtils.copy(stream, stderr);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                });
+            }
+        };
+        TextCollectingExternalProcess process = Command.parse("src/test/resources/myscript.sh")
+                .processStdErr(copyingBuilder)
+                .collectStdOut()
+                .start();
+
+        process.completion().get(5, TimeUnit.SECONDS);
+        assertThat(stderr.toString("UTF-8"), equalTo("oh noes\n"));
+    }
+
+    @Test
+    public void completionWaitsForExitAndAllOutput() throws Exception {
+        TextCollectingExternalProcess process = Command.parse("src/test/resources/myscript.sh")
+                .collectStdOut()
+                .collectStdErrTail(10)
+                .start();
+
+        TextCollectingExternalProcess completed = process.completion().get(5, TimeUnit.SECONDS);
+        assertThat(completed.exitValue(), equalTo(123));
+        assertThat(completed.getTextOutput(0, TimeUnit.SECONDS), equalTo(Arrays.asList("hello", "world")));
+        assertThat(completed.getStdErrTail(0, TimeUnit.SECONDS), equalTo(Arrays.asList("oh noes")));
+    }
+
+    @Test
+    public void aFailingCallbackDoesNotStopTheOthers() throws IOException, InterruptedException {
+        ExternalProcess process = Command.parse("src/test/resources/myscript.sh").start();
+        process.waitFor();
+        final List<Object> called = new ArrayList<Object>();
+        ProcessFuture<ExternalProcess> future = new ProcessFuture<ExternalProcess>();
+        future.addCallback(new ProcessFuture.Callback<ExternalProcess>() {
+            @Override
+            public void onComplete(ExternalProcess process) {
+                throw new IllegalStateException("callback failed");
+            }
+        });
+        future.addCallback(new ProcessFuture.Callback<ExternalProcess>() {
+            @Override
+            public void onComplete(ExternalProcess process) {
+                called.add(process);
+            }
+        });
+
+        Thread.UncaughtExceptionHandler handler = Thread.currentThread().getUncaughtExceptionHandler();
+        Thread.currentThread().setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                called.add(e.getMessage());
+            }
+        });
+        try {
+            future.complete(process);
+        } finally {
+            Thread.currentThread().setUncaughtExceptionHandler(handler);
+        }
+        assertThat(called, equalTo(Arrays.<Object>asList("callback failed", process)));
+        assertThat(future.isDone(), is(true));
+    }
+
+    @Test
+    public void canWaitForManyProcessesUsingCallbacks() throws IOException, InterruptedException {
+        final CountDownLatch completed = new CountDownLatch(20);
+        final List<Integer> exitValues = new CopyOnWriteArrayList<Integer>();
+        for (int i = 0; i < 20; i++) {
+            Command.parse("src/test/resources/myscript.sh")
+                    .processStdOut(consume().asText().inSharedMultiplexer())
+                    .processStdErr(consume().asText().inSharedMultiplexer())
+                    .start()
+                    .completion()
+                    .addCallback(new ProcessFuture.Callback<ExternalProcess>() {
+                        @Override
+                        public void onComplete(ExternalProcess process) {
+                            exitValues.add(process.exitValue());
+                            completed.countDown();
+                        }
+                    });
+        }
+
+        assertThat(completed.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(exitValues.size(), equalTo(20));
+        for (int exitValue : exitValues) {
+            assertThat(exitValue, equalTo(123));
+        }
+    }
+
+    @Test
+    public void canHandleBinaryStdoutUsingMultiplexer() throws IOException, InterruptedException {
+        BinaryOutputCollectingExternalProcess process = Command.command(java().mainClass(RoundtripBinaryData.class))
+                .processStdOut(consume().asBinary().inSharedMultiplexer())
+                .collectStdOut()
+                .start();
+
+        IOUtils.copy(getResourceAsStream("yohkan.jpg"), process.getStdIn());
+        process.getStdIn().close();
+        process.waitFor();
+
+        assertThat(process.getBinaryOutput(5, TimeUnit.SECONDS), equalTo(getResourceAsByteArray("yohkan.jpg")));
+    }
+
     @Test
     public void canHandleBinaryStdinAndStdout() throws IOException, InterruptedException {
         BinaryOutputCollectingExternalProcess process = Command.command(java().mainClass(RoundtripBinaryData.class))
@@ -116,6 +448,177 @@ public class ExternalProcessTest {
 
     }
 
+    @Test
+    public void canReadCollectedBinaryStdoutWithoutCopying() throws IOException, InterruptedException {
+        BinaryOutputCollectingExternalProcess process = Command.command(java().mainClass(RoundtripBinaryData.class))
+                .processStdOut(consume().asBinary())
+                .collectStdOut()
+                .withOutputChunkSize(4096)
+                .collectingInDirectMemory()
+                .start();
+
+        IOUtils.copy(getResourceAsStream("yohkan.jpg"), process.getStdIn());
+        process.getStdIn().close();
+        process.waitFor();
+
+        assertThat(process.getOutputSize(), equalTo(17660L));
+        // chunks of 128, 256, 512, 1024 and 2048 bytes, then four of 4096
+        assertThat(process.getOutputBuffers().length, equalTo(9));
+        assertThat(IOUtils.toByteArray(process.getOutputAsStream()), equalTo(getResourceAsByteArray("yohkan.jpg")));
+    }
+
+    @Test
+    public void canFeedStdinFromAFile() throws IOException, InterruptedException {
+        BinaryOutputCollectingExternalProcess process = Command.command(java().mainClass(RoundtripBinaryData.class))
+                .processStdOut(consume().asBinary())
+                .collectStdOut()
+                .feedStdIn(new File("src/test/resources/yohkan.jpg"))
+                .start();
+
+        process.waitFor();
+        assertThat(process.getBinaryOutput(), equalTo(getResourceAsByteArray("yohkan.jpg")));
+    }
+
+    @Test
+    public void canFeedStdinFromAChannel() throws IOException, InterruptedException {
+        BinaryOutputCollectingExternalProcess process = Command.command(java().mainClass(RoundtripBinaryData.class))
+                .processStdOut(consume().asBinary())
+                .collectStdOut()
+                .feedStdIn(Channels.newChannel(getResourceAsStream("yohkan.jpg")))
+                .start();
+
+        process.waitFor();
+        assertThat(process.getBinaryOutput(), equalTo(getResourceAsByteArray("yohkan.jpg")));
+    }
+
+    @Test
+    public void canFeedStdinFromAByteBuffer() throws IOException, InterruptedException {
+        byte[] data = getResourceAsByteArray("yohkan.jpg");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+
+        BinaryOutputCollectingExternalProcess process = Command.command(java().mainClass(RoundtripBinaryData.class).inThisJvm())
+                .processStdOut(consume().asBinary())
+                .collectStdOut()
+                .feedStdIn(buffer)
+                .start();
+
+        process.waitFor();
+        assertThat(process.getBinaryOutput(), equalTo(data));
+        assertThat(buffer.remaining(), equalTo(data.length));
+    }
+
+    @Test
+    public void feedingStdinFromAFileDoesNotAffectOtherBuildersWithTheSameCommand() throws IOException, InterruptedException {
+        File input = tempDir.newFile();
+        FileUtils.writeStringToFile(input, "from the file\n");
+        ExternalProcessBuilder.UnspecifiedStdOut cat = Command.parse("cat");
+        ExternalProcessBuilder.TextStdOut withoutInput = cat.processStdOut(consume().asText()).collectStdOut();
+
+        TextCollectingExternalProcess fed = cat.processStdOut(consume().asText()).collectStdOut().feedStdIn(input).start();
+        fed.waitFor();
+        assertThat(fed.getTextOutput(), equalTo(Arrays.asList("from the file")));
+
+        TextCollectingExternalProcess process = withoutInput.start();
+        process.getStdIn().close();
+        process.waitFor();
+        assertThat(process.getTextOutput().isEmpty(), is(true));
+    }
+
+    @Test
+    public void redirectingStdoutToAFileDoesNotAffectOtherBuildersWithTheSameCommand()
+            throws IOException, InterruptedException {
+        File out = tempDir.newFile();
+        ExternalProcessBuilder.UnspecifiedStdOut echo = Command.command("echo", "hello");
+
+        echo.redirectStdOutTo(out).start().waitFor();
+        assertThat(FileUtils.readFileToString(out), equalTo("hello\n"));
+
+        TextCollectingExternalProcess process = echo.processStdOut(consume().asText()).collectStdOut().start();
+        process.waitFor();
+        assertThat(process.getTextOutput(), equalTo(Arrays.asList("hello")));
+    }
+
+    @Test
+    public void launchingDoesNotChangeTheSharedProcessBuilder() throws IOException, InterruptedException {
+        final ProcessBuilder shared = new ProcessBuilder("echo", "hello");
+        final List<ProcessBuilder.Redirect> redirects = new ArrayList<ProcessBuilder.Redirect>();
+        ProcessStarter starter = new ProcessStarter() {
+            @Override
+            public Process start(ProcessBuilder processBuilder) throws IOException {
+                redirects.add(shared.redirectOutput());
+                redirects.add(processBuilder.redirectOutput());
+                return processBuilder.start();
+            }
+        };
+
+        new ExternalProcessBuilder.UnspecifiedStdOut(shared, starter).discardStdOut().start().waitFor();
+
+        // other launches from the same ProcessBuilder, e.g. on other threads, would still see a pipe
+        assertThat(redirects.get(0), equalTo(ProcessBuilder.Redirect.PIPE));
+        assertThat(redirects.get(1), not(equalTo(ProcessBuilder.Redirect.PIPE)));
+    }
+
+    @Test
+    public void canRedirectStdoutAndStderrToFiles() throws IOException, InterruptedException {
+        File out = tempDir.newFile();
+        File err = tempDir.newFile();
+        FileOutputExternalProcess process = Command.command("sh", "-c", "seq 1 100000; echo oops >&2")
+                .redirectStdErrTo(err)
+                .redirectStdOutTo(out)
+                .start();
+
+        MappedLineFile output = process.mapOutput(Charset.forName("UTF-8"));
+        assertThat(output.getLine(41999), equalTo("42000"));
+        assertThat(output.getLineCount(), equalTo(100000));
+        output.close();
+        assertThat(FileUtils.readFileToString(err), equalTo("oops\n"));
+    }
+
+    @Test
+    public void canRedirectStdoutToAFileInThisJvm() throws Exception {
+        File out = tempDir.newFile();
+        FileUtils.writeStringToFile(out, "first\n");
+        FileOutputExternalProcess process = Command.command(java().mainClass(PrintHello.class).inThisJvm())
+                .appendStdOutTo(out)
+                .start();
+
+        assertThat(process.completion().get(10, TimeUnit.SECONDS).exitValue(), equalTo(0));
+        assertThat(FileUtils.readFileToString(out), equalTo("first\nhello" + System.getProperty("line.separator")));
+    }
+
+    @Test
+    public void stderrIsDiscardedIfNobodyListens() throws IOException, InterruptedException {
+        assumeTrue(new File("/proc/self/fd").isDirectory());
+        TextCollectingExternalProcess process = Command.command("sh", "-c", "readlink /proc/$$/fd/2")
+                .collectStdOut()
+                .start();
+
+        assertThat(process.getTextOutput(), equalTo(Arrays.asList("/dev/null")));
+    }
+
+    @Test
+    public void stderrIsPipedIfSomebodyListens() throws IOException, InterruptedException {
+        assumeTrue(new File("/proc/self/fd").isDirectory());
+        TextCollectingExternalProcess process = Command.command("sh", "-c", "readlink /proc/$$/fd/2")
+                .collectStdErrTail(1)
+                .collectStdOut()
+                .start();
+
+        assertThat(process.getTextOutput().get(0), startsWith("pipe:"));
+    }
+
+    @Test
+    public void stdoutCanBeDiscardedExplicitly() throws IOException, InterruptedException {
+        assumeTrue(new File("/proc/self/fd").isDirectory());
+        ExternalProcess process = Command.command("sh", "-c", "exec 3>&1; readlink /proc/self/fd/3 >&2")
+                .discardStdOut()
+                .collectStdErrTail(1)
+                .start();
+
+        assertThat(process.getStdErrTail(), equalTo(Arrays.asList("/dev/null")));
+    }
+
     private InputStream getResourceAsStream(String path) {
         return getClass().getClassLoader().getResourceAsStream(path);
     }
@@ -3,10 +3,16 @@ package com.github.cb372.util.process;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Properties;
 
 import static com.github.cb372.util.process.Command.command;
 import static com.github.cb372.util.process.Java.*;
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -38,4 +44,78 @@ public class JavaCommandTest {
         assertThat(process.getTextOutput().get(1), is("hello"));
         assertThat(process.getTextOutput().get(2), is("world"));
     }
+
+    @Test
+    public void canRunAJavaClassInThisJvm() throws IOException, InterruptedException {
+        TextCollectingExternalProcess process = command(java()
+                .withSysProp("foo", "bar")
+                .mainClass(PrintSysPropAndArgs.class)
+                .withArg("hello")
+                .inThisJvm())
+                .collectStdOut()
+                .start();
+
+        assertThat(process.waitFor(), is(0));
+        assertThat(process.getTextOutput().get(0), is("bar"));
+        assertThat(process.getTextOutput().get(1), is("hello"));
+        assertThat(System.getProperty("foo"), is((String) null));
+    }
+
+    @Test
+    public void classesRunInThisJvmSeeTheirSysPropsHoweverTheyAreRead() throws IOException, InterruptedException {
+        TextCollectingExternalProcess process = command(java()
+                .withSysProp("foo", "bar")
+                .mainClass(PrintSysPropViews.class)
+                .inThisJvm())
+                .collectStdOut()
+                .start();
+
+        assertThat(process.waitFor(), is(0));
+        assertThat(process.getTextOutput(), is(Arrays.asList("bar", "bar", "true", "true", "true")));
+    }
+
+    @Test
+    public void restoresTheJvmsStreamsAndPropertiesOnceClassesRunInThisJvmHaveExited()
+            throws IOException, InterruptedException {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        InputStream in = System.in;
+        Properties props = System.getProperties();
+
+        TextCollectingExternalProcess process = command(java()
+                .withSysProp("foo", "bar")
+                .mainClass(PrintSysPropAndArgs.class)
+                .inThisJvm())
+                .collectStdOut()
+                .start();
+        assertThat(process.waitFor(), is(0));
+
+        assertThat(System.out, is(sameInstance(out)));
+        assertThat(System.err, is(sameInstance(err)));
+        assertThat(System.in, is(sameInstance(in)));
+        assertThat(System.getProperties(), is(sameInstance(props)));
+        assertThat(System.getProperty("foo"), is((String) null));
+    }
+
+    @Test
+    public void classesRunInThisJvmAreIsolatedFromEachOther() throws IOException, InterruptedException {
+        for (int i = 0; i < 2; i++) {
+            TextCollectingExternalProcess process = command(java().mainClass(CountRuns.class).inThisJvm())
+                    .collectStdOut()
+                    .start();
+
+            assertThat(process.getTextOutput().get(0), is("1"));
+        }
+    }
+
+    @Test
+    public void exceptionFromMainInThisJvmGivesNonZeroExitCode() throws IOException, InterruptedException {
+        TextCollectingExternalProcess process = command(java().mainClass(CountRuns.class).withArg("oops").inThisJvm())
+                .collectStdErrTail(10)
+                .collectStdOut()
+                .start();
+
+        assertThat(process.waitFor(), is(1));
+        assertThat(process.getStdErrTail().get(0), containsString("IllegalStateException: oops"));
+    }
 }
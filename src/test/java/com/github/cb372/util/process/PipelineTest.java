@@ -0,0 +1,66 @@
+package com.github.cb372.util.process;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.github.cb372.util.process.Command.command;
+import static com.github.cb372.util.process.Command.pipeline;
+import static com.github.cb372.util.process.Java.java;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class PipelineTest {
+
+    @Test
+    public void lastStageReceivesOutputOfEarlierStages() throws IOException, InterruptedException {
+        PipelineProcess<TextCollectingExternalProcess> process = pipeline(command("printf", "b\\na\\nb\\n"))
+                .then(command("sort"))
+                .to(command("uniq", "-c").collectStdOut())
+                .start();
+
+        assertThat(process.waitFor(), is(0));
+        assertThat(process.getLastStage().getTextOutput().get(0).trim(), is("1 a"));
+        assertThat(process.getLastStage().getTextOutput().get(1).trim(), is("2 b"));
+    }
+
+    @Test
+    public void exposesExitValueOfEachStage() throws IOException, InterruptedException {
+        PipelineProcess<TextCollectingExternalProcess> process = pipeline(command("sh", "-c", "echo hello; exit 3"))
+                .to(command("cat").collectStdOut())
+                .start();
+
+        assertThat(process.waitForAll(), is(Arrays.asList(3, 0)));
+        assertThat(process.exitValue(), is(0));
+        assertThat(process.getLastStage().getTextOutput().get(0), is("hello"));
+    }
+
+    @Test
+    public void eachStageCanCollectItsStdErr() throws IOException, InterruptedException {
+        PipelineProcess<TextCollectingExternalProcess> process = pipeline(command("sh", "-c", "echo oops >&2").collectStdErrTail(5))
+                .to(command("cat"))
+                .start();
+
+        process.waitFor();
+        assertThat(process.getStages().get(0).getStdErrTail(), is(Arrays.asList("oops")));
+    }
+
+    @Test
+    public void stagesCanRunInThisJvm() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        PipelineProcess<TextCollectingExternalProcess> process = pipeline(command("echo", "hello"))
+                .to(command(java().mainClass(RoundtripBinaryData.class).inThisJvm()).collectStdOut())
+                .start();
+
+        PipelineProcess<TextCollectingExternalProcess> completed = process.completion().get(10, TimeUnit.SECONDS);
+        assertThat(completed.exitValues(), is(Arrays.asList(0, 0)));
+        assertThat(completed.getLastStage().getTextOutput().get(0), is("hello"));
+    }
+}
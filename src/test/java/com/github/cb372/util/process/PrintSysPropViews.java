@@ -0,0 +1,20 @@
+package com.github.cb372.util.process;
+
+import java.util.Properties;
+
+/**
+ * Prints whether the "foo" system property is visible through each way of reading the properties.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class PrintSysPropViews {
+    public static void main(String[] args) {
+        Properties props = System.getProperties();
+        System.out.println(props.getProperty("foo", "none"));
+        System.out.println(props.get("foo"));
+        System.out.println(props.containsKey("foo"));
+        System.out.println(props.stringPropertyNames().contains("foo"));
+        System.out.println(props.keySet().contains("foo"));
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.cb372.util.process.pool;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Replies to each line on stdin with the same line, prefixed with this process's request count.
+ * "exit" makes it exit without replying.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class EchoWorker {
+    public static void main(String[] args) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, "UTF-8"));
+        int count = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.equals("exit")) {
+                System.err.println("exiting as requested");
+                System.exit(1);
+            }
+            count++;
+            System.out.println(count + ":" + line);
+            System.out.flush();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.cb372.util.process.pool;
+
+/**
+ * Never reads its stdin, so requests to it fill the pipe and then block.
+ *
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class StalledWorker {
+    public static void main(String[] args) throws InterruptedException {
+        Thread.sleep(Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,204 @@
+package com.github.cb372.util.process.pool;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.github.cb372.util.process.Java.java;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class WorkerPoolTest {
+
+    static final Charset utf8 = Charset.forName("UTF-8");
+
+    @Test
+    public void reusesWorkersForManyRequests() throws Exception {
+        WorkerPool pool = WorkerPool.builder(java().mainClass(EchoWorker.class)).withSize(1).start();
+        try {
+            assertThat(pool.request("a"), is("1:a"));
+            assertThat(pool.request("b"), is("2:b"));
+            assertThat(pool.request("c"), is("3:c"));
+            assertThat(pool.getMetrics().getRequests(), is(3L));
+            assertThat(pool.getMetrics().getWorkersStarted(), is(1L));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void recyclesWorkersAfterMaxRequests() throws Exception {
+        WorkerPool pool = WorkerPool.builder(java().mainClass(EchoWorker.class))
+                .withSize(1)
+                .withMaxRequestsPerWorker(2)
+                .start();
+        try {
+            assertThat(pool.request("a"), is("1:a"));
+            assertThat(pool.request("b"), is("2:b"));
+            assertThat(pool.request("c"), is("1:c"));
+            assertThat(pool.getMetrics().getWorkersRecycled(), is(1L));
+            assertThat(pool.getMetrics().getWorkersStarted(), is(2L));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void replacesWorkersThatFail() throws Exception {
+        WorkerPool pool = WorkerPool.builder(java().mainClass(EchoWorker.class)).withSize(1).start();
+        try {
+            try {
+                pool.request("exit");
+                fail("Expected an exception");
+            } catch (IOException e) {
+                assertThat(e.getMessage(), containsString("exiting as requested"));
+            }
+            assertThat(pool.request("a"), is("1:a"));
+            assertThat(pool.getMetrics().getFailedRequests(), is(1L));
+            assertThat(pool.getMetrics().getWorkersReplaced(), is(1L));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void healthChecksPingIdleWorkers() throws Exception {
+        WorkerPool pool = WorkerPool.builder(java().mainClass(EchoWorker.class))
+                .withSize(1)
+                .withHealthCheck("ping".getBytes(utf8))
+                .withHealthCheckInterval(50, TimeUnit.MILLISECONDS)
+                .start();
+        try {
+            Thread.sleep(500);
+            assertThat(pool.getMetrics().getFailedHealthChecks(), is(0L));
+            // the pings were counted by the worker
+            assertThat(pool.request("a").equals("1:a"), is(false));
+            assertThat(pool.getMetrics().getWorkersStarted(), is(1L));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void healthChecksDoNotCountTowardsMaxRequests() throws Exception {
+        WorkerPool pool = WorkerPool.builder(java().mainClass(EchoWorker.class))
+                .withSize(1)
+                .withMaxRequestsPerWorker(2)
+                .withHealthCheck("ping".getBytes(utf8))
+                .withHealthCheckInterval(50, TimeUnit.MILLISECONDS)
+                .start();
+        try {
+            Thread.sleep(500);
+            pool.request("a");
+            assertThat(pool.getMetrics().getWorkersRecycled(), is(0L));
+            pool.request("b");
+            assertThat(pool.getMetrics().getWorkersRecycled(), is(1L));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void countsRequestsThatTimeOutWaitingForAWorker() throws Exception {
+        final WorkerPool pool = WorkerPool.builder(java().mainClass(StalledWorker.class))
+                .withSize(1)
+                .withRequestTimeout(500, TimeUnit.MILLISECONDS)
+                .start();
+        try {
+            Thread stalled = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        pool.request("never answered");
+                    } catch (Exception e) {
+                        // expected
+                    }
+                }
+            });
+            stalled.start();
+            while (pool.getMetrics().getBusyWorkers() == 0) {
+                Thread.sleep(1);
+            }
+            try {
+                pool.request("a");
+                fail("Expected a timeout");
+            } catch (TimeoutException e) {
+                assertThat(e.getMessage(), containsString("No worker became available"));
+            }
+            stalled.join();
+            assertThat(pool.getMetrics().getRequests(), is(2L));
+            assertThat(pool.getMetrics().getTimedOutRequests(), is(2L));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void timesOutRequestsThatTheWorkerDoesNotRead() throws Exception {
+        WorkerPool pool = WorkerPool.builder(java().mainClass(StalledWorker.class))
+                .withSize(1)
+                .withRequestTimeout(500, TimeUnit.MILLISECONDS)
+                .start();
+        try {
+            // much larger than a pipe's buffer
+            byte[] request = new byte[16 * 1024 * 1024];
+            Arrays.fill(request, (byte) 'a');
+            try {
+                pool.request(request);
+                fail("Expected a timeout");
+            } catch (TimeoutException e) {
+                assertThat(e.getMessage(), containsString("did not read the request"));
+            }
+            assertThat(pool.getMetrics().getTimedOutRequests(), is(1L));
+            assertThat(pool.getMetrics().getWorkersReplaced(), is(1L));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void framingsSplitRepliesCorrectly() throws IOException {
+        assertThat(roundtrip(Framings.lines(), "a", "", "b\r"), is(Arrays.asList("a", "", "b")));
+        assertThat(roundtrip(Framings.delimitedBy((byte) 0), "a\nb", "c"), is(Arrays.asList("a\nb", "c")));
+        assertThat(roundtrip(Framings.lengthPrefixed(100), "a\nb", "", "c"), is(Arrays.asList("a\nb", "", "c")));
+    }
+
+    @Test(expected = IOException.class)
+    public void lengthPrefixFramingRejectsOversizedMessages() throws IOException {
+        roundtrip(Framings.lengthPrefixed(2), "abc");
+    }
+
+    /**
+     * Write the messages, then read them back one byte at a time.
+     */
+    private List<String> roundtrip(Framing framing, String... messages) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String message : messages) {
+            framing.writeFrame(message.getBytes(utf8), out);
+        }
+        byte[] bytes = out.toByteArray();
+        Framing.FrameReader reader = framing.newReader();
+        List<byte[]> frames = new ArrayList<byte[]>();
+        for (int i = 0; i < bytes.length; i++) {
+            reader.read(bytes, i, 1, frames);
+        }
+        List<String> result = new ArrayList<String>();
+        for (byte[] frame : frames) {
+            result.add(new String(frame, utf8));
+        }
+        return result;
+    }
+}
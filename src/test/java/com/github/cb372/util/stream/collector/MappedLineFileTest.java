@@ -0,0 +1,83 @@
+package com.github.cb372.util.stream.collector;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class MappedLineFileTest {
+
+    static final Charset utf8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void handlesAllKindsOfLineEnding() throws IOException {
+        MappedLineFile file = open("a\nb\r\nc\rd\r\r\ne", 1 << 30);
+
+        assertThat(file.getLine(0), is("a"));
+        assertThat(file.getLine(3), is("d"));
+        assertThat(file.getLine(4), is(""));
+        assertThat(file.getLine(5), is("e"));
+        assertThat(file.getLineCount(), is(6));
+        assertThat(file.getLine(2), is("c"));
+        file.close();
+    }
+
+    @Test
+    public void trailingLineEndingDoesNotStartAnotherLine() throws IOException {
+        MappedLineFile file = open("héllo\nwörld\n", 1 << 30);
+
+        assertThat(file.getLineCount(), is(2));
+        assertThat(file.getLine(1), is("wörld"));
+        assertThat(file.getLineOffset(1), is(7L));
+        file.close();
+    }
+
+    @Test
+    public void linesCanCrossSegmentBoundaries() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        MappedLineFile file = open(text.toString(), 64);
+
+        assertThat(file.getLine(999), is("line 999"));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(file.getLine(i), is("line " + i));
+        }
+        assertThat(file.region(64, 8).get(0), is((byte) 'i'));
+        file.close();
+    }
+
+    @Test
+    public void emptyFileHasNoLines() throws IOException {
+        MappedLineFile file = open("", 1 << 30);
+
+        assertThat(file.getLineCount(), is(0));
+        file.close();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void throwsIfThereIsNoSuchLine() throws IOException {
+        open("a\nb", 1 << 30).getLine(2);
+    }
+
+    private MappedLineFile open(String text, int segmentSize) throws IOException {
+        File file = tempDir.newFile();
+        FileUtils.writeStringToFile(file, text, "UTF-8");
+        return new MappedLineFile(file, utf8, segmentSize);
+    }
+}
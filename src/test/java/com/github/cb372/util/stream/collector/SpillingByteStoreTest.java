@@ -0,0 +1,45 @@
+package com.github.cb372.util.stream.collector;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class SpillingByteStoreTest {
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void ignoresWritesAfterItHasBeenClosed() throws IOException {
+        SpillingByteStore store = new SpillingByteStore(10, tempDir.getRoot());
+        store.write(new byte[100]);
+        assertThat(store.isSpilled(), is(true));
+
+        store.close();
+        // larger than the file buffer, so it would be written straight to the closed file
+        store.write(new byte[1024 * 1024]);
+        store.finish();
+
+        assertThat(store.size(), is(100L));
+        assertThat(tempDir.getRoot().list().length, is(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void cannotBeReadAfterItHasBeenClosed() throws IOException {
+        SpillingByteStore store = new SpillingByteStore(10, tempDir.getRoot());
+        store.write(new byte[5]);
+        store.finish();
+        store.close();
+
+        store.toByteArray();
+    }
+}
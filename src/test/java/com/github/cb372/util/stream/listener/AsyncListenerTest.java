@@ -0,0 +1,150 @@
+package com.github.cb372.util.stream.listener;
+
+import com.github.cb372.util.stream.listener.binary.AsyncByteStreamListener;
+import com.github.cb372.util.stream.listener.binary.ChunkedBinaryOutputCollectingListener;
+import com.github.cb372.util.stream.listener.text.AsyncCharStreamListener;
+import com.github.cb372.util.stream.listener.text.StreamLineListener;
+import com.github.cb372.util.stream.listener.text.TextOutputCollectingListener;
+import com.github.cb372.util.stream.processor.ByteStreamProcessor;
+import com.github.cb372.util.stream.processor.CharStreamProcessor;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class AsyncListenerTest {
+
+    static final Charset utf8 = Charset.forName("UTF-8");
+
+    @Test
+    public void passesEverythingOnInOrder() throws IOException, InterruptedException {
+        TextOutputCollectingListener collector = new TextOutputCollectingListener();
+        AsyncCharStreamListener listener = AsyncCharStreamListener.dispatchingTo(collector).withCapacity(2).build();
+        new CharStreamProcessor(new ByteArrayInputStream(lines(1000).getBytes(utf8)), utf8, listener).run();
+
+        // onEndOfStream waits for the listeners to catch up
+        assertThat(collector.getTextOutput().size(), is(1000));
+        assertThat(collector.getTextOutput().get(999), is("line 999"));
+        assertThat(listener.getDroppedEventCount(), is(0L));
+    }
+
+    @Test
+    public void dropsNewestOutputWithoutWaitingForASlowListener() throws IOException, InterruptedException {
+        BlockedListener slow = new BlockedListener();
+        AsyncCharStreamListener listener = AsyncCharStreamListener.dispatchingTo(slow)
+                .withCapacity(10)
+                .withOverflowPolicy(OverflowPolicy.DropNewest)
+                .build();
+        CharStreamProcessor processor = new CharStreamProcessor(new ByteArrayInputStream(new byte[0]), utf8, listener);
+        processor.onBytes(lines(100).getBytes(utf8), 0, lines(100).length());
+
+        assertThat(listener.getDroppedEventCount() >= 89, is(true));
+        slow.release.countDown();
+        processor.onEndOfStream();
+        assertThat(slow.lines.get(0), is("line 0"));
+        assertThat(slow.lines.size() + listener.getDroppedEventCount(), is(100L));
+    }
+
+    @Test
+    public void dropsOldestOutputWithoutWaitingForASlowListener() throws IOException, InterruptedException {
+        BlockedListener slow = new BlockedListener();
+        AsyncCharStreamListener listener = AsyncCharStreamListener.dispatchingTo(slow)
+                .withCapacity(10)
+                .withOverflowPolicy(OverflowPolicy.DropOldest)
+                .build();
+        CharStreamProcessor processor = new CharStreamProcessor(new ByteArrayInputStream(new byte[0]), utf8, listener);
+        processor.onBytes(lines(100).getBytes(utf8), 0, lines(100).length());
+
+        slow.release.countDown();
+        processor.onEndOfStream();
+        assertThat(slow.lines.get(slow.lines.size() - 1), is("line 99"));
+        assertThat(slow.lines.size() + listener.getDroppedEventCount(), is(100L));
+    }
+
+    @Test
+    public void samplesOutputWhenFull() throws IOException, InterruptedException {
+        BlockedListener slow = new BlockedListener();
+        AsyncCharStreamListener listener = AsyncCharStreamListener.dispatchingTo(slow)
+                .withCapacity(10)
+                .sampling(10)
+                .build();
+        CharStreamProcessor processor = new CharStreamProcessor(new ByteArrayInputStream(new byte[0]), utf8, listener);
+        processor.onBytes(lines(1000).getBytes(utf8), 0, lines(1000).length());
+
+        slow.release.countDown();
+        processor.onEndOfStream();
+        assertThat(slow.lines.size() + listener.getDroppedEventCount(), is(1000L));
+        assertThat(slow.lines.get(slow.lines.size() - 1), startsWith("line 99"));
+    }
+
+    @Test(timeout = 10000)
+    public void keepsPassingOutputOnAfterAListenerThrowsAnError() throws IOException {
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        AsyncCharStreamListener listener = AsyncCharStreamListener.dispatchingTo(new StreamLineListener() {
+            @Override
+            public void onLine(String line) {
+                if (line.equals("line 0")) {
+                    throw new AssertionError("listener failed");
+                }
+                received.add(line);
+            }
+        }).withCapacity(2).build();
+        new CharStreamProcessor(new ByteArrayInputStream(lines(100).getBytes(utf8)), utf8, listener).run();
+
+        assertThat(received.size(), is(99));
+        assertThat(received.get(0), is("line 1"));
+    }
+
+    @Test
+    public void passesBinaryDataOn() throws IOException, InterruptedException {
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        ChunkedBinaryOutputCollectingListener collector = new ChunkedBinaryOutputCollectingListener();
+        AsyncByteStreamListener listener = AsyncByteStreamListener.dispatchingTo(collector).withCapacity(4).build();
+        new ByteStreamProcessor(new ByteArrayInputStream(data), 1000, listener).run();
+
+        assertThat(Arrays.equals(collector.getBinaryOutput(), data), is(true));
+    }
+
+    private static String lines(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append("line ").append(i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Blocks on the first line until released.
+     */
+    private static final class BlockedListener extends StreamLineListener {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void onLine(String line) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            lines.add(line);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.cb372.util.stream.listener;
+
+import com.github.cb372.util.stream.listener.binary.ChunkedBinaryOutputCollectingListener;
+import com.github.cb372.util.stream.processor.ByteStreamProcessor;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class ChunkedBinaryOutputCollectingListenerTest {
+
+    @Test
+    public void collectsOutputIntoFixedSizeReadOnlyChunks() throws IOException, InterruptedException {
+        ChunkedBinaryOutputCollectingListener listener = new ChunkedBinaryOutputCollectingListener(64, false);
+        new ByteStreamProcessor(new ByteArrayInputStream(bytes(150)), 50, listener).run();
+
+        ByteBuffer[] buffers = listener.getOutputBuffers();
+        assertThat(buffers.length, is(3));
+        assertThat(buffers[0].remaining(), is(64));
+        assertThat(buffers[2].remaining(), is(22));
+        assertThat(buffers[0].isReadOnly(), is(true));
+        assertThat(listener.getOutputSize(), is(150L));
+        assertThat(listener.getBinaryOutput(), is(bytes(150)));
+    }
+
+    @Test
+    public void startsWithSmallChunksAndDoublesThemUpToTheChunkSize() throws IOException, InterruptedException {
+        ChunkedBinaryOutputCollectingListener small = new ChunkedBinaryOutputCollectingListener();
+        new ByteStreamProcessor(new ByteArrayInputStream(bytes(5)), 16, small).run();
+        assertThat(small.getOutputBuffers()[0].capacity(), is(128));
+
+        ChunkedBinaryOutputCollectingListener large = new ChunkedBinaryOutputCollectingListener(1024, false);
+        new ByteStreamProcessor(new ByteArrayInputStream(bytes(5000)), 100, large).run();
+        ByteBuffer[] buffers = large.getOutputBuffers();
+        int[] capacities = new int[buffers.length];
+        for (int i = 0; i < buffers.length; i++) {
+            capacities[i] = buffers[i].capacity();
+        }
+        assertThat(capacities, is(new int[]{128, 256, 512, 1024, 1024, 1024, 1024, 1024}));
+        assertThat(large.getBinaryOutput(), is(bytes(5000)));
+    }
+
+    @Test(expected = ClosedChannelException.class)
+    public void channelCannotBeReadAfterItIsClosed() throws IOException, InterruptedException {
+        ChunkedBinaryOutputCollectingListener listener = new ChunkedBinaryOutputCollectingListener();
+        new ByteStreamProcessor(new ByteArrayInputStream(bytes(10)), 16, listener).run();
+
+        ReadableByteChannel channel = listener.getOutputAsChannel();
+        channel.close();
+        channel.read(ByteBuffer.allocate(10));
+    }
+
+    @Test
+    public void canReadOutputAsStreamOrChannelRepeatedly() throws IOException, InterruptedException {
+        ChunkedBinaryOutputCollectingListener listener = new ChunkedBinaryOutputCollectingListener(64, true);
+        new ByteStreamProcessor(new ByteArrayInputStream(bytes(1000)), 100, listener).run();
+
+        assertThat(IOUtils.toByteArray(listener.getOutputAsStream()), is(bytes(1000)));
+        assertThat(IOUtils.toByteArray(listener.getOutputAsStream()), is(bytes(1000)));
+
+        ReadableByteChannel channel = listener.getOutputAsChannel();
+        ByteBuffer dst = ByteBuffer.allocate(1000);
+        ByteBuffer small = ByteBuffer.allocate(100);
+        int bytesRead;
+        while ((bytesRead = channel.read(small)) != -1) {
+            assertThat(bytesRead > 0, is(true));
+            small.flip();
+            dst.put(small);
+            small.clear();
+        }
+        assertThat(dst.array(), is(bytes(1000)));
+    }
+
+    @Test
+    public void emptyOutputHasNoChunks() throws IOException, InterruptedException {
+        ChunkedBinaryOutputCollectingListener listener = new ChunkedBinaryOutputCollectingListener();
+        new ByteStreamProcessor(new ByteArrayInputStream(new byte[0]), 16, listener).run();
+
+        assertThat(listener.getOutputBuffers().length, is(0));
+        assertThat(listener.getBinaryOutput().length, is(0));
+        assertThat(listener.getOutputAsStream().read(), is(-1));
+    }
+
+    private byte[] bytes(int n) {
+        byte[] bytes = new byte[n];
+        for (int i = 0; i < n; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+}
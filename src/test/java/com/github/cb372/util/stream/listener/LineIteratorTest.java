@@ -0,0 +1,178 @@
+package com.github.cb372.util.stream.listener;
+
+import com.github.cb372.util.stream.StreamProcessingException;
+import com.github.cb372.util.stream.listener.text.LineIterator;
+import com.github.cb372.util.stream.listener.text.StreamLineListener;
+import com.github.cb372.util.stream.listener.text.TextOutputCollectingListener;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.cb372.util.process.StreamProcessing.consume;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class LineIteratorTest {
+
+    static final Charset utf8 = Charset.forName("UTF-8");
+
+    @Test
+    public void iteratesOverLinesUntilEndOfStream() {
+        LineIterator lines = new LineIterator(10);
+        consume().asText().withListener(lines).withIOExceptionHandler(lines)
+                .start(new ByteArrayInputStream("a\nb\nc".getBytes(utf8)));
+
+        List<String> result = new ArrayList<String>();
+        while (lines.hasNext()) {
+            result.add(lines.next());
+        }
+        assertThat(result, is(Arrays.asList("a", "b", "c")));
+    }
+
+    @Test
+    public void stopsReadingWhenConsumerFallsBehind() throws InterruptedException {
+        final AtomicInteger bytesRead = new AtomicInteger();
+        InputStream stream = new ByteArrayInputStream(manyLines(10000)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                int n = super.read(b, off, Math.min(len, 10));
+                if (n > 0) {
+                    bytesRead.addAndGet(n);
+                }
+                return n;
+            }
+        };
+        LineIterator lines = new LineIterator(5);
+        consume().asText().withListener(lines).withIOExceptionHandler(lines).start(stream);
+
+        Thread.sleep(200);
+        assertThat(bytesRead.get() < 1000, is(true));
+
+        int count = 0;
+        while (lines.hasNext()) {
+            lines.next();
+            count++;
+        }
+        assertThat(count, is(10000));
+    }
+
+    @Test
+    public void reportsErrorsReadingTheStream() {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("boom");
+            }
+        };
+        LineIterator lines = new LineIterator(10);
+        consume().asText().withListener(lines).withIOExceptionHandler(lines)
+                .start(new SequenceInputStream(new ByteArrayInputStream("a\n".getBytes(utf8)), failing));
+
+        assertThat(lines.next(), is("a"));
+        try {
+            lines.hasNext();
+            fail("Expected an exception");
+        } catch (StreamProcessingException e) {
+            assertThat(e.getCause().getMessage(), is("boom"));
+        }
+    }
+
+    @Test
+    public void endsWithAnErrorIfProcessingStopsBeforeTheEndOfTheStream() {
+        final LineIterator lines = new LineIterator(10);
+        consume().asText().withListener(lines).withListener(new StreamLineListener() {
+                    @Override
+                    public void onLine(String line) {
+                        throw new IllegalStateException("listener failed");
+                    }
+                })
+                .withUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                    @Override
+                    public void uncaughtException(Thread t, Throwable e) {
+                        // expected
+                    }
+                })
+                .start(new ByteArrayInputStream("a\nb\n".getBytes(utf8)), null, new Runnable() {
+                    @Override
+                    public void run() {
+                        lines.onStreamProcessingFinished();
+                    }
+                });
+
+        assertThat(lines.next(), is("a"));
+        try {
+            lines.hasNext();
+            fail("Expected an exception");
+        } catch (StreamProcessingException e) {
+            assertThat(e.getCause().getMessage(), is("Stream processing stopped before the end of the stream"));
+        }
+    }
+
+    @Test
+    public void endsWithAnErrorIfInterruptedWhileWaitingForTheConsumer() throws InterruptedException {
+        final LineIterator lines = new LineIterator(1);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                lines.onLine("a");
+                lines.onLine("b");
+                lines.onLine("c");
+            }
+        });
+        producer.start();
+        // wait until the producer is blocked on the full queue
+        while (producer.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+        producer.interrupt();
+
+        // a line that is handed over just as the interrupt arrives still gets through,
+        // but the producer stops at the next one
+        List<String> result = new ArrayList<String>();
+        try {
+            while (lines.hasNext()) {
+                result.add(lines.next());
+            }
+            fail("Expected an exception");
+        } catch (StreamProcessingException e) {
+            assertThat(e.getCause() instanceof InterruptedIOException, is(true));
+        }
+        assertThat(result.size() < 3, is(true));
+        producer.join();
+    }
+
+    @Test
+    public void closingDiscardsTheRestOfTheOutput() throws InterruptedException {
+        LineIterator lines = new LineIterator(1);
+        TextOutputCollectingListener collector = new TextOutputCollectingListener();
+        consume().asText().withListener(lines).withListener(collector)
+                .start(new ByteArrayInputStream(manyLines(100)));
+
+        assertThat(lines.next(), is("line 0"));
+        lines.close();
+        assertThat(lines.hasNext(), is(false));
+        assertThat(collector.getTextOutput().size(), is(100));
+    }
+
+    private byte[] manyLines(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append("line ").append(i).append('\n');
+        }
+        return sb.toString().getBytes(utf8);
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.cb372.util.stream.listener;
+
+import com.github.cb372.util.stream.listener.text.LoggingListener;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.cb372.util.process.Logging.usingLogger;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class LoggingListenerTest {
+
+    private final List<String> infoLogs = Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * A logger with only info level enabled, which records what is logged at info level.
+     */
+    private final Logger logger = (Logger) Proxy.newProxyInstance(
+            Logger.class.getClassLoader(), new Class<?>[]{Logger.class}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if (method.getName().equals("isInfoEnabled")) {
+                        return true;
+                    }
+                    if (method.getName().startsWith("is")) {
+                        return false;
+                    }
+                    if (method.getName().equals("info")) {
+                        infoLogs.add((String) args[0]);
+                    }
+                    return null;
+                }
+            });
+
+    @Test
+    public void logsEachLine() {
+        LoggingListener listener = usingLogger(logger).withPrefix("out: ").build();
+        listener.onLine("a");
+        listener.onLine("b");
+        listener.onEndOfStream();
+
+        assertThat(infoLogs, is(Arrays.asList("out: a", "out: b")));
+    }
+
+    @Test
+    public void doesNothingIfTheLevelIsDisabled() {
+        LoggingListener listener = usingLogger(logger).atDebugLevel().batching(10, 1, TimeUnit.SECONDS).build();
+        listener.onLine("a");
+        listener.onEndOfStream();
+
+        assertThat(infoLogs.isEmpty(), is(true));
+    }
+
+    @Test
+    public void batchesLinesBySize() {
+        LoggingListener listener = usingLogger(logger).batching(2, 1, TimeUnit.HOURS).build();
+        listener.onLine("a");
+        listener.onLine("b");
+        listener.onLine("c");
+        assertThat(infoLogs, is(Arrays.asList("a\nb")));
+
+        listener.onEndOfStream();
+        assertThat(infoLogs, is(Arrays.asList("a\nb", "c")));
+    }
+
+    @Test
+    public void batchesLinesByTime() throws InterruptedException {
+        LoggingListener listener = usingLogger(logger).batching(100, 50, TimeUnit.MILLISECONDS).build();
+        listener.onLine("a");
+        listener.onLine("b");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (infoLogs.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(infoLogs, is(Arrays.asList("a\nb")));
+    }
+
+    @Test
+    public void summarisesSuppressedLines() {
+        LoggingListener listener = usingLogger(logger).rateLimitedTo(2, 1, TimeUnit.HOURS).build();
+        for (int i = 0; i < 10; i++) {
+            listener.onLine("line " + i);
+        }
+        listener.onEndOfStream();
+
+        assertThat(infoLogs, is(Arrays.asList("line 0", "line 1", "8 lines suppressed")));
+    }
+}
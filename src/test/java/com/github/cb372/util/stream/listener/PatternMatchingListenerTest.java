@@ -0,0 +1,154 @@
+package com.github.cb372.util.stream.listener;
+
+import com.github.cb372.util.process.Command;
+import com.github.cb372.util.process.ExternalProcess;
+import com.github.cb372.util.stream.listener.text.PatternMatchingListener;
+import com.github.cb372.util.stream.processor.CharStreamProcessor;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.cb372.util.process.StreamProcessing.consume;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class PatternMatchingListenerTest {
+
+    static final Charset utf8 = Charset.forName("UTF-8");
+
+    @Test
+    public void findsOverlappingLiterals() throws IOException {
+        List<String> matches = new ArrayList<String>();
+        PatternMatchingListener listener = new PatternMatchingListener.Builder()
+                .literal("he", "she", "his", "hers", "xyz")
+                .onMatch(recordingTo(matches))
+                .build();
+        run(listener, "ushers\nthis\n");
+
+        assertThat(matches, is(Arrays.asList("he: ushers", "she: ushers", "hers: ushers", "his: this")));
+    }
+
+    @Test
+    public void findsEveryMatchingRegex() throws IOException {
+        List<String> matches = new ArrayList<String>();
+        PatternMatchingListener listener = new PatternMatchingListener.Builder()
+                .regex("ERROR \\d+")
+                .regex("\\d{3}")
+                .regex("(\\w)\\1")
+                .regex("nothing")
+                .onMatch(recordingTo(matches))
+                .build();
+        run(listener, "ok\nERROR 404 boo\n");
+
+        assertThat(matches, is(Arrays.asList("ERROR \\d+: ERROR 404 boo", "\\d{3}: ERROR 404 boo", "(\\w)\\1: ERROR 404 boo")));
+        assertThat(listener.getFirstMatch("ERROR \\d+").getLineNumber(), is(2L));
+        assertThat(listener.getFirstMatch("nothing"), is(nullValue()));
+    }
+
+    @Test
+    public void matchesRegexesThatCannotBeCombinedIntoOneAlternation() throws IOException {
+        List<String> matches = new ArrayList<String>();
+        PatternMatchingListener listener = new PatternMatchingListener.Builder()
+                .regex("\\Qa.b")
+                .regex("(?x) c d # comment")
+                .regex("ef")
+                .regex("g+")
+                .onMatch(recordingTo(matches))
+                .build();
+        run(listener, "a.b\ncd\nef\nggg\naxb\n");
+
+        assertThat(matches, is(Arrays.asList(
+                "\\Qa.b: a.b", "(?x) c d # comment: cd", "ef: ef", "g+: ggg")));
+    }
+
+    @Test
+    public void awaitsAMatchFromAProcess() throws IOException, InterruptedException {
+        PatternMatchingListener listener = new PatternMatchingListener.Builder()
+                .literal("Server started")
+                .build();
+        ExternalProcess process = Command.command("sh", "-c", "sleep 0.2; echo 'Server started on port 80'; sleep 0.2")
+                .processStdOut(consume().asText().withListener(listener))
+                .start();
+
+        PatternMatchingListener.Match match = listener.awaitMatch("Server started", 10, TimeUnit.SECONDS);
+        assertThat(match.getLine(), is("Server started on port 80"));
+        process.waitFor();
+    }
+
+    @Test
+    public void stopsWaitingAtTheEndOfTheStream() throws IOException, InterruptedException {
+        PatternMatchingListener listener = new PatternMatchingListener.Builder()
+                .literal("Server started")
+                .build();
+        run(listener, "Exception in thread \"main\"\n");
+
+        assertThat(listener.awaitMatch("Server started", 10, TimeUnit.SECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void canMatchLinesFromSeveralStreamsAtOnce() throws InterruptedException {
+        final AtomicInteger matches = new AtomicInteger();
+        final PatternMatchingListener listener = new PatternMatchingListener.Builder()
+                .literal("ERROR")
+                .regex("code \\d+")
+                .onMatch(new PatternMatchingListener.Callback() {
+                    @Override
+                    public void onMatch(PatternMatchingListener.Match match) {
+                        matches.incrementAndGet();
+                    }
+                })
+                .build();
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            output.append(i % 2 == 0 ? "ERROR with code " + i : "fine").append('\n');
+        }
+        final String text = output.toString();
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 2; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        PatternMatchingListenerTest.run(listener, text);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // two patterns on each of 50000 lines in each of two streams
+        assertThat(matches.get(), is(200000));
+    }
+
+    private static void run(PatternMatchingListener listener, String output) throws IOException {
+        new CharStreamProcessor(new ByteArrayInputStream(output.getBytes(utf8)), utf8, listener).run();
+    }
+
+    private static PatternMatchingListener.Callback recordingTo(final List<String> matches) {
+        return new PatternMatchingListener.Callback() {
+            @Override
+            public void onMatch(PatternMatchingListener.Match match) {
+                matches.add(match.getPattern() + ": " + match.getLine());
+            }
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.cb372.util.stream.listener;
+
+import com.github.cb372.util.stream.listener.binary.SpillingBinaryOutputCollectingListener;
+import com.github.cb372.util.stream.listener.text.SpillingTextOutputCollectingListener;
+import com.github.cb372.util.stream.processor.ByteStreamProcessor;
+import com.github.cb372.util.stream.processor.CharStreamProcessor;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class SpillingOutputCollectingListenerTest {
+
+    static final Charset utf8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void keepsSmallBinaryOutputInMemory() throws IOException, InterruptedException {
+        SpillingBinaryOutputCollectingListener listener = new SpillingBinaryOutputCollectingListener(100, tempDir.getRoot());
+        new ByteStreamProcessor(new ByteArrayInputStream(bytes(100)), 16, listener).run();
+
+        assertThat(listener.isSpilled(), is(false));
+        assertThat(listener.getBinaryOutput(), is(bytes(100)));
+        assertThat(tempDir.getRoot().list().length, is(0));
+    }
+
+    @Test
+    public void spillsLargeBinaryOutputToDiskAndDeletesItOnClose() throws IOException, InterruptedException {
+        SpillingBinaryOutputCollectingListener listener = new SpillingBinaryOutputCollectingListener(100, tempDir.getRoot());
+        new ByteStreamProcessor(new ByteArrayInputStream(bytes(1000)), 16, listener).run();
+
+        assertThat(listener.isSpilled(), is(true));
+        assertThat(listener.getSize(), is(1000L));
+        InputStream in = listener.openInputStream();
+        assertThat(IOUtils.toByteArray(in), is(bytes(1000)));
+        in.close();
+        assertThat(tempDir.getRoot().list().length, is(1));
+
+        listener.close();
+        assertThat(tempDir.getRoot().list().length, is(0));
+    }
+
+    @Test
+    public void spillsLargeTextOutputToDiskAndDeletesItOnClose() throws IOException, InterruptedException {
+        SpillingTextOutputCollectingListener listener = new SpillingTextOutputCollectingListener(10, tempDir.getRoot());
+        String text = "abc\r\n\nあいう\ndef";
+        new CharStreamProcessor(new ByteArrayInputStream(text.getBytes(utf8)), utf8, listener).run();
+
+        assertThat(listener.isSpilled(), is(true));
+        assertThat(listener.getLineCount(), is(4L));
+        assertThat(listener.getTextOutput(), is(Arrays.asList("abc", "", "あいう", "def")));
+
+        BufferedReader reader = listener.openReader();
+        assertThat(reader.readLine(), is("abc"));
+        assertThat(reader.readLine(), is(""));
+        assertThat(reader.readLine(), is("あいう"));
+        assertThat(reader.readLine(), is("def"));
+        assertThat(reader.readLine(), is(nullValue()));
+        reader.close();
+
+        listener.close();
+        assertThat(tempDir.getRoot().list().length, is(0));
+    }
+
+    private byte[] bytes(int n) {
+        byte[] bytes = new byte[n];
+        for (int i = 0; i < n; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+}
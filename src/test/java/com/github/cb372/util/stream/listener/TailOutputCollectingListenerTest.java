@@ -0,0 +1,69 @@
+package com.github.cb372.util.stream.listener;
+
+import com.github.cb372.util.stream.listener.binary.TailBinaryOutputCollectingListener;
+import com.github.cb372.util.stream.listener.text.TailTextOutputCollectingListener;
+import com.github.cb372.util.stream.processor.ByteStreamProcessor;
+import com.github.cb372.util.stream.processor.CharStreamProcessor;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class TailOutputCollectingListenerTest {
+
+    static final Charset utf8 = Charset.forName("UTF-8");
+
+    @Test
+    public void keepsOnlyTheLastLines() throws IOException, InterruptedException {
+        TailTextOutputCollectingListener listener = new TailTextOutputCollectingListener(3);
+        new CharStreamProcessor(new ByteArrayInputStream("a\nb\nc\nd\ne".getBytes(utf8)), utf8, listener).run();
+
+        assertThat(listener.getTextOutput(), is(Arrays.asList("c", "d", "e")));
+        assertThat(listener.getLineCount(), is(5L));
+    }
+
+    @Test
+    public void keepsAllLinesIfThereAreFewerThanTheLimit() throws IOException, InterruptedException {
+        TailTextOutputCollectingListener listener = new TailTextOutputCollectingListener(3);
+        new CharStreamProcessor(new ByteArrayInputStream("a\nb\n".getBytes(utf8)), utf8, listener).run();
+
+        assertThat(listener.getTextOutput(), is(Arrays.asList("a", "b")));
+    }
+
+    @Test
+    public void keepsOnlyTheLastBytes() throws IOException, InterruptedException {
+        TailBinaryOutputCollectingListener listener = new TailBinaryOutputCollectingListener(100);
+        new ByteStreamProcessor(new ByteArrayInputStream(bytes(1000)), 30, listener).run();
+
+        assertThat(listener.getBinaryOutput(), is(Arrays.copyOfRange(bytes(1000), 900, 1000)));
+        assertThat(IOUtils.toByteArray(listener.getOutputAsStream()), is(Arrays.copyOfRange(bytes(1000), 900, 1000)));
+        assertThat(listener.getByteCount(), is(1000L));
+    }
+
+    @Test
+    public void keepsTheEndOfAChunkThatIsBiggerThanTheLimit() throws IOException, InterruptedException {
+        TailBinaryOutputCollectingListener listener = new TailBinaryOutputCollectingListener(100);
+        new ByteStreamProcessor(new ByteArrayInputStream(bytes(250)), 1000, listener).run();
+
+        assertThat(listener.getBinaryOutput(), is(Arrays.copyOfRange(bytes(250), 150, 250)));
+        assertThat(listener.getOutputSize(), is(100L));
+    }
+
+    private byte[] bytes(int n) {
+        byte[] bytes = new byte[n];
+        for (int i = 0; i < n; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+}
@@ -1,14 +1,20 @@
 package com.github.cb372.util.stream.processor;
 
+import com.github.cb372.util.stream.listener.text.CharChunkListener;
 import com.github.cb372.util.stream.listener.text.CharStreamListener;
+import com.github.cb372.util.stream.listener.text.LineViewListener;
+import com.github.cb372.util.stream.listener.text.SelectiveCharStreamListener;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.MalformedInputException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -168,13 +174,151 @@ public class CharStreamProcessorTest {
         assertThat(listener.onLineCalls, is(list(">>abc","EOS")));
     }
 
+    @Test
+    public void chunkListenersReceiveRunsOfChars() throws IOException {
+        String text = "abc\r\ndef\n\nghi";
+        MockListener listener = new MockListener();
+        MockChunkListener chunkListener = new MockChunkListener();
+        new CharStreamProcessor(new ByteArrayInputStream(text.getBytes(utf8)), utf8, ">>", listener, chunkListener).run();
+
+        assertThat(chunkListener.chars.toString(), is(">>abc\r>>\ndef\n>>\n>>ghi"));
+        assertThat(chunkListener.onLineCalls, is(list(">>abc", ">>def", ">>", ">>ghi", "EOS")));
+        assertThat(listener.onLineCalls, is(chunkListener.onLineCalls));
+        assertThat(chunkListener.onCharsCalls < chunkListener.chars.length(), is(true));
+    }
+
+    @Test
+    public void handlesLineEndingsSplitAcrossReads() throws IOException {
+        String text = "abc\r\ndef\r\r\nghi\n";
+        MockListener listener = new MockListener();
+        MockChunkListener chunkListener = new MockChunkListener();
+        new CharStreamProcessor(new TrickleInputStream(text.getBytes(utf8)), utf8, listener, chunkListener).run();
+
+        assertThat(listener.onLineCalls, is(list("abc", "def", "", "ghi", "EOS")));
+        assertThat(chunkListener.onLineCalls, is(listener.onLineCalls));
+        assertThat(chunkListener.chars.toString(), is(text));
+    }
+
+    @Test
+    public void onlyCallsBackSelectiveListenersForWhatTheyWant() throws IOException {
+        String text = "abc\r\ndef\n";
+        MockListener listener = new MockListener();
+        SelectiveMockListener linesOnly = new SelectiveMockListener(false, true);
+        SelectiveMockListener charsOnly = new SelectiveMockListener(true, false);
+        new CharStreamProcessor(new ByteArrayInputStream(text.getBytes(utf8)), utf8, ">>", linesOnly, charsOnly, listener).run();
+
+        assertThat(linesOnly.onCharCalls, is(list("EOS")));
+        assertThat(linesOnly.onLineCalls, is(listener.onLineCalls));
+        assertThat(charsOnly.onCharCalls, is(listener.onCharCalls));
+        assertThat(charsOnly.onLineCalls, is(list("EOS")));
+    }
+
+    @Test
+    public void charsOnlyListenerGetsPrefixAtStartOfEachLine() throws IOException {
+        String text = "abc\r\ndef\n\nghi";
+        SelectiveMockListener charsOnly = new SelectiveMockListener(true, false);
+        new CharStreamProcessor(new TrickleInputStream(text.getBytes(utf8)), utf8, ">>", charsOnly).run();
+
+        assertThat(charsOnly.onCharCalls, is(list(
+                ">", ">", "a", "b", "c", "\r",
+                ">", ">", "\n", "d", "e", "f", "\n",
+                ">", ">", "\n",
+                ">", ">", "g", "h", "i",
+                "EOS")));
+    }
+
+    @Test
+    public void consumesStreamWhenNoListenerIsInterested() throws IOException {
+        SelectiveMockListener uninterested = new SelectiveMockListener(false, false);
+        new CharStreamProcessor(new ByteArrayInputStream("abc\ndef".getBytes(utf8)), utf8, uninterested).run();
+
+        assertThat(uninterested.onCharCalls, is(list("EOS")));
+        assertThat(uninterested.onLineCalls, is(list("EOS")));
+    }
+
+    @Test
+    public void lineViewListenersReceiveAReusedViewOfEachLine() throws IOException {
+        String text = "abc\r\ndef\n\nghi";
+        MockLineViewListener viewListener = new MockLineViewListener();
+        MockListener listener = new MockListener();
+        new CharStreamProcessor(new TrickleInputStream(text.getBytes(utf8)), utf8, ">>", viewListener, listener).run();
+
+        assertThat(viewListener.onLineViewCalls, is(listener.onLineCalls));
+        assertThat(viewListener.views.size(), is(1));
+    }
+
+    @Test
+    public void lineListenersAreCalledInTheOrderTheyWereAdded() throws IOException {
+        final List<String> calls = new ArrayList<String>();
+        CharStreamListener stringListener = new MockListener() {
+            @Override
+            public void onLine(String line) {
+                calls.add("string " + line);
+            }
+        };
+        CharStreamListener viewListener = new MockLineViewListener() {
+            @Override
+            public void onLineView(CharSequence line) {
+                calls.add("view " + line);
+            }
+        };
+        new CharStreamProcessor(new ByteArrayInputStream("a\n".getBytes(utf8)), utf8, "", stringListener, viewListener).run();
+
+        assertThat(calls, is(list("string a", "view a")));
+    }
+
+    @Test
+    public void decodesMixedAsciiAndMultiByteCharactersWithSmallBuffers() throws IOException {
+        String text = "ascii あいう\nmore ascii é😀 end\n";
+        for (InputStream stream : Arrays.asList(new ByteArrayInputStream(text.getBytes(utf8)),
+                                                new TrickleInputStream(text.getBytes(utf8)))) {
+            MockListener listener = new MockListener();
+            new CharStreamProcessor(stream, utf8, "", Arrays.<CharStreamListener>asList(listener), 16, CodingErrorAction.REPORT).run();
+
+            assertThat(listener.onLineCalls, is(list("ascii あいう", "more ascii é😀 end", "EOS")));
+        }
+    }
+
+    @Test
+    public void replacesMalformedInputByDefault() throws IOException {
+        byte[] bytes = {'a', (byte) 0xc3, 'b', '\n', (byte) 0xff};
+        MockListener listener = new MockListener();
+        new CharStreamProcessor(new ByteArrayInputStream(bytes), utf8, listener).run();
+
+        assertThat(listener.onLineCalls, is(list("a\ufffdb", "\ufffd", "EOS")));
+    }
+
+    @Test(expected = MalformedInputException.class)
+    public void canReportMalformedInput() throws IOException {
+        byte[] bytes = {'a', (byte) 0xc3, 'b', '\n'};
+        new CharStreamProcessor(new ByteArrayInputStream(bytes), utf8, "",
+                Arrays.<CharStreamListener>asList(new MockListener()), 1024, CodingErrorAction.REPORT).run();
+    }
+
+    @Test
+    public void decodesEveryLatin1AndAsciiByte() throws IOException {
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        Charset latin1 = Charset.forName("ISO-8859-1");
+        Charset ascii = Charset.forName("US-ASCII");
+        MockChunkListener latin1Listener = new MockChunkListener();
+        MockChunkListener asciiListener = new MockChunkListener();
+        new CharStreamProcessor(new ByteArrayInputStream(bytes), latin1, latin1Listener).run();
+        new CharStreamProcessor(new ByteArrayInputStream(bytes), ascii, asciiListener).run();
+
+        assertThat(latin1Listener.chars.toString(), is(new String(bytes, latin1)));
+        assertThat(asciiListener.chars.toString(), is(new String(bytes, ascii)));
+    }
+
     private List<String> list(String... strings) {
         return Arrays.asList(strings);
     }
 
     static class MockListener implements CharStreamListener {
-        private List<String> onCharCalls = new ArrayList<String>();
-        private List<String> onLineCalls = new ArrayList<String>();
+        List<String> onCharCalls = new ArrayList<String>();
+        List<String> onLineCalls = new ArrayList<String>();
 
         @Override
         public void onChar(char c) {
@@ -192,4 +336,105 @@ public class CharStreamProcessorTest {
             onLineCalls.add("EOS");
         }
     }
+
+    static class SelectiveMockListener extends MockListener implements SelectiveCharStreamListener {
+        private final boolean wantsChars;
+        private final boolean wantsLines;
+
+        SelectiveMockListener(boolean wantsChars, boolean wantsLines) {
+            this.wantsChars = wantsChars;
+            this.wantsLines = wantsLines;
+        }
+
+        @Override
+        public boolean wantsChars() {
+            return wantsChars;
+        }
+
+        @Override
+        public boolean wantsLines() {
+            return wantsLines;
+        }
+    }
+
+    static class MockChunkListener implements CharChunkListener {
+        private StringBuilder chars = new StringBuilder();
+        private int onCharsCalls = 0;
+        private List<String> onLineCalls = new ArrayList<String>();
+
+        @Override
+        public void onChar(char c) {
+            throw new AssertionError("onChar should not be called on a CharChunkListener");
+        }
+
+        @Override
+        public void onChars(char[] c, int offset, int len) {
+            chars.append(c, offset, len);
+            onCharsCalls++;
+        }
+
+        @Override
+        public void onLine(String line) {
+            onLineCalls.add(line);
+        }
+
+        @Override
+        public void onEndOfStream() {
+            onLineCalls.add("EOS");
+        }
+    }
+
+    static class MockLineViewListener implements LineViewListener {
+        private List<String> onLineViewCalls = new ArrayList<String>();
+        private IdentityHashMap<CharSequence, Boolean> views = new IdentityHashMap<CharSequence, Boolean>();
+
+        @Override
+        public void onChar(char c) {
+        }
+
+        @Override
+        public void onLine(String line) {
+            throw new AssertionError("onLine should not be called on a LineViewListener");
+        }
+
+        @Override
+        public void onLineView(CharSequence line) {
+            views.put(line, true);
+            onLineViewCalls.add(line.toString());
+        }
+
+        @Override
+        public void onEndOfStream() {
+            onLineViewCalls.add("EOS");
+        }
+    }
+
+    /**
+     * Returns one byte per read, like a slow process writing to a pipe.
+     */
+    static class TrickleInputStream extends InputStream {
+        private final byte[] bytes;
+        private int pos = 0;
+
+        TrickleInputStream(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read() {
+            return pos < bytes.length ? bytes[pos++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= bytes.length) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            b[off] = bytes[pos++];
+            return 1;
+        }
+    }
 }
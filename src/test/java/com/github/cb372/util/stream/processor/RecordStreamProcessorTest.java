@@ -0,0 +1,140 @@
+package com.github.cb372.util.stream.processor;
+
+import com.github.cb372.util.process.BinaryOutputCollectingExternalProcess;
+import com.github.cb372.util.process.Command;
+import com.github.cb372.util.stream.listener.binary.ByteStreamListener;
+import com.github.cb372.util.stream.listener.binary.Record;
+import com.github.cb372.util.stream.listener.binary.RecordListener;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.github.cb372.util.process.StreamProcessing.consume;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Author: chris
+ * Created: 10/18/26
+ */
+public class RecordStreamProcessorTest {
+
+    static final Charset utf8 = Charset.forName("UTF-8");
+
+    @Test
+    public void splitsOnTheDelimiter() throws IOException {
+        MockListener listener = new MockListener();
+        new RecordStreamProcessor(new ByteArrayInputStream("a\0bc\0\0def".getBytes(utf8)), 1024, (byte) 0, listener).run();
+
+        assertThat(listener.records, is(Arrays.asList("a", "bc", "", "def", "EOS")));
+    }
+
+    @Test
+    public void handlesRecordsSplitAcrossReads() throws IOException {
+        MockListener listener = new MockListener();
+        byte[] text = "first record\nsecond record\nthird".getBytes(utf8);
+        new RecordStreamProcessor(new CharStreamProcessorTest.TrickleInputStream(text), 1024, (byte) '\n', listener).run();
+
+        assertThat(listener.records, is(Arrays.asList("first record", "second record", "third", "EOS")));
+    }
+
+    @Test
+    public void growsTheBufferForLongRecords() throws IOException {
+        MockListener listener = new MockListener();
+        String longRecord = new String(new char[100]).replace('\0', 'x');
+        byte[] text = ("a\n" + longRecord + "\nb\n").getBytes(utf8);
+        new RecordStreamProcessor(new ByteArrayInputStream(text), 8, (byte) '\n', listener).run();
+
+        assertThat(listener.records, is(Arrays.asList("a", longRecord, "b", "EOS")));
+    }
+
+    @Test
+    public void stripsCarriageReturnsWhenSplittingIntoLines() throws IOException {
+        MockListener listener = new MockListener();
+        new RecordStreamProcessor(new ByteArrayInputStream("a\r\nb\nc\r".getBytes(utf8)), 1024, (byte) '\n', true,
+                Collections.<ByteStreamListener>emptyList(),
+                Arrays.<RecordListener>asList(listener)).run();
+
+        assertThat(listener.records, is(Arrays.asList("a", "b", "c", "EOS")));
+    }
+
+    @Test
+    public void findsEveryDelimiterInRandomData() throws IOException {
+        Random random = new Random(42);
+        for (int delimiter : new int[]{0, '\n', 0x80, 0xff}) {
+            byte[] data = new byte[10000];
+            for (int i = 0; i < data.length; i++) {
+                // a small alphabet, so delimiters are common, including bytes next to the delimiter
+                data[i] = (byte) (delimiter + random.nextInt(4) - 1);
+            }
+
+            final List<Integer> lengths = new ArrayList<Integer>();
+            RecordListener listener = new RecordListener() {
+                @Override
+                public void onRecord(Record record) {
+                    lengths.add(record.length());
+                }
+
+                @Override
+                public void onEndOfStream() {
+                }
+            };
+            new RecordStreamProcessor(new ByteArrayInputStream(data), 64, (byte) delimiter, listener).run();
+
+            assertThat(lengths, is(naiveSplit(data, (byte) delimiter)));
+        }
+    }
+
+    @Test
+    public void canBeSelectedFromTheBuilder() throws Exception {
+        MockListener listener = new MockListener();
+        BinaryOutputCollectingExternalProcess process = Command.command("printf", "one\\000two\\000")
+                .processStdOut(consume().asBinary().splitOn((byte) 0).withListener(listener))
+                .collectStdOut()
+                .start();
+        process.completion().get(); // the listeners have finished
+
+        assertThat(process.getBinaryOutput(), is("one\0two\0".getBytes(utf8)));
+        assertThat(listener.records, is(Arrays.asList("one", "two", "EOS")));
+    }
+
+    private static List<Integer> naiveSplit(byte[] data, byte delimiter) {
+        List<Integer> lengths = new ArrayList<Integer>();
+        int start = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == delimiter) {
+                lengths.add(i - start);
+                start = i + 1;
+            }
+        }
+        if (start < data.length) {
+            lengths.add(data.length - start);
+        }
+        return lengths;
+    }
+
+    static class MockListener implements RecordListener {
+        final List<String> records = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void onRecord(Record record) {
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            copy.write(record.array(), record.offset(), record.length());
+            assertThat(copy.toString().equals(record.decode(utf8)), is(true));
+            records.add(record.decode(utf8));
+        }
+
+        @Override
+        public void onEndOfStream() {
+            records.add("EOS");
+        }
+    }
+}